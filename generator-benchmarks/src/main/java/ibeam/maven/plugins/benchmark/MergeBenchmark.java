@@ -0,0 +1,77 @@
+package ibeam.maven.plugins.benchmark;
+
+import ibeam.code.CodeUtils;
+import ibeam.code.vo.EntityTable;
+import ibeam.maven.plugins.CodeFileResolver;
+import ibeam.maven.plugins.RenderedTable;
+import ibeam.maven.plugins.TableRenderer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link CodeUtils#overWriteEntity} of existing entities with a hand written method, as done with overWriteClass.
+ * <p>
+ * Entity tables only come out of the parser, it introspects them from the {@link SyntheticDatabase} of a synthetic
+ * schema, and the existing entities are rendered from them with the templates of the plugin.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MergeBenchmark {
+    private static final String HAND_WRITTEN = "\n    public String describe() {\n"
+            + "        return getClass().getSimpleName();\n    }\n}\n";
+
+    @Param({"100", "1000", "10000"})
+    public int tables;
+
+    private List<EntityTable> entities;
+    private List<String> codes;
+
+    @Setup
+    public void setUp() throws Exception {
+        entities = SyntheticSchema.of(tables).parse();
+        TableRenderer renderer = SyntheticSchema.renderer(SyntheticSchema.codeMaker(), CodeFileResolver.SCAN);
+        codes = new ArrayList<>(tables);
+        for (EntityTable entity : entities) {
+            codes.add(existingSource(renderer.render(entity)));
+        }
+    }
+
+    @Benchmark
+    public void overWriteEntity(Blackhole blackhole) throws Exception {
+        for (int i = 0; i < entities.size(); i++) {
+            blackhole.consume(CodeUtils.overWriteEntity(entities.get(i), codes.get(i)));
+        }
+    }
+
+    /**
+     * @return entity code with a method added by hand, as found in the source folder
+     */
+    private static String existingSource(RenderedTable rendered) {
+        for (RenderedTable.Code code : rendered.getCodes()) {
+            if ("entity".equals(code.getType())) {
+                String entity = code.getCode();
+                int end = entity.lastIndexOf('}');
+                return end < 0 ? entity : entity.substring(0, end) + HAND_WRITTEN;
+            }
+        }
+        throw new IllegalStateException("no entity rendered for " + rendered.getTable().getTableName());
+    }
+}
@@ -0,0 +1,60 @@
+package ibeam.maven.plugins.benchmark;
+
+import ibeam.code.CodeMaker;
+import ibeam.code.ReusableStringWriter;
+import ibeam.maven.plugins.CodeFileResolver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link CodeMaker#render} of one template of the plugin for every table of a synthetic schema,
+ * with the model the generator builds, one operation renders the whole schema.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RenderBenchmark {
+    @Param({"100", "1000", "10000"})
+    public int tables;
+
+    @Param({"entity", "dao", "service", "api_controller"})
+    public String template;
+
+    private CodeMaker codeMaker;
+    private List<Map<String, Object>> models;
+    private ReusableStringWriter writer;
+
+    @Setup
+    public void setUp() throws Exception {
+        codeMaker = SyntheticSchema.codeMaker();
+        models = SyntheticSchema.models(SyntheticSchema.renderer(codeMaker, CodeFileResolver.SCAN),
+                SyntheticSchema.of(tables).parse());
+        writer = new ReusableStringWriter(1000);
+    }
+
+    @Benchmark
+    public void render(Blackhole blackhole) throws Exception {
+        for (Map<String, Object> model : models) {
+            codeMaker.render(template, model, writer);
+            blackhole.consume(writer.toString());
+            writer.reset();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package ibeam.maven.plugins.benchmark;
+
+import ibeam.code.CodeMaker;
+import ibeam.code.ReusableStringWriter;
+import ibeam.code.vo.GenerateInfo;
+import ibeam.maven.plugins.CodeFileResolver;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolution of the source file of the entities of a synthetic schema rendered with the templates of the plugin,
+ * in scan mode and in the full parse mode the generator used before.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ResolveBenchmark {
+    @Param({"100", "1000", "10000"})
+    public int tables;
+
+    @Param({CodeFileResolver.SCAN, CodeFileResolver.PARSE})
+    public String mode;
+
+    private CodeFileResolver resolver;
+    private List<GenerateInfo> entities;
+    private List<String> codes;
+
+    @Setup
+    public void setUp() throws Exception {
+        CodeMaker codeMaker = SyntheticSchema.codeMaker();
+        List<Map<String, Object>> models = SyntheticSchema.models(SyntheticSchema.renderer(codeMaker, mode),
+                SyntheticSchema.of(tables).parse());
+        resolver = new CodeFileResolver(new File("target/generated-sources"), mode, new SystemStreamLog());
+        entities = new ArrayList<>(models.size());
+        codes = new ArrayList<>(models.size());
+        ReusableStringWriter writer = new ReusableStringWriter(1000);
+        for (Map<String, Object> model : models) {
+            codeMaker.render("entity", model, writer);
+            entities.add((GenerateInfo) model.get("entity"));
+            codes.add(writer.toString());
+            writer.reset();
+        }
+    }
+
+    @Benchmark
+    public void resolve(Blackhole blackhole) throws Exception {
+        for (int i = 0; i < codes.size(); i++) {
+            GenerateInfo entity = entities.get(i);
+            blackhole.consume(resolver.resolve(codes.get(i), entity.getPackageName(), entity.getClassName()));
+        }
+    }
+}
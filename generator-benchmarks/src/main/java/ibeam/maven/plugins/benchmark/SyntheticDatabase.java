@@ -0,0 +1,339 @@
+package ibeam.maven.plugins.benchmark;
+
+import ibeam.maven.plugins.BulkMetadata;
+import ibeam.maven.plugins.RowResultSet;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * JDBC driver of in-memory databases whose {@link DatabaseMetaData} describes the tables of a {@link SyntheticSchema},
+ * so the benchmarks get their entity tables from the parser of the generator without any database.
+ * <p>
+ * The url is {@code jdbc:ibeam-synthetic:<table count>}. getTables, getColumns, getPrimaryKeys and getIndexInfo
+ * answer the rows of the schema, the queries answer no row and the other calls their default value.
+ */
+public final class SyntheticDatabase implements Driver {
+    private static final String PREFIX = "jdbc:ibeam-synthetic:";
+
+    private static final String PRODUCT_NAME = "ibeam-synthetic";
+
+    private static final ConcurrentMap<Integer, SyntheticSchema> SCHEMAS = new ConcurrentHashMap<>();
+
+    static {
+        try {
+            DriverManager.registerDriver(new SyntheticDatabase());
+        } catch (SQLException e) {
+            throw new IllegalStateException("can't register the synthetic database driver", e);
+        }
+    }
+
+    private SyntheticDatabase() {
+        super();
+    }
+
+    /**
+     * @return url of the database of the given schema
+     */
+    public static String url(SyntheticSchema schema) {
+        SCHEMAS.putIfAbsent(schema.getTables().size(), schema);
+        return PREFIX + schema.getTables().size();
+    }
+
+    @Override
+    public Connection connect(String url, Properties info) throws SQLException {
+        if (!acceptsURL(url)) {
+            return null;
+        }
+        SyntheticSchema schema;
+        try {
+            int tableCount = Integer.parseInt(url.substring(PREFIX.length()));
+            schema = SCHEMAS.get(tableCount);
+            if (null == schema) {
+                SCHEMAS.putIfAbsent(tableCount, SyntheticSchema.of(tableCount));
+                schema = SCHEMAS.get(tableCount);
+            }
+        } catch (NumberFormatException e) {
+            throw new SQLException("the synthetic database url is " + PREFIX + "<table count>: " + url, e);
+        }
+        return connection(schema);
+    }
+
+    @Override
+    public boolean acceptsURL(String url) {
+        return null != url && url.startsWith(PREFIX);
+    }
+
+    @Override
+    public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+        return new DriverPropertyInfo[0];
+    }
+
+    @Override
+    public int getMajorVersion() {
+        return 1;
+    }
+
+    @Override
+    public int getMinorVersion() {
+        return 0;
+    }
+
+    @Override
+    public boolean jdbcCompliant() {
+        return false;
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    private static Connection connection(final SyntheticSchema schema) {
+        return (Connection) Proxy.newProxyInstance(SyntheticDatabase.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new InvocationHandler() {
+                    private DatabaseMetaData metaData;
+
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        switch (method.getName()) {
+                            case "getMetaData":
+                                if (null == metaData) {
+                                    metaData = metaData(schema, (Connection) proxy);
+                                }
+                                return metaData;
+                            case "getCatalog":
+                                return SyntheticSchema.DOMAIN;
+                            case "createStatement":
+                            case "prepareStatement":
+                            case "prepareCall":
+                                return statement(method.getReturnType(), (Connection) proxy);
+                            default:
+                                return defaultValue(proxy, method, args);
+                        }
+                    }
+                });
+    }
+
+    private static DatabaseMetaData metaData(final SyntheticSchema schema, final Connection connection) {
+        return (DatabaseMetaData) Proxy.newProxyInstance(SyntheticDatabase.class.getClassLoader(),
+                new Class<?>[]{DatabaseMetaData.class}, new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        switch (method.getName()) {
+                            case "getConnection":
+                                return connection;
+                            case "getDatabaseProductName":
+                                return PRODUCT_NAME;
+                            case "getSearchStringEscape":
+                                return "\\";
+                            case "getTables":
+                                return tables(schema, (String) args[2]);
+                            case "getColumns":
+                                return columns(schema, (String) args[2], (String) args[3]);
+                            case "getPrimaryKeys":
+                                return primaryKeys(schema, (String) args[2]);
+                            case "getIndexInfo":
+                                return indexes(schema, (String) args[2]);
+                            default:
+                                return defaultValue(proxy, method, args);
+                        }
+                    }
+                });
+    }
+
+    private static Object statement(Class<?> type, final Connection connection) {
+        return Proxy.newProxyInstance(SyntheticDatabase.class.getClassLoader(), new Class<?>[]{type},
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        switch (method.getName()) {
+                            case "getConnection":
+                                return connection;
+                            case "execute":
+                                return true;
+                            case "executeQuery":
+                            case "getResultSet":
+                                return RowResultSet.of(new String[0], Collections.<Object[]>emptyList());
+                            default:
+                                return defaultValue(proxy, method, args);
+                        }
+                    }
+                });
+    }
+
+    private static ResultSet tables(SyntheticSchema schema, String tablePattern) {
+        List<Object[]> rows = new ArrayList<>();
+        for (SyntheticSchema.Table table : match(schema, tablePattern)) {
+            Object[] row = new Object[BulkMetadata.TABLE_LABELS.length];
+            row[0] = SyntheticSchema.DOMAIN;
+            row[2] = table.getTableName();
+            row[3] = "TABLE";
+            row[4] = table.getComment();
+            rows.add(row);
+        }
+        return RowResultSet.of(BulkMetadata.TABLE_LABELS, rows);
+    }
+
+    private static ResultSet columns(SyntheticSchema schema, String tablePattern, String columnPattern) {
+        Pattern columns = null == columnPattern || "%".equals(columnPattern) ? null : like(columnPattern);
+        List<Object[]> rows = new ArrayList<>();
+        for (SyntheticSchema.Table table : match(schema, tablePattern)) {
+            int position = 0;
+            for (SyntheticSchema.Field field : table.getFields()) {
+                position++;
+                if (null != columns && !columns.matcher(field.getName()).matches()) {
+                    continue;
+                }
+                Object[] row = new Object[BulkMetadata.COLUMN_LABELS.length];
+                row[0] = SyntheticSchema.DOMAIN;
+                row[2] = table.getTableName();
+                row[3] = field.getName();
+                row[4] = field.getSqlType();
+                row[5] = field.getType();
+                row[6] = field.getSize();
+                row[8] = field.getDigits();
+                row[9] = 10;
+                row[10] = field.isNullable() ? DatabaseMetaData.columnNullable : DatabaseMetaData.columnNoNulls;
+                row[11] = field.getComment();
+                row[16] = position;
+                row[17] = field.isNullable() ? "YES" : "NO";
+                row[22] = field.isPrimaryKey() ? "YES" : "NO";
+                row[23] = "NO";
+                rows.add(row);
+            }
+        }
+        return RowResultSet.of(BulkMetadata.COLUMN_LABELS, rows);
+    }
+
+    private static ResultSet primaryKeys(SyntheticSchema schema, String tableName) {
+        List<Object[]> rows = new ArrayList<>(1);
+        SyntheticSchema.Table table = schema.getTable(tableName);
+        if (null != table) {
+            Object[] row = new Object[BulkMetadata.PRIMARY_KEY_LABELS.length];
+            row[0] = SyntheticSchema.DOMAIN;
+            row[2] = table.getTableName();
+            row[3] = table.getFields().get(0).getName();
+            row[4] = (short) 1;
+            row[5] = "PRIMARY";
+            rows.add(row);
+        }
+        return RowResultSet.of(BulkMetadata.PRIMARY_KEY_LABELS, rows);
+    }
+
+    /**
+     * @return the index of the primary key, the only index of the synthetic tables
+     */
+    private static ResultSet indexes(SyntheticSchema schema, String tableName) {
+        List<Object[]> rows = new ArrayList<>(1);
+        SyntheticSchema.Table table = schema.getTable(tableName);
+        if (null != table) {
+            Object[] row = new Object[BulkMetadata.INDEX_LABELS.length];
+            row[0] = SyntheticSchema.DOMAIN;
+            row[2] = table.getTableName();
+            row[3] = false;
+            row[5] = "PRIMARY";
+            row[6] = DatabaseMetaData.tableIndexOther;
+            row[7] = (short) 1;
+            row[8] = table.getFields().get(0).getName();
+            row[9] = "A";
+            row[10] = 0L;
+            row[11] = 0L;
+            rows.add(row);
+        }
+        return RowResultSet.of(BulkMetadata.INDEX_LABELS, rows);
+    }
+
+    /**
+     * @return the tables matching a name pattern, the table of that name first as parsers often pass a name
+     * whose underscores are not escaped
+     */
+    private static List<SyntheticSchema.Table> match(SyntheticSchema schema, String tablePattern) {
+        if (null == tablePattern || "%".equals(tablePattern)) {
+            return schema.getTables();
+        }
+        SyntheticSchema.Table table = schema.getTable(tablePattern.replace("\\", ""));
+        if (null != table) {
+            return Collections.singletonList(table);
+        }
+        Pattern pattern = like(tablePattern);
+        List<SyntheticSchema.Table> matches = new ArrayList<>();
+        for (SyntheticSchema.Table candidate : schema.getTables()) {
+            if (pattern.matcher(candidate.getTableName()).matches()) {
+                matches.add(candidate);
+            }
+        }
+        return matches;
+    }
+
+    private static Pattern like(String pattern) {
+        StringBuilder regex = new StringBuilder(pattern.length() * 2);
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c == '\\' && i + 1 < pattern.length()) {
+                regex.append(Pattern.quote(String.valueOf(pattern.charAt(++i))));
+            } else if (c == '%') {
+                regex.append(".*");
+            } else if (c == '_') {
+                regex.append('.');
+            } else {
+                regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return Pattern.compile(regex.toString(), Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+    }
+
+    /**
+     * @return the default value of a call the synthetic database doesn't answer: no result, false, 0 or null
+     */
+    private static Object defaultValue(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "equals":
+                return proxy == args[0];
+            case "toString":
+                return PRODUCT_NAME;
+            case "isWrapperFor":
+                return ((Class<?>) args[0]).isInstance(proxy);
+            case "unwrap":
+                return ((Class<?>) args[0]).cast(proxy);
+            default:
+                break;
+        }
+        Class<?> type = method.getReturnType();
+        if (type == ResultSet.class) {
+            return RowResultSet.of(new String[0], Collections.<Object[]>emptyList());
+        }
+        if (type == boolean.class) {
+            return false;
+        }
+        if (type == int.class || type == short.class || type == byte.class) {
+            return type == int.class ? (Object) 0 : type == short.class ? (Object) (short) 0 : (Object) (byte) 0;
+        }
+        if (type == long.class) {
+            return 0L;
+        }
+        if (type == double.class || type == float.class) {
+            return type == double.class ? (Object) 0d : (Object) 0f;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,226 @@
+package ibeam.maven.plugins.benchmark;
+
+import freemarker.template.TemplateException;
+import ibeam.Converter;
+import ibeam.code.CodeMaker;
+import ibeam.code.vo.EntityTable;
+import ibeam.jdbc.EntityParser;
+import ibeam.maven.plugins.CodeFileResolver;
+import ibeam.maven.plugins.CodeGenerateMojo;
+import ibeam.maven.plugins.MavenBizLogger;
+import ibeam.maven.plugins.TableRenderer;
+import ibeam.maven.plugins.TemplateCache;
+import ibeam.maven.plugins.TemplateDigests;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Schema of generated tables for the benchmarks, so they run without any database.
+ * The tables are the same from one run to the other: every table has between 20 and 200 columns
+ * drawn from a fixed seed, with the usual mix of column types.
+ * <p>
+ * The tables are introspected by the parser of the generator from a {@link SyntheticDatabase}, and rendered with
+ * the templates shipped with the plugin, {@link CodeGenerateMojo#TEMPLATE_CLASSPATH}, as the generate goal does.
+ */
+public class SyntheticSchema {
+    public static final String BASE_PACKAGE = "ibeam.demo";
+
+    public static final String DOMAIN = "bench";
+
+    public static final int MIN_COLUMNS = 20;
+
+    public static final int MAX_COLUMNS = 200;
+
+    private static final long SEED = 20170401L;
+
+    /**
+     * type name, JDBC type, size and decimal digits of the column types
+     */
+    private static final Object[][] TYPES = {
+            {"BIGINT", Types.BIGINT, 19, 0}, {"INT", Types.INTEGER, 10, 0}, {"VARCHAR", Types.VARCHAR, 64, null},
+            {"VARCHAR", Types.VARCHAR, 255, null}, {"DATETIME", Types.TIMESTAMP, 19, 0},
+            {"DECIMAL", Types.DECIMAL, 18, 4}, {"BIT", Types.BIT, 1, null}, {"TEXT", Types.LONGVARCHAR, 65535, null}};
+
+    private static final Converter<String, String> TABLE_NAMES = new Converter<String, String>() {
+        @Override
+        public String convert(String value) throws IllegalArgumentException {
+            return value;
+        }
+    };
+
+    private final List<Table> tables;
+    private final Map<String, Table> tablesByName;
+
+    private SyntheticSchema(List<Table> tables) {
+        this.tables = tables;
+        this.tablesByName = new HashMap<>(tables.size() * 2);
+        for (Table table : tables) {
+            tablesByName.put(table.tableName, table);
+        }
+    }
+
+    /**
+     * @param tableCount number of tables of the schema
+     */
+    public static SyntheticSchema of(int tableCount) {
+        Random random = new Random(SEED);
+        List<Table> tables = new ArrayList<>(tableCount);
+        for (int i = 0; i < tableCount; i++) {
+            String tableName = "bench_table_" + i;
+            Table table = new Table(tableName, "table " + i + " of the benchmark");
+            int columnCount = MIN_COLUMNS + random.nextInt(MAX_COLUMNS - MIN_COLUMNS + 1);
+            table.fields.add(new Field("id", TYPES[0], "primary key", true, false));
+            for (int c = 1; c < columnCount; c++) {
+                table.fields.add(new Field("column_" + c, TYPES[random.nextInt(TYPES.length)],
+                        "column " + c + " of " + tableName, false, random.nextBoolean()));
+            }
+            tables.add(table);
+        }
+        return new SyntheticSchema(Collections.unmodifiableList(tables));
+    }
+
+    public List<Table> getTables() {
+        return tables;
+    }
+
+    /**
+     * @return the table of the given name, null if the schema has none
+     */
+    public Table getTable(String tableName) {
+        return tablesByName.get(tableName);
+    }
+
+    /**
+     * @return the entity tables of the schema in name order, introspected by the parser of the generator
+     */
+    public List<EntityTable> parse() throws Exception {
+        EntityParser parser = new EntityParser("bench", "", SyntheticDatabase.url(this), DOMAIN);
+        parser.setLogger(new MavenBizLogger(new SystemStreamLog()));
+        List<EntityTable> entities = new ArrayList<>(parser.parse(null, Collections.<String>emptySet(), TABLE_NAMES));
+        Collections.sort(entities, new Comparator<EntityTable>() {
+            @Override
+            public int compare(EntityTable o1, EntityTable o2) {
+                return o1.getTableName().compareTo(o2.getTableName());
+            }
+        });
+        if (entities.size() != tables.size()) {
+            throw new IllegalStateException(entities.size() + " tables parsed instead of " + tables.size());
+        }
+        return entities;
+    }
+
+    /**
+     * @return code maker of the templates of the plugin, built and cached the same way as the generator does
+     */
+    public static CodeMaker codeMaker() throws IOException, TemplateException {
+        return TemplateCache.get(null, CodeGenerateMojo.TEMPLATE_CLASSPATH, "UTF-8", BASE_PACKAGE + ".",
+                TemplateDigests.of(null, CodeGenerateMojo.TEMPLATE_CLASSPATH));
+    }
+
+    /**
+     * @return renderer of the tables of the schema, with the web api
+     */
+    public static TableRenderer renderer(CodeMaker codeMaker, String pathResolution) {
+        return new TableRenderer(codeMaker, DOMAIN, new CodeFileResolver(new File("target/generated-sources"),
+                pathResolution, new SystemStreamLog()), true);
+    }
+
+    /**
+     * @return template model of every table, as the generator builds it
+     */
+    public static List<Map<String, Object>> models(TableRenderer renderer, List<EntityTable> entities)
+            throws Exception {
+        List<Map<String, Object>> models = new ArrayList<>(entities.size());
+        for (EntityTable entity : entities) {
+            models.add(renderer.model(entity));
+        }
+        return models;
+    }
+
+    public static class Table {
+        private final String tableName;
+        private final String comment;
+        private final List<Field> fields = new ArrayList<>();
+
+        private Table(String tableName, String comment) {
+            this.tableName = tableName;
+            this.comment = comment;
+        }
+
+        public String getTableName() {
+            return tableName;
+        }
+
+        public String getComment() {
+            return comment;
+        }
+
+        public List<Field> getFields() {
+            return fields;
+        }
+    }
+
+    public static class Field {
+        private final String name;
+        private final String type;
+        private final int sqlType;
+        private final Integer size;
+        private final Integer digits;
+        private final String comment;
+        private final boolean primaryKey;
+        private final boolean nullable;
+
+        private Field(String name, Object[] type, String comment, boolean primaryKey, boolean nullable) {
+            this.name = name;
+            this.type = (String) type[0];
+            this.sqlType = (Integer) type[1];
+            this.size = (Integer) type[2];
+            this.digits = (Integer) type[3];
+            this.comment = comment;
+            this.primaryKey = primaryKey;
+            this.nullable = nullable;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public int getSqlType() {
+            return sqlType;
+        }
+
+        public Integer getSize() {
+            return size;
+        }
+
+        public Integer getDigits() {
+            return digits;
+        }
+
+        public String getComment() {
+            return comment;
+        }
+
+        public boolean isPrimaryKey() {
+            return primaryKey;
+        }
+
+        public boolean isNullable() {
+            return nullable;
+        }
+    }
+}
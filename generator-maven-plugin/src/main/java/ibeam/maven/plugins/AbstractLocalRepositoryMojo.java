@@ -0,0 +1,147 @@
+package ibeam.maven.plugins;
+
+/*
+ * Copyright 2013 The Apache Software Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0,
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Parameter;
+
+/**
+ * Common part of the goals working on the local maven repository : its folder, its {@link RepositoryIndex}
+ * and the threads walking it.
+ *
+ * @author sgu, pef, lab...
+ * @version $Id$
+ */
+public abstract class AbstractLocalRepositoryMojo extends AbstractMojo {
+
+	/**
+	 * Root location of the local maven repository.
+	 *
+	 * @parameter property="localRepository"
+	 * @readonly
+	 * @required
+	 */
+	@Parameter(defaultValue = "${localRepository}", readonly = true, required = true)
+	private ArtifactRepository localMavenRepository;
+
+	/**
+	 * number of threads walking the repository, default is the number of available processors
+	 *
+	 * @parameter property="threads" default-value="0"
+	 * @since 1.1
+	 */
+	@Parameter(property = "threads", defaultValue = "0")
+	private int threads;
+
+	/**
+	 * index of the local repository, updated at each run so only the folders changed since are listed again,
+	 * default is .ibeam-repository.index in the local repository
+	 *
+	 * @parameter property="repositoryIndex"
+	 * @since 1.1
+	 */
+	@Parameter(property = "repositoryIndex")
+	private File repositoryIndex;
+
+
+	/**
+	 * Initialize and check the execution context of the Mojo :
+	 * - read access to the local repository folder
+	 *
+	 * @return a file representing the current maven local repository
+	 * @throws MojoExecutionException
+	 * @throws MojoFailureException
+	 */
+	protected File initializeAndCheckMojoContext() throws MojoExecutionException, MojoFailureException {
+
+		final File localRepositoryFolder = new File(localMavenRepository.getBasedir());
+
+		if (!localRepositoryFolder.exists()) {
+			throw new MojoExecutionException(Enumeres.EXCEPTION.LOCAL_MAVEN_REPOSITORY_UNAVAILABLE + localRepositoryFolder);
+		}
+
+		if (!localRepositoryFolder.canWrite()) {
+			throw new MojoFailureException(Enumeres.EXCEPTION.LOCAL_MAVEN_REPOSITORY_PERMISSION_DENIED + localRepositoryFolder);
+		}
+
+		if (repositoryIndex == null) {
+			repositoryIndex = new File(localRepositoryFolder, RepositoryIndex.FILE_NAME);
+		}
+
+		if (threads <= 0) {
+			threads = Runtime.getRuntime().availableProcessors();
+		}
+
+		return localRepositoryFolder;
+	}
+
+
+	/**
+	 * @param name prefix of the thread names
+	 * @return a pool of the threads walking the repository
+	 */
+	protected ExecutorService newExecutor(final String name) {
+
+		return Executors.newFixedThreadPool(threads, new NamedThreadFactory(name));
+	}
+
+
+	/**
+	 * Load the index of the repository and bring it up to date in one parallel walk.
+	 *
+	 * @param localRepositoryFolder
+	 * @param executor
+	 * @return the index of the repository
+	 * @throws IOException
+	 */
+	protected RepositoryIndex updateIndex(final File localRepositoryFolder, final ExecutorService executor)
+			throws IOException {
+
+		final RepositoryIndex index = RepositoryIndex.load(localRepositoryFolder, repositoryIndex);
+
+		final int listed = index.update(executor);
+
+		getLog().debug(listed + " folders listed to update the index " + repositoryIndex);
+
+		return index;
+	}
+
+
+	/**
+	 * Save the index for the next run, a failure only costs a full scan next time.
+	 *
+	 * @param index
+	 */
+	protected void writeIndex(final RepositoryIndex index) {
+
+		try {
+			index.write(repositoryIndex);
+		}
+		catch (IOException e) {
+			getLog().warn("failed to save the index of the local repository " + repositoryIndex, e);
+		}
+	}
+
+}
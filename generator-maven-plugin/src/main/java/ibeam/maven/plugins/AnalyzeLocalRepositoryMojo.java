@@ -0,0 +1,143 @@
+package ibeam.maven.plugins;
+
+/*
+ * Copyright 2013 The Apache Software Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0,
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+
+/**
+ * Report where the space of the local maven repository goes : bytes, files and versions per groupId, per artifact,
+ * snapshot or release and age, as a table of the biggest ones and as a JSON file.
+ * The sizes come from the {@link RepositoryIndex}, so only the folders changed since the previous run are read.
+ *
+ * @author sgu, pef, lab...
+ * @version $Id$
+ */
+@Mojo(name = "analyze", requiresProject = false, threadSafe = true)
+public class AnalyzeLocalRepositoryMojo extends AbstractLocalRepositoryMojo {
+
+	/**
+	 * Default name of the analysis file, in the local repository folder next to the index
+	 */
+	public static final String FILE_NAME = "ibeam-repository-analysis.json";
+
+	/**
+	 * number of groupIds and artifacts in the table, the biggest first
+	 *
+	 * @parameter property="top" default-value="20"
+	 * @since 1.1
+	 */
+	@Parameter(property = "top", defaultValue = "20")
+	private int top;
+
+	/**
+	 * JSON file receiving the whole analysis, ibeam-repository-analysis.json in the local repository folder by default
+	 * as the goal runs without a project
+	 *
+	 * @parameter property="analysisFile"
+	 * @since 1.1
+	 */
+	@Parameter(property = "analysisFile")
+	private File analysisFile;
+
+
+	/**
+	 * Implementation of the execute() method for the analyze goal.
+	 *
+	 * @throws MojoExecutionException
+	 * @throws MojoFailureException
+	 * @see org.apache.maven.plugin.Mojo#execute()
+	 */
+	@Override
+	public void execute() throws MojoExecutionException, MojoFailureException {
+
+		final File localRepositoryFolder = initializeAndCheckMojoContext();
+
+		getLog().info(Enumeres.LOG.STARTING_PLUGIN + "analyze on " + localRepositoryFolder);
+
+		final long start = System.currentTimeMillis();
+
+		final ExecutorService executor = newExecutor("ibeam-analyze");
+
+		final RepositoryUsage usage = new RepositoryUsage(start);
+
+		try {
+			final RepositoryIndex index = updateIndex(localRepositoryFolder, executor);
+
+			for (final RepositoryIndex.Folder folder : index.getVersionFolders()) {
+				usage.add(folder);
+			}
+
+			writeIndex(index);
+		}
+		catch (IOException e) {
+			throw new MojoExecutionException("failed to index the local repository " + localRepositoryFolder, e);
+		}
+		finally {
+			executor.shutdownNow();
+		}
+
+		for (final String line : usage.toTable(top)) {
+			getLog().info(line);
+		}
+
+		final File file = analysisFile != null ? analysisFile : new File(localRepositoryFolder, FILE_NAME);
+
+		try {
+			FileUtils.writeStringToFile(file, usage.toJson(localRepositoryFolder.getAbsolutePath()),
+					StandardCharsets.UTF_8);
+		}
+		catch (IOException e) {
+			throw new MojoExecutionException("failed to write the analysis " + file, e);
+		}
+		getLog().info("analysis written to " + file);
+
+		getLog().info("local repository analyzed in " + (System.currentTimeMillis() - start) + " ms");
+	}
+
+
+	/**
+	 * Initialize and check the execution context of the Mojo :
+	 * - read access to the local repository folder
+	 * - unexpected parameter
+	 *
+	 * @return a file representing the current maven local repository
+	 * @throws MojoExecutionException
+	 * @throws MojoFailureException
+	 */
+	@Override
+	protected File initializeAndCheckMojoContext() throws MojoExecutionException, MojoFailureException {
+
+		final File localRepositoryFolder = super.initializeAndCheckMojoContext();
+
+		if (top < 0) {
+			throw new MojoFailureException(Enumeres.EXCEPTION.UNEXPECTED_PARAMETER + "top"
+					+ Enumeres.EXCEPTION.NEGATIVE_NUMBER + top);
+		}
+
+		return localRepositoryFolder;
+	}
+
+}
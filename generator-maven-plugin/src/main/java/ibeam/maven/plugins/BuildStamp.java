@@ -0,0 +1,92 @@
+package ibeam.maven.plugins;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.time.DateFormatUtils;
+
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * YEAR, TIME and USER stamped into the generated code.
+ * <p>
+ * By default they are the current time and user, so two generations of the same schema differ.
+ * A reproducible stamp takes the time from {@code project.build.outputTimestamp}, formatted in UTC,
+ * and a fixed user, so the same inputs always give the same sources.
+ */
+public final class BuildStamp {
+    /**
+     * user of a reproducible stamp when no author is set
+     */
+    public static final String DEFAULT_USER = "ibeam";
+
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+    private final String year;
+    private final String time;
+    private final String user;
+    private final boolean reproducible;
+
+    private BuildStamp(Date date, TimeZone timeZone, String user, boolean reproducible) {
+        this.year = DateFormatUtils.format(date, "yyyy", timeZone);
+        this.time = DateFormatUtils.format(date, "yyyy-MM-dd HH:mm:ss", timeZone);
+        this.user = user;
+        this.reproducible = reproducible;
+    }
+
+    /**
+     * @param author user stamped into the code, the current user if blank
+     */
+    public static BuildStamp now(String author) {
+        return new BuildStamp(new Date(), TimeZone.getDefault(),
+                StringUtils.isBlank(author) ? System.getProperty("user.name") : author, false);
+    }
+
+    /**
+     * @param outputTimestamp ISO 8601 date time such as {@code 2024-01-01T00:00:00Z}, or seconds since the epoch
+     * @param author          user stamped into the code, {@link #DEFAULT_USER} if blank
+     * @throws IllegalArgumentException if the timestamp is not set or not valid
+     */
+    public static BuildStamp reproducible(String outputTimestamp, String author) {
+        // a single character disables the timestamp, as for the maven archivers
+        if (StringUtils.isBlank(outputTimestamp) || outputTimestamp.trim().length() < 2) {
+            throw new IllegalArgumentException("reproducible mode needs project.build.outputTimestamp "
+                    + "or the outputTimestamp parameter");
+        }
+        return new BuildStamp(parse(outputTimestamp.trim()), UTC,
+                StringUtils.isBlank(author) ? DEFAULT_USER : author, true);
+    }
+
+    private static Date parse(String outputTimestamp) {
+        if (StringUtils.isNumeric(outputTimestamp)) {
+            return new Date(Long.parseLong(outputTimestamp) * 1000L);
+        }
+        try {
+            return Date.from(OffsetDateTime.parse(outputTimestamp).toInstant());
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("invalid outputTimestamp [" + outputTimestamp
+                    + "], expected an ISO 8601 date time such as 2024-01-01T00:00:00Z", e);
+        }
+    }
+
+    public String getYear() {
+        return year;
+    }
+
+    public String getTime() {
+        return time;
+    }
+
+    public String getUser() {
+        return user;
+    }
+
+    /**
+     * @return fingerprint of the stamp for the fingerprint cache, a current time stamp only depends on its user
+     * so the outputs don't go out of date at every build
+     */
+    public String getFingerprint() {
+        return reproducible ? SchemaFingerprint.hash(time, user) : SchemaFingerprint.hash(user);
+    }
+}
@@ -0,0 +1,611 @@
+package ibeam.maven.plugins;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+/**
+ * Metadata of the tables of a MySQL compatible schema (MySQL, MariaDB, or H2 in MySQL mode) read with a few
+ * set based queries on information_schema, one for the tables and their comments, one for the columns,
+ * one for the primary keys and one for the indexes, instead of metadata calls for every table.
+ * <p>
+ * The metadata is kept as the rows {@link DatabaseMetaData} returns for getTables, getColumns, getPrimaryKeys
+ * and getIndexInfo, so the parser reads it through {@link BulkMetadataDriver} as if it came from the driver,
+ * and builds the tables and fields from memory.
+ */
+public final class BulkMetadata implements Closeable {
+    public static final String METADATA = "metadata";
+
+    public static final String BULK = "bulk";
+
+    public static final String[] TABLE_LABELS = {"TABLE_CAT", "TABLE_SCHEM", "TABLE_NAME", "TABLE_TYPE", "REMARKS",
+            "TYPE_CAT", "TYPE_SCHEM", "TYPE_NAME", "SELF_REFERENCING_COL_NAME", "REF_GENERATION"};
+
+    public static final String[] COLUMN_LABELS = {"TABLE_CAT", "TABLE_SCHEM", "TABLE_NAME", "COLUMN_NAME", "DATA_TYPE",
+            "TYPE_NAME", "COLUMN_SIZE", "BUFFER_LENGTH", "DECIMAL_DIGITS", "NUM_PREC_RADIX", "NULLABLE", "REMARKS",
+            "COLUMN_DEF", "SQL_DATA_TYPE", "SQL_DATETIME_SUB", "CHAR_OCTET_LENGTH", "ORDINAL_POSITION",
+            "IS_NULLABLE", "SCOPE_CATALOG", "SCOPE_SCHEMA", "SCOPE_TABLE", "SOURCE_DATA_TYPE", "IS_AUTOINCREMENT",
+            "IS_GENERATEDCOLUMN"};
+
+    public static final String[] PRIMARY_KEY_LABELS = {"TABLE_CAT", "TABLE_SCHEM", "TABLE_NAME", "COLUMN_NAME",
+            "KEY_SEQ", "PK_NAME"};
+
+    public static final String[] INDEX_LABELS = {"TABLE_CAT", "TABLE_SCHEM", "TABLE_NAME", "NON_UNIQUE",
+            "INDEX_QUALIFIER", "INDEX_NAME", "TYPE", "ORDINAL_POSITION", "COLUMN_NAME", "ASC_OR_DESC", "CARDINALITY",
+            "PAGES", "FILTER_CONDITION"};
+
+    private static final String TABLES_QUERY = "SELECT * FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_SCHEMA = ?";
+
+    private static final String COLUMNS_QUERY = "SELECT * FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_SCHEMA = ?"
+            + " ORDER BY TABLE_NAME, ORDINAL_POSITION";
+
+    private static final String PRIMARY_KEYS_QUERY = "SELECT k.TABLE_NAME, k.COLUMN_NAME, k.ORDINAL_POSITION,"
+            + " k.CONSTRAINT_NAME FROM INFORMATION_SCHEMA.TABLE_CONSTRAINTS c"
+            + " JOIN INFORMATION_SCHEMA.KEY_COLUMN_USAGE k ON k.CONSTRAINT_SCHEMA = c.CONSTRAINT_SCHEMA"
+            + " AND k.CONSTRAINT_NAME = c.CONSTRAINT_NAME AND k.TABLE_NAME = c.TABLE_NAME"
+            + " WHERE c.TABLE_SCHEMA = ? AND c.CONSTRAINT_TYPE = 'PRIMARY KEY'";
+
+    private static final String MYSQL_INDEXES_QUERY = "SELECT TABLE_NAME, NON_UNIQUE, INDEX_NAME, SEQ_IN_INDEX,"
+            + " COLUMN_NAME, COLLATION, CARDINALITY FROM INFORMATION_SCHEMA.STATISTICS WHERE TABLE_SCHEMA = ?";
+
+    private static final String H2_INDEXES_QUERY = "SELECT TABLE_NAME, IS_UNIQUE, INDEX_NAME, ORDINAL_POSITION,"
+            + " COLUMN_NAME, ORDERING_SPECIFICATION FROM INFORMATION_SCHEMA.INDEX_COLUMNS WHERE TABLE_SCHEMA = ?";
+
+    private static final Map<String, Integer> JDBC_TYPES = new HashMap<>();
+
+    static {
+        JDBC_TYPES.put("BIT", Types.BIT);
+        JDBC_TYPES.put("BOOL", Types.BOOLEAN);
+        JDBC_TYPES.put("BOOLEAN", Types.BOOLEAN);
+        JDBC_TYPES.put("TINYINT", Types.TINYINT);
+        JDBC_TYPES.put("SMALLINT", Types.SMALLINT);
+        JDBC_TYPES.put("MEDIUMINT", Types.INTEGER);
+        JDBC_TYPES.put("INT", Types.INTEGER);
+        JDBC_TYPES.put("INTEGER", Types.INTEGER);
+        JDBC_TYPES.put("BIGINT", Types.BIGINT);
+        JDBC_TYPES.put("FLOAT", Types.REAL);
+        JDBC_TYPES.put("REAL", Types.REAL);
+        JDBC_TYPES.put("DOUBLE", Types.DOUBLE);
+        JDBC_TYPES.put("DOUBLE PRECISION", Types.DOUBLE);
+        JDBC_TYPES.put("DECIMAL", Types.DECIMAL);
+        JDBC_TYPES.put("NUMERIC", Types.DECIMAL);
+        JDBC_TYPES.put("DATE", Types.DATE);
+        JDBC_TYPES.put("YEAR", Types.DATE);
+        JDBC_TYPES.put("TIME", Types.TIME);
+        JDBC_TYPES.put("DATETIME", Types.TIMESTAMP);
+        JDBC_TYPES.put("TIMESTAMP", Types.TIMESTAMP);
+        JDBC_TYPES.put("TIMESTAMP WITH TIME ZONE", Types.TIMESTAMP_WITH_TIMEZONE);
+        JDBC_TYPES.put("CHAR", Types.CHAR);
+        JDBC_TYPES.put("CHARACTER", Types.CHAR);
+        JDBC_TYPES.put("ENUM", Types.CHAR);
+        JDBC_TYPES.put("SET", Types.CHAR);
+        JDBC_TYPES.put("VARCHAR", Types.VARCHAR);
+        JDBC_TYPES.put("CHARACTER VARYING", Types.VARCHAR);
+        JDBC_TYPES.put("TINYTEXT", Types.VARCHAR);
+        JDBC_TYPES.put("TEXT", Types.LONGVARCHAR);
+        JDBC_TYPES.put("MEDIUMTEXT", Types.LONGVARCHAR);
+        JDBC_TYPES.put("LONGTEXT", Types.LONGVARCHAR);
+        JDBC_TYPES.put("JSON", Types.LONGVARCHAR);
+        JDBC_TYPES.put("CHARACTER LARGE OBJECT", Types.CLOB);
+        JDBC_TYPES.put("BINARY", Types.BINARY);
+        JDBC_TYPES.put("VARBINARY", Types.VARBINARY);
+        JDBC_TYPES.put("BINARY VARYING", Types.VARBINARY);
+        JDBC_TYPES.put("TINYBLOB", Types.VARBINARY);
+        JDBC_TYPES.put("BLOB", Types.LONGVARBINARY);
+        JDBC_TYPES.put("MEDIUMBLOB", Types.LONGVARBINARY);
+        JDBC_TYPES.put("LONGBLOB", Types.LONGVARBINARY);
+        JDBC_TYPES.put("BINARY LARGE OBJECT", Types.BLOB);
+        JDBC_TYPES.put("GEOMETRY", Types.BINARY);
+    }
+
+    private static final Comparator<Object[]> INDEX_ORDER = new Comparator<Object[]>() {
+        @Override
+        public int compare(Object[] o1, Object[] o2) {
+            int result = Boolean.compare((Boolean) o1[3], (Boolean) o2[3]);
+            if (result == 0) {
+                result = String.valueOf(o1[5]).compareTo(String.valueOf(o2[5]));
+            }
+            return result != 0 ? result : Integer.compare((Short) o1[7], (Short) o2[7]);
+        }
+    };
+
+    private final String catalog;
+    private final String schema;
+    private final String escape;
+
+    /**
+     * names of all the tables of the schema
+     */
+    private final Set<String> tableNames = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+
+    /**
+     * metadata of the kept tables
+     */
+    private final Map<String, Table> tables = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+    private BulkMetadata(String catalog, String schema, String escape) {
+        this.catalog = catalog;
+        this.schema = schema;
+        this.escape = escape;
+    }
+
+    /**
+     * @return whether the database of the connection has the information_schema tables read in bulk
+     */
+    public static boolean supports(Connection connection) throws SQLException {
+        String product = connection.getMetaData().getDatabaseProductName().toLowerCase(Locale.ENGLISH);
+        return product.contains("mysql") || product.contains("mariadb") || product.contains("h2");
+    }
+
+    /**
+     * read the metadata of the schema of the connection
+     *
+     * @param keep names of the tables whose metadata is kept, all the tables if null
+     */
+    public static BulkMetadata read(Connection connection, Collection<String> keep) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        String catalog = connection.getCatalog();
+        String schema = connection.getSchema();
+        boolean h2 = metaData.getDatabaseProductName().toLowerCase(Locale.ENGLISH).contains("h2");
+        BulkMetadata metadata = new BulkMetadata(catalog, schema, metaData.getSearchStringEscape());
+        Set<String> kept = null;
+        if (null != keep) {
+            kept = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+            kept.addAll(keep);
+        }
+        // MySQL has no schema under the catalog, information_schema calls the database a schema
+        String tableSchema = null == schema ? catalog : schema;
+        metadata.readTables(connection, tableSchema, kept, h2);
+        metadata.readColumns(connection, tableSchema);
+        metadata.readPrimaryKeys(connection, tableSchema);
+        metadata.readIndexes(connection, tableSchema, h2);
+        for (Table table : metadata.tables.values()) {
+            Collections.sort(table.indexes, INDEX_ORDER);
+        }
+        return metadata;
+    }
+
+    /**
+     * @return url opening connections whose metadata of this schema is read from memory, until closed
+     */
+    public String register(String jdbcUrl) {
+        return BulkMetadataDriver.register(this, jdbcUrl);
+    }
+
+    @Override
+    public void close() {
+        BulkMetadataDriver.unregister(this);
+    }
+
+    public int getTableCount() {
+        return tables.size();
+    }
+
+    public int getColumnCount() {
+        int count = 0;
+        for (Table table : tables.values()) {
+            count += table.columns.size();
+        }
+        return count;
+    }
+
+    /**
+     * @return whether the catalog and schema of a metadata call are the ones read in bulk
+     */
+    boolean covers(String catalog, String schemaPattern) {
+        if (null != catalog && !catalog.equalsIgnoreCase(this.catalog)) {
+            return false;
+        }
+        return null == schemaPattern || null == schema || like(schemaPattern).matcher(schema).matches();
+    }
+
+    /**
+     * @return the getTables rows, null if a matching table isn't kept
+     */
+    ResultSet getTables(String tablePattern, String[] types) {
+        List<Table> matches = match(tablePattern);
+        if (null == matches) {
+            return null;
+        }
+        Set<String> typeSet = null;
+        if (null != types) {
+            typeSet = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+            Collections.addAll(typeSet, types);
+        }
+        List<Object[]> rows = new ArrayList<>();
+        for (Table table : matches) {
+            String type = (String) table.row[3];
+            if (null == typeSet || typeSet.contains(type)
+                    || ("BASE TABLE".equalsIgnoreCase(type) && typeSet.contains("TABLE"))) {
+                rows.add(table.row);
+            }
+        }
+        return RowResultSet.of(TABLE_LABELS, rows);
+    }
+
+    /**
+     * @return the getColumns rows, null if a matching table isn't kept
+     */
+    ResultSet getColumns(String tablePattern, String columnPattern) {
+        List<Table> matches = match(tablePattern);
+        if (null == matches) {
+            return null;
+        }
+        Pattern columns = null == columnPattern || "%".equals(columnPattern) ? null : like(columnPattern);
+        List<Object[]> rows = new ArrayList<>();
+        for (Table table : matches) {
+            for (Object[] column : table.columns) {
+                if (null == columns || columns.matcher((String) column[3]).matches()) {
+                    rows.add(column);
+                }
+            }
+        }
+        return RowResultSet.of(COLUMN_LABELS, rows);
+    }
+
+    /**
+     * @return the getPrimaryKeys rows, null if the table isn't kept
+     */
+    ResultSet getPrimaryKeys(String tableName) {
+        if (!tables.containsKey(tableName)) {
+            return tableNames.contains(tableName) ? null : empty(PRIMARY_KEY_LABELS);
+        }
+        List<Object[]> rows = new ArrayList<>(tables.get(tableName).primaryKeys);
+        Collections.sort(rows, new Comparator<Object[]>() {
+            @Override
+            public int compare(Object[] o1, Object[] o2) {
+                return ((String) o1[3]).compareTo((String) o2[3]);
+            }
+        });
+        return RowResultSet.of(PRIMARY_KEY_LABELS, rows);
+    }
+
+    /**
+     * @return the getIndexInfo rows, null if the table isn't kept
+     */
+    ResultSet getIndexInfo(String tableName, boolean unique) {
+        if (!tables.containsKey(tableName)) {
+            return tableNames.contains(tableName) ? null : empty(INDEX_LABELS);
+        }
+        List<Object[]> rows = new ArrayList<>();
+        for (Object[] index : tables.get(tableName).indexes) {
+            if (!unique || !(Boolean) index[3]) {
+                rows.add(index);
+            }
+        }
+        return RowResultSet.of(INDEX_LABELS, rows);
+    }
+
+    /**
+     * @return the kept tables matching a getTables name pattern, null if a table not kept matches it
+     */
+    private List<Table> match(String tablePattern) {
+        String name = null == tablePattern ? null : unescape(tablePattern);
+        if (null != name) {
+            Table table = tables.get(name);
+            if (null == table) {
+                return tableNames.contains(name) ? null : Collections.<Table>emptyList();
+            }
+            return Collections.singletonList(table);
+        }
+        Pattern pattern = null == tablePattern ? null : like(tablePattern);
+        List<Table> matches = new ArrayList<>();
+        for (String tableName : tableNames) {
+            if (null == pattern || pattern.matcher(tableName).matches()) {
+                Table table = tables.get(tableName);
+                if (null == table) {
+                    return null;
+                }
+                matches.add(table);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * @return the name matched by a pattern without wildcard, null if the pattern has wildcards
+     */
+    private String unescape(String pattern) {
+        StringBuilder name = new StringBuilder(pattern.length());
+        for (int i = 0; i < pattern.length(); i++) {
+            if (null != escape && !escape.isEmpty() && pattern.startsWith(escape, i)
+                    && i + escape.length() < pattern.length()) {
+                i += escape.length();
+                name.append(pattern.charAt(i));
+            } else if (pattern.charAt(i) == '%' || pattern.charAt(i) == '_') {
+                return null;
+            } else {
+                name.append(pattern.charAt(i));
+            }
+        }
+        return name.toString();
+    }
+
+    private Pattern like(String pattern) {
+        StringBuilder regex = new StringBuilder(pattern.length() * 2);
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (null != escape && !escape.isEmpty() && pattern.startsWith(escape, i)
+                    && i + escape.length() < pattern.length()) {
+                i += escape.length();
+                regex.append(Pattern.quote(String.valueOf(pattern.charAt(i))));
+            } else if (c == '%') {
+                regex.append(".*");
+            } else if (c == '_') {
+                regex.append('.');
+            } else {
+                regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return Pattern.compile(regex.toString(), Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+    }
+
+    private static ResultSet empty(String[] labels) {
+        return RowResultSet.of(labels, Collections.<Object[]>emptyList());
+    }
+
+    private void readTables(Connection connection, String tableSchema, Set<String> kept, boolean h2)
+            throws SQLException {
+        try (PreparedStatement statement = prepare(connection, TABLES_QUERY, tableSchema);
+             ResultSet rs = statement.executeQuery()) {
+            Columns columns = new Columns(rs.getMetaData());
+            int name = columns.index("TABLE_NAME");
+            int type = columns.index("TABLE_TYPE");
+            int remarks = columns.index("TABLE_COMMENT", "REMARKS");
+            while (rs.next()) {
+                String tableName = rs.getString(name);
+                tableNames.add(tableName);
+                if (null != kept && !kept.contains(tableName)) {
+                    continue;
+                }
+                String tableType = rs.getString(type);
+                Object[] row = new Object[TABLE_LABELS.length];
+                row[0] = catalog;
+                row[1] = schema;
+                row[2] = tableName;
+                // the MySQL driver calls base tables TABLE, the H2 one keeps the information_schema name
+                row[3] = !h2 && "BASE TABLE".equalsIgnoreCase(tableType) ? "TABLE" : tableType;
+                row[4] = columns.getString(rs, remarks);
+                tables.put(tableName, new Table(row));
+            }
+        }
+    }
+
+    private void readColumns(Connection connection, String tableSchema) throws SQLException {
+        try (PreparedStatement statement = prepare(connection, COLUMNS_QUERY, tableSchema);
+             ResultSet rs = statement.executeQuery()) {
+            Columns columns = new Columns(rs.getMetaData());
+            int tableName = columns.index("TABLE_NAME");
+            int columnName = columns.index("COLUMN_NAME");
+            int position = columns.index("ORDINAL_POSITION");
+            int defaultValue = columns.index("COLUMN_DEFAULT");
+            int nullable = columns.index("IS_NULLABLE");
+            int dataType = columns.index("DATA_TYPE");
+            int declaredType = columns.index("DECLARED_DATA_TYPE");
+            int columnType = columns.index("COLUMN_TYPE");
+            int charLength = columns.index("CHARACTER_MAXIMUM_LENGTH");
+            int octetLength = columns.index("CHARACTER_OCTET_LENGTH");
+            int precision = columns.index("NUMERIC_PRECISION");
+            int scale = columns.index("NUMERIC_SCALE");
+            int datetimePrecision = columns.index("DATETIME_PRECISION");
+            int remarks = columns.index("COLUMN_COMMENT", "REMARKS");
+            int extra = columns.index("EXTRA");
+            int identity = columns.index("IS_IDENTITY");
+            int generated = columns.index("IS_GENERATED");
+            Table table = null;
+            while (rs.next()) {
+                String name = rs.getString(tableName);
+                if (null == table || !table.row[2].equals(name)) {
+                    table = tables.get(name);
+                }
+                if (null == table) {
+                    continue;
+                }
+                // H2 keeps the declared type, DECIMAL for NUMERIC, as its driver reports it
+                String typeName = columns.getString(rs, declaredType);
+                typeName = (null == typeName ? rs.getString(dataType) : typeName).toUpperCase(Locale.ENGLISH);
+                String fullType = columns.getString(rs, columnType);
+                fullType = null == fullType ? "" : fullType.toLowerCase(Locale.ENGLISH);
+                String extraInfo = columns.getString(rs, extra);
+                extraInfo = null == extraInfo ? "" : extraInfo.toLowerCase(Locale.ENGLISH);
+
+                Integer jdbcType = JDBC_TYPES.get(typeName);
+                Integer size = columnSize(typeName, columns.getNumber(rs, charLength),
+                        columns.getNumber(rs, precision), columns.getNumber(rs, datetimePrecision));
+                if (fullType.startsWith("tinyint(1)")) {
+                    // reported as BIT by the MySQL driver (tinyInt1isBit)
+                    typeName = "BIT";
+                    jdbcType = Types.BIT;
+                    size = 1;
+                } else if (fullType.contains("unsigned")) {
+                    typeName += " UNSIGNED";
+                }
+                boolean isNullable = "YES".equalsIgnoreCase(rs.getString(nullable));
+                Number digits = columns.getNumber(rs, scale);
+                if (null == digits) {
+                    digits = columns.getNumber(rs, datetimePrecision);
+                }
+                Number octets = columns.getNumber(rs, octetLength);
+
+                Object[] row = new Object[COLUMN_LABELS.length];
+                row[0] = catalog;
+                row[1] = schema;
+                row[2] = table.row[2];
+                row[3] = rs.getString(columnName);
+                row[4] = null == jdbcType ? Types.OTHER : jdbcType;
+                row[5] = typeName;
+                row[6] = size;
+                row[8] = null == digits ? null : digits.intValue();
+                row[9] = 10;
+                row[10] = isNullable ? DatabaseMetaData.columnNullable : DatabaseMetaData.columnNoNulls;
+                row[11] = columns.getString(rs, remarks);
+                row[12] = rs.getString(defaultValue);
+                row[15] = null == octets ? null : toInt(octets);
+                row[16] = rs.getInt(position);
+                row[17] = isNullable ? "YES" : "NO";
+                row[22] = extraInfo.contains("auto_increment")
+                        || "YES".equalsIgnoreCase(columns.getString(rs, identity)) ? "YES" : "NO";
+                String generation = columns.getString(rs, generated);
+                row[23] = extraInfo.contains("generated")
+                        || (null != generation && !"NEVER".equalsIgnoreCase(generation)) ? "YES" : "NO";
+                table.columns.add(row);
+            }
+        }
+    }
+
+    private void readPrimaryKeys(Connection connection, String tableSchema) throws SQLException {
+        try (PreparedStatement statement = prepare(connection, PRIMARY_KEYS_QUERY, tableSchema);
+             ResultSet rs = statement.executeQuery()) {
+            while (rs.next()) {
+                Table table = tables.get(rs.getString(1));
+                if (null == table) {
+                    continue;
+                }
+                Object[] row = new Object[PRIMARY_KEY_LABELS.length];
+                row[0] = catalog;
+                row[1] = schema;
+                row[2] = table.row[2];
+                row[3] = rs.getString(2);
+                row[4] = (short) rs.getInt(3);
+                row[5] = rs.getString(4);
+                table.primaryKeys.add(row);
+            }
+        }
+    }
+
+    private void readIndexes(Connection connection, String tableSchema, boolean h2) throws SQLException {
+        try (PreparedStatement statement = prepare(connection, h2 ? H2_INDEXES_QUERY : MYSQL_INDEXES_QUERY,
+                tableSchema);
+             ResultSet rs = statement.executeQuery()) {
+            while (rs.next()) {
+                Table table = tables.get(rs.getString(1));
+                if (null == table) {
+                    continue;
+                }
+                String order = rs.getString(6);
+                Object[] row = new Object[INDEX_LABELS.length];
+                row[0] = catalog;
+                row[1] = schema;
+                row[2] = table.row[2];
+                row[3] = h2 ? !rs.getBoolean(2) : rs.getInt(2) != 0;
+                row[5] = rs.getString(3);
+                row[6] = DatabaseMetaData.tableIndexOther;
+                row[7] = (short) rs.getInt(4);
+                row[8] = rs.getString(5);
+                row[9] = null == order ? null : order.substring(0, 1).toUpperCase(Locale.ENGLISH);
+                row[10] = h2 ? 0L : rs.getLong(7);
+                row[11] = 0L;
+                table.indexes.add(row);
+            }
+        }
+    }
+
+    private static PreparedStatement prepare(Connection connection, String query, String tableSchema)
+            throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(query);
+        statement.setString(1, tableSchema);
+        return statement;
+    }
+
+    /**
+     * @return the COLUMN_SIZE the MySQL driver reports for a column
+     */
+    private static Integer columnSize(String typeName, Number charLength, Number precision,
+                                      Number datetimePrecision) {
+        if (null != charLength) {
+            return toInt(charLength);
+        }
+        int fraction = null == datetimePrecision || datetimePrecision.intValue() <= 0 ?
+                0 : datetimePrecision.intValue() + 1;
+        switch (typeName) {
+            case "DATE":
+                return 10;
+            case "TIME":
+                return 8 + fraction;
+            case "DATETIME":
+            case "TIMESTAMP":
+                return 19 + fraction;
+            case "YEAR":
+                return 4;
+            default:
+                return null == precision ? null : toInt(precision);
+        }
+    }
+
+    private static int toInt(Number number) {
+        return (int) Math.min(number.longValue(), Integer.MAX_VALUE);
+    }
+
+    /**
+     * columns of an information_schema query found by label, as they differ between databases
+     */
+    private static class Columns {
+        private final Map<String, Integer> indexes = new HashMap<>();
+
+        private Columns(ResultSetMetaData metaData) throws SQLException {
+            for (int i = metaData.getColumnCount(); i > 0; i--) {
+                indexes.put(metaData.getColumnLabel(i).toUpperCase(Locale.ENGLISH), i);
+            }
+        }
+
+        /**
+         * @return index of the first label found, 0 if none is there
+         */
+        private int index(String... labels) {
+            for (String label : labels) {
+                Integer index = indexes.get(label);
+                if (null != index) {
+                    return index;
+                }
+            }
+            return 0;
+        }
+
+        private String getString(ResultSet rs, int index) throws SQLException {
+            return index == 0 ? null : rs.getString(index);
+        }
+
+        private Number getNumber(ResultSet rs, int index) throws SQLException {
+            if (index == 0) {
+                return null;
+            }
+            Object value = rs.getObject(index);
+            if (null == value || value instanceof Number) {
+                return (Number) value;
+            }
+            try {
+                return Long.valueOf(value.toString().trim());
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+
+    private static class Table {
+        private final Object[] row;
+        private final List<Object[]> columns = new ArrayList<>();
+        private final List<Object[]> primaryKeys = new ArrayList<>(1);
+        private final List<Object[]> indexes = new ArrayList<>();
+
+        private Table(Object[] row) {
+            this.row = row;
+        }
+    }
+}
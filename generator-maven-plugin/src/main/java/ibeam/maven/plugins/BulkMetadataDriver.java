@@ -0,0 +1,180 @@
+package ibeam.maven.plugins;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * JDBC driver wrapping the connections of the database driver, whose {@link DatabaseMetaData} answers getTables,
+ * getColumns, getPrimaryKeys and getIndexInfo from the {@link BulkMetadata} registered for the url,
+ * everything else goes to the database.
+ * <p>
+ * The url is {@code jdbc:ibeam-bulk:<id>:<database url>}, so a parser opening its connections through
+ * {@link DriverManager} reads the metadata from memory without any change.
+ */
+public final class BulkMetadataDriver implements Driver {
+    private static final String PREFIX = "jdbc:ibeam-bulk:";
+
+    private static final ConcurrentMap<String, BulkMetadata> METADATA = new ConcurrentHashMap<>();
+
+    private static final AtomicInteger IDS = new AtomicInteger();
+
+    /**
+     * the driver registered with {@link DriverManager}, while some metadata is registered
+     */
+    private static BulkMetadataDriver registered;
+
+    private BulkMetadataDriver() {
+        super();
+    }
+
+    /**
+     * @return url of the database whose metadata is read from the given metadata
+     */
+    static synchronized String register(BulkMetadata metadata, String jdbcUrl) {
+        if (null == registered) {
+            BulkMetadataDriver driver = new BulkMetadataDriver();
+            try {
+                DriverManager.registerDriver(driver);
+            } catch (SQLException e) {
+                throw new IllegalStateException("can't register the bulk metadata driver", e);
+            }
+            registered = driver;
+        }
+        String id = String.valueOf(IDS.incrementAndGet());
+        METADATA.put(id, metadata);
+        return PREFIX + id + ":" + jdbcUrl;
+    }
+
+    /**
+     * the driver is deregistered with the last metadata, so DriverManager doesn't keep the plugin class loader
+     */
+    static synchronized void unregister(BulkMetadata metadata) {
+        METADATA.values().remove(metadata);
+        if (METADATA.isEmpty() && null != registered) {
+            try {
+                DriverManager.deregisterDriver(registered);
+            } catch (SQLException e) {
+                // not registered any more
+            }
+            registered = null;
+        }
+    }
+
+    @Override
+    public Connection connect(String url, Properties info) throws SQLException {
+        if (!acceptsURL(url)) {
+            return null;
+        }
+        int separator = url.indexOf(':', PREFIX.length());
+        BulkMetadata metadata = separator < 0 ? null : METADATA.get(url.substring(PREFIX.length(), separator));
+        if (null == metadata) {
+            throw new SQLException("bulk metadata of " + url + " is closed");
+        }
+        return wrap(DriverManager.getConnection(url.substring(separator + 1), info), metadata);
+    }
+
+    @Override
+    public boolean acceptsURL(String url) {
+        return null != url && url.startsWith(PREFIX);
+    }
+
+    @Override
+    public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+        return new DriverPropertyInfo[0];
+    }
+
+    @Override
+    public int getMajorVersion() {
+        return 1;
+    }
+
+    @Override
+    public int getMinorVersion() {
+        return 0;
+    }
+
+    @Override
+    public boolean jdbcCompliant() {
+        return false;
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    private static Connection wrap(final Connection connection, final BulkMetadata metadata) {
+        return (Connection) Proxy.newProxyInstance(BulkMetadataDriver.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new InvocationHandler() {
+                    private DatabaseMetaData metaData;
+
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                        if ("getMetaData".equals(method.getName())) {
+                            if (null == metaData) {
+                                metaData = wrap(connection.getMetaData(), (Connection) proxy, metadata);
+                            }
+                            return metaData;
+                        }
+                        return delegate(connection, method, args);
+                    }
+                });
+    }
+
+    private static DatabaseMetaData wrap(final DatabaseMetaData metaData, final Connection connection,
+                                         final BulkMetadata metadata) {
+        return (DatabaseMetaData) Proxy.newProxyInstance(BulkMetadataDriver.class.getClassLoader(),
+                new Class<?>[]{DatabaseMetaData.class}, new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                        ResultSet rows = null;
+                        switch (method.getName()) {
+                            case "getConnection":
+                                return connection;
+                            case "getTables":
+                                rows = metadata.covers((String) args[0], (String) args[1]) ?
+                                        metadata.getTables((String) args[2], (String[]) args[3]) : null;
+                                break;
+                            case "getColumns":
+                                rows = metadata.covers((String) args[0], (String) args[1]) ?
+                                        metadata.getColumns((String) args[2], (String) args[3]) : null;
+                                break;
+                            case "getPrimaryKeys":
+                                rows = metadata.covers((String) args[0], (String) args[1]) ?
+                                        metadata.getPrimaryKeys((String) args[2]) : null;
+                                break;
+                            case "getIndexInfo":
+                                rows = metadata.covers((String) args[0], (String) args[1]) ?
+                                        metadata.getIndexInfo((String) args[2], (Boolean) args[3]) : null;
+                                break;
+                            default:
+                                break;
+                        }
+                        return null != rows ? rows : delegate(metaData, method, args);
+                    }
+                });
+    }
+
+    private static Object delegate(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,515 @@
+package ibeam.maven.plugins;
+
+/*
+ * Copyright 2013 The Apache Software Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0,
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+
+/**
+ * Clean the local maven repository : delete the snapshot versions, and optionally the release versions,
+ * not modified since a given number of days. The newest version of each artifact is kept unless
+ * deleteCurrentSnapshot / deleteCurrentRelease is set.
+ * The version folders are selected on the {@link RepositoryIndex} of the repository, updated in one parallel walk,
+ * then deleted concurrently.
+ *
+ * @author sgu, pef, lab...
+ * @version $Id$
+ */
+@Mojo(name = Enumeres.MVN_GOAL.CLEAN, requiresProject = false, threadSafe = true)
+public class CleanLocalRepositoryMojo extends AbstractLocalRepositoryMojo {
+
+	/**
+	 * delete the snapshot versions
+	 *
+	 * @parameter property="deleteSnapshot" default-value="true"
+	 * @since 1.1
+	 */
+	@Parameter(property = Enumeres.MOJO_OPTION.DELETE_SNAPSHOT, defaultValue = "true")
+	private boolean deleteSnapshot;
+
+	/**
+	 * number of days a snapshot version is kept after its last modification
+	 *
+	 * @parameter property="snapshotRetentionDelay" default-value="0"
+	 * @since 1.1
+	 */
+	@Parameter(property = Enumeres.MOJO_OPTION.SNAPSHOT_RETENTION_DELAY, defaultValue = "0")
+	private int snapshotRetentionDelay;
+
+	/**
+	 * number of timestamped builds kept per snapshot version, the older builds are deleted instead of the whole
+	 * snapshot version, if they are older than snapshotRetentionDelay days; 0 to delete whole snapshot versions
+	 *
+	 * @parameter property="snapshotVersionsRetention" default-value="0"
+	 * @since 1.1
+	 */
+	@Parameter(property = Enumeres.MOJO_OPTION.SNAPSHOT_VERSIONS_RETENTION, defaultValue = "0")
+	private int snapshotVersionsRetention;
+
+	/**
+	 * also delete the newest snapshot version of each artifact, kept by default
+	 *
+	 * @parameter property="deleteCurrentSnapshot" default-value="false"
+	 * @since 1.1
+	 */
+	@Parameter(property = Enumeres.MOJO_OPTION.DELETE_CURRENT_SNAPSHOT, defaultValue = "false")
+	private boolean deleteCurrentSnapshot;
+
+	/**
+	 * delete the release versions
+	 *
+	 * @parameter property="deleteRelease" default-value="false"
+	 * @since 1.1
+	 */
+	@Parameter(property = Enumeres.MOJO_OPTION.DELETE_RELEASE, defaultValue = "false")
+	private boolean deleteRelease;
+
+	/**
+	 * number of days a release version is kept after its last modification
+	 *
+	 * @parameter property="releaseRetentionDelay" default-value="0"
+	 * @since 1.1
+	 */
+	@Parameter(property = Enumeres.MOJO_OPTION.RELEASE_RETENTION_DELAY, defaultValue = "0")
+	private int releaseRetentionDelay;
+
+	/**
+	 * also delete the newest release version of each artifact, kept by default
+	 *
+	 * @parameter property="deleteCurrentRelease" default-value="false"
+	 * @since 1.1
+	 */
+	@Parameter(property = Enumeres.MOJO_OPTION.DELETE_CURRENT_RELEASE, defaultValue = "false")
+	private boolean deleteCurrentRelease;
+
+	/**
+	 * only delete the versions whose path in the repository matches this expression, case insensitive,
+	 * such as com/mycompany/.*
+	 *
+	 * @parameter property="deleteFromRegularExpression"
+	 * @since 1.1
+	 */
+	@Parameter(property = Enumeres.MOJO_OPTION.DELETE_FROM_REGULAR_EXPRESSION)
+	private String deleteFromRegularExpression;
+
+	/**
+	 * delete the artifact and groupId folders left empty by the deletion
+	 *
+	 * @parameter property="deleteEmptyFolders" default-value="true"
+	 * @since 1.1
+	 */
+	@Parameter(property = Enumeres.MOJO_OPTION.DELETE_EMPTY_FOLDERS, defaultValue = "true")
+	private boolean deleteEmptyFolders;
+
+	/**
+	 * only delete the files when the JVM exits, for the files locked by the running build
+	 *
+	 * @parameter property="executeDeleteOnExit" default-value="false"
+	 * @since 1.1
+	 */
+	@Parameter(property = Enumeres.MOJO_OPTION.EXECUTE_DELETE_ON_EXIT, defaultValue = "false")
+	private boolean executeDeleteOnExit;
+
+	/**
+	 * only list the versions and the bytes that would be reclaimed, as the list goal does
+	 *
+	 * @parameter property="dryRun" default-value="false"
+	 * @since 1.1
+	 */
+	@Parameter(property = "dryRun", defaultValue = "false")
+	private boolean dryRun;
+
+	/**
+	 * number of threads deleting the files, bounds the deletion throughput on a shared file system,
+	 * default is the number of available processors
+	 *
+	 * @parameter property="deletionThreads" default-value="0"
+	 * @since 1.1
+	 */
+	@Parameter(property = "deletionThreads", defaultValue = "0")
+	private int deletionThreads;
+
+	private Pattern pattern;
+
+
+	/**
+	 * Implementation of the execute() method for the clean and list goals.
+	 *
+	 * @throws MojoExecutionException
+	 * @throws MojoFailureException
+	 * @see org.apache.maven.plugin.Mojo#execute()
+	 */
+	@Override
+	public void execute() throws MojoExecutionException, MojoFailureException {
+
+		final File localRepositoryFolder = initializeAndCheckMojoContext();
+
+		final boolean deleteMode = isDeleteModeActivated();
+
+		getLog().info(Enumeres.LOG.STARTING_PLUGIN + (deleteMode ? Enumeres.MVN_GOAL.CLEAN : Enumeres.MVN_GOAL.LIST)
+				+ " on " + localRepositoryFolder);
+
+		final long start = System.currentTimeMillis();
+
+		final ExecutorService executor = newExecutor("ibeam-clean");
+
+		try {
+			final RepositoryIndex index = updateIndex(localRepositoryFolder, executor);
+
+			final List<RepositoryIndex.Folder> versionFolders = selectVersionFolders(index);
+
+			final AtomicLong bytes = new AtomicLong();
+
+			final AtomicInteger failures = new AtomicInteger();
+
+			cleanVersionFolders(index, versionFolders, deleteMode, bytes, failures);
+
+			if (deleteMode && deleteEmptyFolders && !executeDeleteOnExit) {
+				deleteEmptyFolders(localRepositoryFolder, index, versionFolders);
+			}
+
+			if (snapshotVersionsRetention > 0) {
+				pruneSnapshotBuilds(index, deleteMode, executor, bytes);
+			}
+
+			writeIndex(index);
+
+			final int count = versionFolders.size() - failures.get();
+
+			getLog().info(count + " artifact versions " + (deleteMode ? "deleted, " : "could be deleted, ")
+					+ FileUtils.byteCountToDisplaySize(bytes.get()) + (deleteMode ? " reclaimed" : " could be reclaimed")
+					+ " in " + (System.currentTimeMillis() - start) + " ms");
+
+			if (failures.get() > 0) {
+				getLog().warn(failures.get() + " artifact versions could not be deleted");
+			}
+		}
+		catch (IOException e) {
+			throw new MojoExecutionException("failed to index the local repository " + localRepositoryFolder, e);
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+
+	/**
+	 * Select the version folders of the index matching the options of the goal.
+	 * The newest snapshot and the newest release version of each artifact are never selected, unless
+	 * deleteCurrentSnapshot / deleteCurrentRelease is set.
+	 *
+	 * @param index
+	 * @return the version folders to delete, the most recent first
+	 */
+	List<RepositoryIndex.Folder> selectVersionFolders(final RepositoryIndex index) {
+
+		final List<RepositoryIndex.Folder> result = new ArrayList<RepositoryIndex.Folder>();
+
+		final Map<String, RepositoryIndex.Folder> currentVersions = selectCurrentVersions(index);
+
+		final Date now = new Date();
+
+		for (final RepositoryIndex.Folder folder : index.getVersionFolders()) {
+
+			final boolean selected = folder.isSnapshot()
+					? deleteSnapshot && snapshotVersionsRetention == 0 && isExpired(folder, snapshotRetentionDelay, now)
+					&& (deleteCurrentSnapshot || currentVersions.get(artifactKey(folder)) != folder)
+					: deleteRelease && isExpired(folder, releaseRetentionDelay, now)
+					&& (deleteCurrentRelease || currentVersions.get(artifactKey(folder)) != folder);
+
+			if (selected && (pattern == null || Tools.matchPatternIgnoreCase(pattern, folder.getPath()))) {
+				result.add(folder);
+			}
+		}
+
+		return result;
+	}
+
+
+	/**
+	 * @return the newest snapshot version and the newest release version of each artifact, on the date of their
+	 * newest file, by {@link #artifactKey(RepositoryIndex.Folder)}
+	 */
+	private static Map<String, RepositoryIndex.Folder> selectCurrentVersions(final RepositoryIndex index) {
+
+		final Map<String, RepositoryIndex.Folder> result = new HashMap<String, RepositoryIndex.Folder>();
+
+		for (final RepositoryIndex.Folder folder : index.getVersionFolders()) {
+
+			final String key = artifactKey(folder);
+
+			final RepositoryIndex.Folder current = result.get(key);
+
+			if (current == null || RepositoryIndex.NEWEST_FIRST.compare(folder, current) < 0) {
+				result.put(key, folder);
+			}
+		}
+
+		return result;
+	}
+
+
+	/**
+	 * @return the path of the artifact folder of the given version folder, suffixed by its kind of version
+	 */
+	private static String artifactKey(final RepositoryIndex.Folder folder) {
+
+		final String path = folder.getPath();
+
+		final int separator = path.lastIndexOf('/');
+
+		return (separator < 0 ? "" : path.substring(0, separator)) + (folder.isSnapshot() ? "#snapshot" : "#release");
+	}
+
+
+	/**
+	 * Keep the newest builds of each snapshot version matching the options and delete, or only list, the others,
+	 * one task per snapshot version.
+	 *
+	 * @param index
+	 * @param deleteMode
+	 * @param executor
+	 * @param bytes      bytes reclaimed, or that would be reclaimed
+	 * @throws MojoExecutionException
+	 */
+	private void pruneSnapshotBuilds(final RepositoryIndex index, final boolean deleteMode,
+			final ExecutorService executor, final AtomicLong bytes) throws MojoExecutionException {
+
+		final SnapshotRetention retention = new SnapshotRetention(snapshotVersionsRetention, snapshotRetentionDelay);
+
+		final List<Future<SnapshotRetention.Result>> futures = new ArrayList<Future<SnapshotRetention.Result>>();
+
+		for (final RepositoryIndex.Folder folder : index.getVersionFolders()) {
+
+			if (!deleteSnapshot || !folder.isSnapshot()
+					|| (pattern != null && !Tools.matchPatternIgnoreCase(pattern, folder.getPath()))) {
+				continue;
+			}
+
+			futures.add(executor.submit(new Callable<SnapshotRetention.Result>() {
+				@Override
+				public SnapshotRetention.Result call() {
+					return retention.apply(index.getFile(folder), deleteMode, executeDeleteOnExit, getLog());
+				}
+			}));
+		}
+
+		int builds = 0;
+
+		long files = 0L;
+
+		long failures = 0L;
+
+		try {
+			for (final Future<SnapshotRetention.Result> future : futures) {
+
+				final SnapshotRetention.Result result = future.get();
+
+				builds += result.getBuilds();
+				files += result.getFiles();
+				failures += result.getFailures();
+				bytes.addAndGet(result.getBytes());
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new MojoExecutionException("interrupted while cleaning the snapshot builds", e);
+		}
+		catch (ExecutionException e) {
+			throw new MojoExecutionException("failed to clean the snapshot builds", e.getCause());
+		}
+
+		getLog().info(builds + " snapshot builds of " + futures.size() + " snapshot versions "
+				+ (deleteMode ? "deleted, " : "could be deleted, ") + files + " files, " + failures + " failures");
+	}
+
+
+	/**
+	 * @return true if the newest file of the given version folder is older than the given number of days
+	 */
+	private static boolean isExpired(final RepositoryIndex.Folder folder, final int retentionDelay, final Date now) {
+
+		return retentionDelay == 0 || Tools.compareDaysBetweenDates(new Date(folder.getNewest()), now) >= retentionDelay;
+	}
+
+
+	/**
+	 * Delete, or only list, the given version folders.
+	 * The deletion runs leaves first on the fork-join pool of a {@link FolderDeleter}, the bytes listed or deleted
+	 * on exit are read from the index.
+	 *
+	 * @param index
+	 * @param versionFolders
+	 * @param deleteMode
+	 * @param bytes         bytes reclaimed, or that would be reclaimed
+	 * @param failures      version folders still there after their deletion
+	 */
+	private void cleanVersionFolders(final RepositoryIndex index, final List<RepositoryIndex.Folder> versionFolders,
+			final boolean deleteMode, final AtomicLong bytes, final AtomicInteger failures) {
+
+		final List<File> folders = new ArrayList<File>(versionFolders.size());
+
+		for (final RepositoryIndex.Folder versionFolder : versionFolders) {
+
+			final File folder = index.getFile(versionFolder);
+
+			getLog().info((deleteMode ? Enumeres.LOG.DELETE : Enumeres.LOG.LIST) + folder);
+
+			folders.add(folder);
+		}
+
+		if (!deleteMode || executeDeleteOnExit) {
+
+			for (int i = 0; i < versionFolders.size(); i++) {
+
+				bytes.addAndGet(versionFolders.get(i).getSize());
+
+				if (deleteMode) {
+					Tools.deleteFolderQuietly(folders.get(i), true, getLog());
+					index.remove(versionFolders.get(i));
+				}
+			}
+			return;
+		}
+
+		if (folders.isEmpty()) {
+			return;
+		}
+
+		final FolderDeleter deleter = new FolderDeleter(deletionThreads);
+
+		try {
+			final FolderDeleter.Report report = deleter.delete(folders, getLog());
+
+			getLog().info(report.getFiles() + " files deleted, " + report.getFailures() + " failures");
+
+			bytes.addAndGet(report.getBytes());
+		}
+		finally {
+			deleter.shutdown();
+		}
+
+		for (int i = 0; i < versionFolders.size(); i++) {
+
+			if (folders.get(i).exists()) {
+				failures.incrementAndGet();
+			}
+			else {
+				index.remove(versionFolders.get(i));
+			}
+		}
+	}
+
+
+	/**
+	 * Delete the artifact and groupId folders left empty, up to the local repository folder.
+	 *
+	 * @param localRepositoryFolder
+	 * @param index
+	 * @param versionFolders
+	 */
+	private void deleteEmptyFolders(final File localRepositoryFolder, final RepositoryIndex index,
+			final List<RepositoryIndex.Folder> versionFolders) {
+
+		for (final RepositoryIndex.Folder versionFolder : versionFolders) {
+
+			File folder = index.getFile(versionFolder).getParentFile();
+
+			while (folder != null && !folder.equals(localRepositoryFolder) && Tools.isNullOrEmpty(folder.list())) {
+
+				getLog().info(Enumeres.LOG.DELETE_EMPTY + folder);
+
+				Tools.deleteQuietly(folder, false, getLog());
+
+				folder = folder.getParentFile();
+			}
+		}
+	}
+
+
+	/**
+	 * Initialize and check the execution context of the Mojo :
+	 * - read access to the local repository folder
+	 * - unexpected parameter
+	 * - pattern syntax exception
+	 *
+	 * @return a file representing the current maven local repository
+	 * @throws MojoExecutionException
+	 * @throws MojoFailureException
+	 */
+	@Override
+	protected File initializeAndCheckMojoContext() throws MojoExecutionException, MojoFailureException {
+
+		final File localRepositoryFolder = super.initializeAndCheckMojoContext();
+
+		if (snapshotRetentionDelay < 0) {
+			throw new MojoFailureException(Enumeres.EXCEPTION.UNEXPECTED_PARAMETER
+					+ Enumeres.MOJO_OPTION.SNAPSHOT_RETENTION_DELAY + Enumeres.EXCEPTION.NEGATIVE_NUMBER + snapshotRetentionDelay);
+		}
+
+		if (snapshotVersionsRetention < 0) {
+			throw new MojoFailureException(Enumeres.EXCEPTION.UNEXPECTED_PARAMETER
+					+ Enumeres.MOJO_OPTION.SNAPSHOT_VERSIONS_RETENTION + Enumeres.EXCEPTION.NEGATIVE_NUMBER + snapshotVersionsRetention);
+		}
+
+		if (releaseRetentionDelay < 0) {
+			throw new MojoFailureException(Enumeres.EXCEPTION.UNEXPECTED_PARAMETER
+					+ Enumeres.MOJO_OPTION.RELEASE_RETENTION_DELAY + Enumeres.EXCEPTION.NEGATIVE_NUMBER + releaseRetentionDelay);
+		}
+
+		if (!Tools.isNullOrEmpty(deleteFromRegularExpression)) {
+
+			if (!Tools.testPattern(deleteFromRegularExpression)) {
+				throw new MojoFailureException(Enumeres.EXCEPTION.UNEXPECTED_PARAMETER
+						+ Enumeres.MOJO_OPTION.DELETE_FROM_REGULAR_EXPRESSION + Enumeres.EXCEPTION.PATTERN_SYNTAX_EXCEPTION
+						+ deleteFromRegularExpression);
+			}
+			pattern = Pattern.compile(deleteFromRegularExpression, Pattern.CASE_INSENSITIVE);
+		}
+
+		return localRepositoryFolder;
+	}
+
+
+	/**
+	 * This method implementation define the deletion mode associated with the current goal.
+	 *
+	 * @return true in the current "clean" goal context, unless dryRun is set
+	 */
+	protected boolean isDeleteModeActivated() {
+		return !dryRun;
+	}
+
+}
@@ -0,0 +1,187 @@
+package ibeam.maven.plugins;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseProblemException;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.PackageDeclaration;
+import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.maven.plugin.logging.Log;
+
+import java.io.File;
+import java.lang.instrument.IllegalClassFormatException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Find the source file of a rendered code from its package and class name.
+ * <p>
+ * In scan mode the package and class declared by the code are read with a scan of the header,
+ * and checked against the names expected by the generator. The code is only fully parsed
+ * when they don't match, such as a custom template declaring another package.
+ * In parse mode every code is fully parsed.
+ */
+public class CodeFileResolver {
+    public static final String SCAN = "scan";
+
+    public static final String PARSE = "parse";
+
+    private static final Set<String> TYPE_KEYWORDS = new HashSet<>(Arrays.asList("class", "interface", "enum"));
+
+    private final File sourceDir;
+    private final boolean scan;
+    private final Log log;
+
+    public CodeFileResolver(File sourceDir, String mode, Log log) {
+        this.sourceDir = sourceDir;
+        this.scan = !PARSE.equalsIgnoreCase(mode);
+        this.log = log;
+    }
+
+    /**
+     * @param expectedPackage package the code should be generated in, null if unknown
+     * @param expectedClass   class name the code should declare, null if unknown
+     * @return the source file of the code under the source folder
+     */
+    public File resolve(String code, String expectedPackage, String expectedClass)
+            throws IllegalClassFormatException {
+        if (scan) {
+            String[] header = scanHeader(code);
+            if (null != header
+                    && (null == expectedPackage || expectedPackage.equals(header[0]))
+                    && (null == expectedClass || expectedClass.equals(header[1]))) {
+                return toFile(header[0], header[1]);
+            }
+            if (log.isDebugEnabled()) {
+                log.debug("code declares " + (null == header ? "no type" : header[0] + "." + header[1])
+                        + " instead of " + expectedPackage + "." + expectedClass + ", parse it to validate");
+            }
+        }
+        return parse(code);
+    }
+
+    private File parse(String code) throws IllegalClassFormatException {
+        try {
+            CompilationUnit cu = JavaParser.parse(code);
+            Optional<PackageDeclaration> packageDeclaration = cu.getPackageDeclaration();
+            if (!packageDeclaration.isPresent()) {
+                throw new IllegalClassFormatException("no package set in the code for entity: \n" + code);
+            }
+            String packageName = packageDeclaration.get().getNameAsString();
+            ClassOrInterfaceDeclaration classDeclaration = (ClassOrInterfaceDeclaration) cu.getTypes().get(0);
+            return toFile(packageName, classDeclaration.getNameAsString());
+        } catch (ParseProblemException e) {
+            log.error(e);
+            throw new IllegalClassFormatException("no package set in the code for entity: \n" + code);
+        }
+    }
+
+    private File toFile(String packageName, String className) {
+        File parentFile = FileUtils.getFile(sourceDir, StringUtils.split(packageName, '.'));
+        return FileUtils.getFile(parentFile, className + ".java");
+    }
+
+    /**
+     * Read the package and the first type declared by a java source, skipping comments, literals and annotations.
+     *
+     * @return package and class name, null if the code has no package or no type
+     */
+    public static String[] scanHeader(String code) {
+        String packageName = null;
+        int length = code.length();
+        int i = 0;
+        char previous = 0;
+        while (i < length) {
+            char c = code.charAt(i);
+            if (c == '/' && i + 1 < length && (code.charAt(i + 1) == '/' || code.charAt(i + 1) == '*')) {
+                i = skipComment(code, i);
+                if (i < 0) {
+                    return null;
+                }
+            } else if (c == '"' || c == '\'') {
+                i = skipLiteral(code, i);
+                previous = c;
+            } else if (Character.isJavaIdentifierStart(c)) {
+                int start = i;
+                while (i < length && Character.isJavaIdentifierPart(code.charAt(i))) {
+                    i++;
+                }
+                String word = code.substring(start, i);
+                if (null == packageName && previous == 0 && "package".equals(word)) {
+                    int end = code.indexOf(';', i);
+                    if (end < 0) {
+                        return null;
+                    }
+                    packageName = StringUtils.deleteWhitespace(code.substring(i, end));
+                    i = end;
+                    previous = 0;
+                    continue;
+                }
+                // skip Foo.class in annotations, but keep @interface declarations
+                if (TYPE_KEYWORDS.contains(word) && previous != '.'
+                        && (previous != '@' || "interface".equals(word))) {
+                    String className = nextIdentifier(code, i);
+                    return null == packageName || null == className ? null : new String[]{packageName, className};
+                }
+                previous = 'a';
+            } else {
+                if (!Character.isWhitespace(c)) {
+                    previous = c;
+                }
+                i++;
+            }
+        }
+        return null;
+    }
+
+    private static int skipComment(String code, int i) {
+        if (code.charAt(i + 1) == '/') {
+            int end = code.indexOf('\n', i);
+            return end < 0 ? code.length() : end + 1;
+        }
+        int end = code.indexOf("*/", i + 2);
+        return end < 0 ? -1 : end + 2;
+    }
+
+    private static int skipLiteral(String code, int i) {
+        char quote = code.charAt(i);
+        int length = code.length();
+        i++;
+        while (i < length) {
+            char c = code.charAt(i);
+            if (c == '\\') {
+                i += 2;
+            } else if (c == quote) {
+                return i + 1;
+            } else {
+                i++;
+            }
+        }
+        return length;
+    }
+
+    private static String nextIdentifier(String code, int i) {
+        int length = code.length();
+        while (i < length) {
+            char c = code.charAt(i);
+            if (c == '/' && i + 1 < length && (code.charAt(i + 1) == '/' || code.charAt(i + 1) == '*')) {
+                i = skipComment(code, i);
+                if (i < 0) {
+                    return null;
+                }
+            } else if (Character.isWhitespace(c)) {
+                i++;
+            } else {
+                break;
+            }
+        }
+        int start = i;
+        while (i < length && Character.isJavaIdentifierPart(code.charAt(i))) {
+            i++;
+        }
+        return i > start && Character.isJavaIdentifierStart(code.charAt(start)) ? code.substring(start, i) : null;
+    }
+}
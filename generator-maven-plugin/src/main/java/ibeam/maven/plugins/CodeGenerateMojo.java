@@ -1,26 +1,15 @@
 package ibeam.maven.plugins;
 
-import com.github.javaparser.JavaParser;
-import com.github.javaparser.ParseProblemException;
-import com.github.javaparser.ast.CompilationUnit;
-import com.github.javaparser.ast.PackageDeclaration;
-import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
-import freemarker.template.TemplateException;
 import ibeam.BeamUtils;
 import ibeam.Converter;
-import ibeam.annotation.entity.ShardByMod;
 import ibeam.code.CodeMaker;
 import ibeam.code.CodeUtils;
-import ibeam.code.ReusableStringWriter;
 import ibeam.code.template.FreeMaker;
-import ibeam.code.vo.EntityField;
 import ibeam.code.vo.EntityTable;
-import ibeam.code.vo.GenerateInfo;
 import ibeam.jdbc.EntityParser;
 import org.apache.commons.io.FileUtils;
-import org.apache.commons.lang3.StringUtils;
-import org.apache.commons.lang3.time.DateFormatUtils;
-import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.commons.io.IOUtils;
+import org.apache.maven.execution.MavenSession;
 import org.apache.maven.model.Dependency;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
@@ -35,8 +24,28 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.lang.instrument.IllegalClassFormatException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
 
 /**
@@ -47,19 +56,12 @@ import java.util.regex.Pattern;
  */
 @Mojo(name = "generate", defaultPhase = LifecyclePhase.GENERATE_SOURCES,
         requiresDependencyResolution = ResolutionScope.COMPILE,
-        threadSafe = false)
+        threadSafe = true)
 public class CodeGenerateMojo extends AbstractMojo {
     /**
-     * Root location of the local maven repository.
-     *
-     * @parameter property="localRepository"
-     * @readonly
-     * @required
+     * folder of the default templates in the classpath
      */
-    @Parameter(defaultValue = "${localRepository}",
-            readonly = true, required = true)
-    private ArtifactRepository localMavenRepository;
-
+    public static final String TEMPLATE_CLASSPATH = "/code/ftl";
 
     /**
      * Current project definition
@@ -71,6 +73,16 @@ public class CodeGenerateMojo extends AbstractMojo {
             readonly = true, required = true)
     private MavenProject project;
 
+    /**
+     * Current build session
+     *
+     * @parameter property="session"
+     * @readonly
+     */
+    @Parameter(defaultValue = "${session}",
+            readonly = true, required = true)
+    private MavenSession session;
+
     /**
      * set if generator should overwrite the exist code or update file
      *
@@ -171,6 +183,213 @@ public class CodeGenerateMojo extends AbstractMojo {
     @Parameter(property = "skip", defaultValue = "false")
     private boolean skip;
 
+    /**
+     * number of threads rendering and writing tables, default is the number of available processors,
+     * set to 1 to generate on the build thread only
+     *
+     * @parameter property="threads" default-value="0"
+     * @since 1.1
+     */
+    @Parameter(property = "threads", defaultValue = "0")
+    private int threads;
+
+    /**
+     * number of datasources introspected and generated at the same time,
+     * which is also the max number of jdbc connections opened at once, default is one by one
+     *
+     * @parameter property="datasourceThreads" default-value="1"
+     * @since 1.1
+     */
+    @Parameter(property = "datasourceThreads", defaultValue = "1")
+    private int datasourceThreads;
+
+    /**
+     * skip the tables whose metadata, templates and generator parameters did not change since the previous run,
+     * fingerprints are kept under target/ibeam-generator/
+     *
+     * @parameter property="incremental" default-value="true"
+     * @since 1.1
+     */
+    @Parameter(property = "incremental", defaultValue = "true")
+    private boolean incremental;
+
+    /**
+     * folder of the schema snapshots taken by the snapshot goal,
+     * generate reads the tables of a datasource from its snapshot when present instead of the database
+     *
+     * @parameter property="snapshotDirectory" default-value="${project.build.directory}/ibeam-generator"
+     * @since 1.1
+     */
+    @Parameter(property = "snapshotDirectory", defaultValue = "${project.build.directory}/ibeam-generator")
+    private File snapshotDirectory;
+
+    /**
+     * how the source file of a rendered code is found: "scan" reads the package and class name with a quick scan
+     * checked against the generated names, and only parses the code when they don't match; "parse" always parses it
+     *
+     * @parameter property="pathResolution" default-value="scan"
+     * @since 1.1
+     */
+    @Parameter(property = "pathResolution", defaultValue = CodeFileResolver.SCAN)
+    private String pathResolution;
+
+    private CodeWriter codeWriter;
+
+    /**
+     * apply ignoreTables, tables and tableIgnoreRegex to the table list of the database before introspection,
+     * so only the selected tables are handed to the parser
+     *
+     * @parameter property="pushDownTableFilter" default-value="true"
+     * @since 1.1
+     */
+    @Parameter(property = "pushDownTableFilter", defaultValue = "true")
+    private boolean pushDownTableFilter;
+
+    /**
+     * group the shards of a table by tableIgnoreRegex from the table list and introspect only one representative
+     * table per group, the shard count being the size of the group
+     *
+     * @parameter property="shardAware" default-value="false"
+     * @since 1.1
+     */
+    @Parameter(property = "shardAware", defaultValue = "false")
+    private boolean shardAware;
+
+    /**
+     * in shardAware mode, number of shards per group whose columns are compared with the representative table,
+     * a warning is logged for every shard which differs, 0 to skip the check
+     *
+     * @parameter property="shardCheckSamples" default-value="0"
+     * @since 1.1
+     */
+    @Parameter(property = "shardCheckSamples", defaultValue = "0")
+    private int shardCheckSamples;
+
+    /**
+     * introspect the tables by batches on a separate thread while the tables of the previous batches are rendered,
+     * so the metadata of at most a couple of batches is held in memory, needs pushDownTableFilter or shardAware
+     *
+     * @parameter property="streamTables" default-value="false"
+     * @since 1.1
+     */
+    @Parameter(property = "streamTables", defaultValue = "false")
+    private boolean streamTables;
+
+    /**
+     * in streamTables mode, number of tables (with their shards) introspected by one parser call,
+     * also the capacity of the queue between introspection and rendering.
+     * Every parser call opens its own connection and lists the tables again, unless introspection is bulk,
+     * so a small batch size costs one connection and one table listing per batch
+     *
+     * @parameter property="streamBatchSize" default-value="100"
+     * @since 1.1
+     */
+    @Parameter(property = "streamBatchSize", defaultValue = "100")
+    private int streamBatchSize;
+
+    /**
+     * with overWriteClass, change only the added, removed or retyped fields of an existing entity
+     * and leave entities whose fields already match untouched, instead of merging the whole class
+     *
+     * @parameter property="incrementalMerge" default-value="true"
+     * @since 1.1
+     */
+    @Parameter(property = "incrementalMerge", defaultValue = "true")
+    private boolean incrementalMerge;
+
+    /**
+     * introspect a schema once per build and share it with the other modules reading the same datasource
+     * of the same database with the same table settings, also under parallel builds; not used with streamTables.
+     * A schema whose tables can't be serialized is introspected by each module
+     *
+     * @parameter property="shareSchema" default-value="true"
+     * @since 1.1
+     */
+    @Parameter(property = "shareSchema", defaultValue = "true")
+    private boolean shareSchema;
+
+    /**
+     * how the metadata of the tables is read: "metadata" asks the driver for the columns, keys and indexes
+     * of each table; "bulk" reads them for the whole schema with a few information_schema queries and answers
+     * the metadata calls of the parser from memory, for MySQL compatible databases
+     *
+     * @parameter property="introspection" default-value="metadata"
+     * @since 1.1
+     */
+    @Parameter(property = "introspection", defaultValue = BulkMetadata.METADATA)
+    private String introspection;
+
+    /**
+     * in the watch goal, milliseconds to wait for more changes before generating again,
+     * as editors often save a file in several writes
+     *
+     * @parameter property="watchQuietPeriod" default-value="200"
+     * @since 1.1
+     */
+    @Parameter(property = "watchQuietPeriod", defaultValue = "200")
+    private int watchQuietPeriod;
+
+    /**
+     * generate the same sources from the same inputs: YEAR and TIME come from outputTimestamp in UTC,
+     * USER from author, tables are rendered in name order, and the inputs and outputs are listed
+     * in target/ibeam-generator/generation.properties for build cache tools
+     *
+     * @parameter property="reproducible" default-value="false"
+     * @since 1.1
+     */
+    @Parameter(property = "reproducible", defaultValue = "false")
+    private boolean reproducible;
+
+    /**
+     * time stamped into the generated code in reproducible mode, an ISO 8601 date time
+     * such as 2024-01-01T00:00:00Z or seconds since the epoch
+     *
+     * @parameter property="outputTimestamp" default-value="${project.build.outputTimestamp}"
+     * @since 1.1
+     */
+    @Parameter(property = "outputTimestamp", defaultValue = "${project.build.outputTimestamp}")
+    private String outputTimestamp;
+
+    /**
+     * user stamped into the generated code, the current user by default, "ibeam" in reproducible mode
+     *
+     * @parameter property="author"
+     * @since 1.1
+     */
+    @Parameter(property = "author")
+    private String author;
+
+    private FingerprintCache fingerprintCache;
+
+    private EntityMerger entityMerger;
+
+    private Map<String, String> templateDigests;
+
+    private CodeMaker codeMaker;
+
+    private GeneratorMetrics metrics;
+
+    private BuildStamp buildStamp;
+
+    private GenerationManifest manifest;
+
+    /**
+     * schemas introspected by the watch goal, by datasource,
+     * kept in the snapshot format as the renderer decorates the tables
+     */
+    private Map<String, byte[]> watchedSchemas;
+
+    /**
+     * introspect the tables from the database, neither from the snapshot files nor from the schemas shared
+     * by the build, set by the watch goal when application.properties changes
+     */
+    private volatile boolean refreshSchemas;
+
+    /**
+     * existing files left as they are although their template or table changed, reported by the watch goal
+     */
+    private final AtomicInteger ignoredFiles = new AtomicInteger();
+
 
     private String getJdbcParam(Properties properties, String db, String env, String name) {
         String key = env + ".jdbc.";
@@ -206,13 +425,13 @@ public class CodeGenerateMojo extends AbstractMojo {
     }
 
     /**
-     * Main entry point for sub classes of this abstract implementation.
-     * Execute clean local repository sub routine according to the given mojo goal and options.
+     * Main entry point for sub classes of this implementation.
+     * Execute the code generation sub routine according to the given mojo goal and options.
      *
      * @throws MojoExecutionException
      * @throws MojoFailureException
      */
-    protected void executeCleanLocalRepositoryGoals() throws MojoExecutionException, MojoFailureException {
+    protected void executeGenerateGoals() throws MojoExecutionException, MojoFailureException {
 
         File rootDir = project.getBasedir();
         File sourceDir = FileUtils.getFile(rootDir, "src", "main", "java");
@@ -235,10 +454,11 @@ public class CodeGenerateMojo extends AbstractMojo {
             if (BeamUtils.isBlank(this.basePackage)) {
                 this.basePackage = "";
                 getLog().info("basePackage not set, will generate code at src/main/java/");
+            } else if (!this.basePackage.endsWith(".")) {
+                this.basePackage += ".";
             }
 
             Properties properties = this.loadProperty(rootDir);
-            String env = properties.getProperty("environment", "dev");
 
             Set<String> targetTableSet = new HashSet<>();
             if (null != this.tables && this.tables.length > 0) {
@@ -247,11 +467,14 @@ public class CodeGenerateMojo extends AbstractMojo {
                 }
             }
 
-            for (String db : this.datasource) {
-                getLog().info("Generate for: " + db);
-                generate(db, properties, env, rootDir, sourceDir,
-                        targetTableSet, tableNameBuilder);
-                getLog().info("End generate for: " + db);
+            if (isWatchGoal()) {
+                // the fingerprints tell which outputs a changed template affects
+                this.incremental = true;
+                this.watchedSchemas = new ConcurrentHashMap<>();
+            }
+            generateSources(rootDir, sourceDir, properties, targetTableSet, tableNameBuilder);
+            if (isWatchGoal()) {
+                watch(rootDir, sourceDir, properties, targetTableSet, tableNameBuilder);
             }
 
             getLog().info("END");
@@ -265,13 +488,273 @@ public class CodeGenerateMojo extends AbstractMojo {
 
     }
 
+    /**
+     * generate the sources of every datasource once
+     */
+    private void generateSources(File rootDir, File sourceDir, Properties properties, Set<String> targetTableSet,
+                                 Converter<String, String> tableNameBuilder) throws Exception {
+        String env = properties.getProperty("environment", "dev");
+
+        if (!isSnapshotGoal()) {
+            // templates are loaded once and shared by every datasource
+            File templateDir = resolveTemplateDir(rootDir);
+            this.templateDigests = TemplateDigests.of(templateDir, TEMPLATE_CLASSPATH);
+            this.codeMaker = TemplateCache.get(templateDir, TEMPLATE_CLASSPATH, this.encoding,
+                    this.basePackage, this.templateDigests);
+            if (this.incremental) {
+                this.fingerprintCache = FingerprintCache.load(getWorkFile(FingerprintCache.FILE_NAME));
+            }
+            if (this.overWriteClass && this.incrementalMerge) {
+                this.entityMerger = EntityMerger.load(getWorkFile(EntityMerger.FILE_NAME), sourceDir);
+            }
+            this.buildStamp = this.reproducible ? BuildStamp.reproducible(this.outputTimestamp, this.author)
+                    : BuildStamp.now(this.author);
+            if (this.reproducible) {
+                this.manifest = new GenerationManifest();
+                for (Map.Entry<String, String> digest : this.templateDigests.entrySet()) {
+                    this.manifest.input("template." + digest.getKey(), digest.getValue());
+                }
+                this.manifest.input("parameters", generatorParameters(""));
+                this.manifest.input("application.properties",
+                        SchemaFingerprint.hash(FileUtils.readFileToByteArray(getPropertiesFile(rootDir))));
+            }
+        }
+
+        this.metrics = new GeneratorMetrics();
+        this.codeWriter = new CodeWriter(this.encoding, this.fingerprintCache, getLog());
+        this.codeWriter.setMetrics(this.metrics);
+        this.codeWriter.start();
+        String[] datasources = Tools.isNullOrEmpty(this.datasource) ? new String[]{""} : this.datasource;
+        Map<String, Exception> failures;
+        ExecutorService executor = this.createExecutor();
+        try {
+            failures = generateAll(datasources, properties, env, rootDir, sourceDir,
+                    targetTableSet, tableNameBuilder, executor);
+        } finally {
+            if (null != executor) {
+                executor.shutdownNow();
+            }
+            this.codeWriter.close();
+        }
+        if (null != this.fingerprintCache) {
+            this.fingerprintCache.save();
+        }
+        if (null != this.entityMerger) {
+            this.entityMerger.save();
+        }
+        if (!isSnapshotGoal()) {
+            getLog().info("files " + this.codeWriter.summary());
+        }
+        if (null != this.manifest) {
+            Set<File> outputs = this.codeWriter.getOutputs();
+            if (null != this.fingerprintCache) {
+                outputs.addAll(this.fingerprintCache.getOutputs());
+            }
+            this.manifest.outputs(rootDir, outputs);
+            this.manifest.write(getWorkFile(GenerationManifest.FILE_NAME));
+        }
+        this.metrics.log(getLog());
+        File metricsFile = new File(project.getBuild().getDirectory(), GeneratorMetrics.FILE_NAME);
+        this.metrics.write(metricsFile);
+        getLog().debug("metrics written to " + metricsFile.getAbsolutePath());
+        for (Map.Entry<String, Exception> failure : failures.entrySet()) {
+            getLog().error("Code Generate error for datasource: [" + failure.getKey() + "]", failure.getValue());
+        }
+        if (!failures.isEmpty()) {
+            getLog().error(failures.size() + " of " + datasources.length
+                    + " datasource(s) failed: " + failures.keySet());
+        }
+    }
+
+    /**
+     * generate code for every datasource, at most datasourceThreads of them are introspected at the same time
+     *
+     * @return error of each datasource failed, in datasource order
+     */
+    private Map<String, Exception> generateAll(String[] datasources, final Properties properties, final String env,
+                                               final File rootDir, final File sourceDir,
+                                               final Set<String> targetTableSet,
+                                               final Converter<String, String> tableNameBuilder,
+                                               final ExecutorService executor) throws InterruptedException {
+        Map<String, Exception> failures = new LinkedHashMap<>();
+        int poolSize = Math.min(Math.max(this.datasourceThreads, 1), datasources.length);
+        if (poolSize == 1) {
+            for (String db : datasources) {
+                try {
+                    getLog().info("Generate for: " + db);
+                    generate(db, properties, env, rootDir, sourceDir,
+                            targetTableSet, tableNameBuilder, executor);
+                    getLog().info("End generate for: " + db);
+                } catch (Exception e) {
+                    failures.put(db, e);
+                }
+            }
+            return failures;
+        }
+
+        getLog().info("generate " + datasources.length + " datasources with " + poolSize + " connections at most");
+        ExecutorService datasourceExecutor = Executors.newFixedThreadPool(poolSize,
+                new NamedThreadFactory("ibeam-datasource"));
+        try {
+            Map<String, Future<?>> futures = new LinkedHashMap<>();
+            for (final String db : datasources) {
+                futures.put(db, datasourceExecutor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        getLog().info("Generate for: " + db);
+                        generate(db, properties, env, rootDir, sourceDir,
+                                targetTableSet, tableNameBuilder, executor);
+                        getLog().info("End generate for: " + db);
+                        return null;
+                    }
+                }));
+            }
+            for (Map.Entry<String, Future<?>> future : futures.entrySet()) {
+                try {
+                    future.getValue().get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    failures.put(future.getKey(), cause instanceof Exception ? (Exception) cause : e);
+                }
+            }
+        } finally {
+            datasourceExecutor.shutdownNow();
+        }
+        return failures;
+    }
+
     private void generate(String db, Properties properties, String env, File rootDir,
                           File sourceDir, Set<String> targetTableSet,
-                          Converter<String, String> tableNameBuilder) throws Exception {
-        String userName = getJdbcParam(properties, db, env, "username");
-        String password = getJdbcParam(properties, db, env, "password");
-        String jdbcUrl = getJdbcParam(properties, db, env, "url");
+                          Converter<String, String> tableNameBuilder,
+                          ExecutorService executor) throws Exception {
+        GeneratorMetrics.Sample sample = this.metrics.start();
+        Map<String, Integer> shardCounts = new HashMap<>();
+        TableStream tables = null;
+        try {
+            tables = null == this.watchedSchemas ?
+                    loadTables(db, properties, env, targetTableSet, tableNameBuilder, shardCounts) :
+                    watchedTables(db, properties, env, targetTableSet, tableNameBuilder, shardCounts);
+            if (!isSnapshotGoal()) {
+                generateTables(db, sourceDir, tables, shardCounts, executor);
+                this.metrics.count(db, GeneratorMetrics.TABLES, tables.getCount());
+                if (null != this.fingerprintCache && targetTableSet.isEmpty()) {
+                    // every table was visited, the fingerprints of the others are of removed tables
+                    this.fingerprintCache.complete(db);
+                }
+            }
+        } finally {
+            if (null != tables) {
+                tables.close();
+            }
+            this.metrics.record(db, GeneratorMetrics.TOTAL, null, sample);
+        }
+    }
+
+    private void generateTables(String db, File sourceDir, TableStream tables, Map<String, Integer> shardCounts,
+                                ExecutorService executor) throws Exception {
+        getLog().info("basePackage: " + this.basePackage + ", classIgnore: " + this.classIgnoreRegex);
+        boolean shouldGenerateWebApi = this.shouldGenerateWebApi();
+        if (!shouldGenerateWebApi) {
+            getLog().info("won't generate web related class as there is no cn.ibeam.web dependency in POM");
+        }
+        CodeFileResolver resolver = new CodeFileResolver(sourceDir, this.pathResolution, getLog());
+        TableRenderer renderer = new TableRenderer(this.codeMaker, db, resolver, shouldGenerateWebApi,
+                this.buildStamp);
+        renderer.setShardCounts(shardCounts);
+        renderer.setMetrics(this.metrics);
+        if (null != this.fingerprintCache) {
+            renderer.setCache(this.fingerprintCache, templateFingerprints(db));
+        }
+        if (null != this.manifest) {
+            tables = sortByName(db, tables, shardCounts);
+        }
+        int upToDate = 0;
+        if (null == executor) {
+            for (EntityTable table = tables.next(); null != table; table = tables.next()) {
+                upToDate += write(db, renderer.render(table));
+            }
+            logUpToDate(db, upToDate);
+            return;
+        }
+
+        // tables are rendered ahead by the workers, but written in the same order as the serial path,
+        // so the same file is kept when several tables map to one class and log lines stay grouped
+        Deque<Future<RenderedTable>> pending = new ArrayDeque<>();
+        int window = this.threads * 4;
+        try {
+            for (EntityTable table = tables.next(); null != table; table = tables.next()) {
+                pending.add(executor.submit(renderer.task(table)));
+                if (pending.size() >= window) {
+                    upToDate += write(db, await(pending.poll()));
+                }
+            }
+            while (!pending.isEmpty()) {
+                upToDate += write(db, await(pending.poll()));
+            }
+            logUpToDate(db, upToDate);
+        } finally {
+            for (Future<RenderedTable> future : pending) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * read all the tables in name order, so the first of several tables mapped to one class is always the same,
+     * and record the digest of the schema in the manifest
+     */
+    private TableStream sortByName(String db, TableStream stream, Map<String, Integer> shardCounts)
+            throws Exception {
+        List<EntityTable> tables = readAll(stream);
+        Collections.sort(tables, new Comparator<EntityTable>() {
+            @Override
+            public int compare(EntityTable o1, EntityTable o2) {
+                return o1.getTableName().compareTo(o2.getTableName());
+            }
+        });
+        // fingerprint the metadata before the tables get decorated by the renderer
+        String[] fingerprints = new String[tables.size() + 1];
+        for (int i = 0; i < tables.size(); i++) {
+            fingerprints[i] = SchemaFingerprint.of(tables.get(i));
+        }
+        fingerprints[tables.size()] = String.valueOf(new TreeMap<>(shardCounts));
+        this.manifest.input(BeamUtils.isBlank(db) ? "schema" : "schema." + db, SchemaFingerprint.hash(fingerprints));
+        return TableStream.of(tables);
+    }
+
+    /**
+     * read the tables from the snapshot of the datasource when present, from the database otherwise
+     *
+     * @param shardCounts filled with the shard count of the tables introspected from one representative shard
+     */
+    private TableStream loadTables(final String db, Properties properties, String env,
+                                   final Set<String> targetTableSet,
+                                   final Converter<String, String> tableNameBuilder,
+                                   Map<String, Integer> shardCounts) throws Exception {
+        File snapshotFile = getSnapshotFile(db);
+        final String filter = SchemaFingerprint.hash(this.ignoreTables, String.valueOf(new TreeSet<>(targetTableSet)),
+                this.tableIgnoreRegex, String.valueOf(this.shardAware));
+        if (!isSnapshotGoal() && !this.refreshSchemas && snapshotFile.exists()) {
+            GeneratorMetrics.Sample sample = this.metrics.start();
+            SchemaSnapshot snapshot = SchemaSnapshot.read(snapshotFile);
+            this.metrics.record(db, GeneratorMetrics.SNAPSHOT, null, sample);
+            if (!db.equals(snapshot.getDatasource())) {
+                getLog().warn("snapshot " + snapshotFile.getAbsolutePath() + " was taken from datasource ["
+                        + snapshot.getDatasource() + "], will read tables from database");
+            } else if (filter.equals(snapshot.getFilter())) {
+                getLog().info("read " + snapshot.getTables().size() + " tables from snapshot "
+                        + snapshotFile.getAbsolutePath());
+                shardCounts.putAll(snapshot.getShardCounts());
+                return TableStream.of(snapshot.getTables());
+            } else {
+                getLog().warn("snapshot " + snapshotFile.getAbsolutePath()
+                        + " was taken with other table settings, will read tables from database");
+            }
+        }
 
+        final String userName = getJdbcParam(properties, db, env, "username");
+        final String password = getJdbcParam(properties, db, env, "password");
+        final String jdbcUrl = getJdbcParam(properties, db, env, "url");
         if (BeamUtils.isBlank(jdbcUrl)) {
             if (BeamUtils.isNotBlank(db)) {
                 throw new IllegalArgumentException("database setting in application.properties need to set for " + db);
@@ -279,119 +762,300 @@ public class CodeGenerateMojo extends AbstractMojo {
                 throw new IllegalArgumentException("database name need to set!");
             }
         }
+        getLog().info("env: " + env + ", url: " + jdbcUrl + ", user: " + userName);
 
-        EntityParser entityParser = new EntityParser(userName, password, jdbcUrl, db);
-        entityParser.setLogger(new MavenBizLogger(getLog()));
-        Collection<EntityTable> tables = entityParser.parse(this.ignoreTables, targetTableSet, tableNameBuilder);
-        CodeMaker codeMaker = buildCodeMaker(rootDir);
-
-        CodeUtils.addTemplate(codeMaker, "entity", "${BASE_PKG_NAME}.${DOMAIN}.entity",
-                "${entity.className}");
-        CodeUtils.addTemplate(codeMaker, "dao", "${BASE_PKG_NAME}.${DOMAIN}.repository",
-                "${entity.className}Dao");
-        CodeUtils.addTemplate(codeMaker, "service", "${BASE_PKG_NAME}.${DOMAIN}.service",
-                "${entity.className}Service");
-        CodeUtils.addTemplate(codeMaker, "api_controller", "${BASE_PKG_NAME}.${DOMAIN}.api",
-                "${entity.className}ApiController");
-
-        ReusableStringWriter writer = new ReusableStringWriter(1000);
-        getLog().info("env: " + env + ", url: " + jdbcUrl + ", user: " + userName
-                + ", basePackage: " + this.basePackage + ", classIgnore: " + this.classIgnoreRegex);
-        final Pattern classNamePattern = BeamUtils.isNotBlank(this.classIgnoreRegex) ?
-                Pattern.compile(this.classIgnoreRegex) : null;
-        boolean shouldGenerateWebApi = this.shouldGenerateWebApi();
-        if (!shouldGenerateWebApi) {
-            getLog().info("won't generate web related class as there is no cn.ibeam.web dependency in POM");
+        if (isSnapshotGoal()) {
+            List<EntityTable> tables = readAll(parseTables(db, userName, password, jdbcUrl, targetTableSet,
+                    tableNameBuilder, shardCounts, false));
+            this.metrics.count(db, GeneratorMetrics.TABLES, tables.size());
+            new SchemaSnapshot(db, filter, tables, shardCounts).write(snapshotFile);
+            getLog().info("snapshot of " + tables.size() + " tables saved to " + snapshotFile.getAbsolutePath());
+            return TableStream.of(tables);
+        }
+        if (!this.shareSchema || this.streamTables) {
+            return parseTables(db, userName, password, jdbcUrl, targetTableSet, tableNameBuilder, shardCounts,
+                    this.streamTables);
+        }
+
+        String key = SchemaFingerprint.hash(db, jdbcUrl, userName, filter, String.valueOf(this.pushDownTableFilter));
+        if (this.refreshSchemas) {
+            SharedSchemaCache.evict(key);
         }
-        String defaultDomain = StringUtils.replaceEachRepeatedly(db,
-                new String[]{"_", "-"}, new String[]{".", "."});
-        for (EntityTable table : tables) {
-            String domain =
-                    BeamUtils.isNotBlank(defaultDomain) ? defaultDomain :
-                            StringUtils.replaceEachRepeatedly(db,
-                                    new String[]{"_", "-"}, new String[]{".", "."});
-            getLog().info("domain: [" + domain + "], table: [" + table.getTableName() + "] to: [" + table.getClassName() + "]");
-            if (table.getShardCount() > 1) {
-                table.addPackage(ShardByMod.class);
-                table.addAnnotation("@ShardByMod(value = " + table.getShardCount() + ")");
-            }
-
-            for (EntityField column : table.getFields()) {
-                column.setField(BeamUtils.toPropertyName(column.getInfo().getName()));
-            }
-
-            GenerateInfo entityInfo = GenerateInfo.from(table);
-            Map<String, Object> model = new HashMap<>();
-            Date now = new Date();
-            model.put("BASE_PKG_NAME", "ibeam.demo");
-            model.put("DOMAIN", db);
-            model.put("YEAR", DateFormatUtils.format(now, "yyyy"));
-            model.put("TIME", DateFormatUtils.format(now, "yyyy-MM-dd HH:mm:ss"));
-            model.put("USER", System.getProperty("user.name"));
-            String packageName = CodeUtils.getPackageName(codeMaker,
-                    "entity", model);
-            entityInfo.setPackageName(packageName);
-            model.put("entity", entityInfo);
-            model.put("primaryKey", entityInfo.getPrimaryKey());
-            GenerateInfo shardParam = null;
-            if(table.getShardCount() > 0){
-                Class shardParamType = Long.class;
-                shardParam = new GenerateInfo(shardParamType.getPackage().getName(),
-                        shardParamType.getSimpleName(), "");
-            }
-            model.put("shardParam", shardParam);
-
-            model.put("dao", CodeUtils.buildGenerateInfo(codeMaker, model, "dao"));
-            model.put("service", CodeUtils.buildGenerateInfo(codeMaker, model, "service"));
-            model.put("api_controller", CodeUtils.buildGenerateInfo(codeMaker, model, "api_controller"));
-
-            String code = render(writer, codeMaker, "entity", model);
-            File codeFile = getCodeFile(sourceDir, code);
-            if (codeFile.exists()) {
-                if (this.overWriteClass) {
-                    getLog().info(codeFile.getAbsolutePath() + " will be overwrite " + table.getTableName());
-                    code = CodeUtils.overWriteEntity(table, FileUtils.readFileToString(codeFile, this.encoding));
-                    FileUtils.writeStringToFile(codeFile, code, this.encoding);
+        SchemaSnapshot schema = SharedSchemaCache.get(String.valueOf(this.session.getStartTime().getTime()), key,
+                new Callable<SchemaSnapshot>() {
+                    @Override
+                    public SchemaSnapshot call() throws Exception {
+                        Map<String, Integer> counts = new HashMap<>();
+                        List<EntityTable> tables = readAll(parseTables(db, userName, password, jdbcUrl,
+                                targetTableSet, tableNameBuilder, counts, false));
+                        return new SchemaSnapshot(db, filter, tables, counts);
+                    }
+                }, getLog());
+        shardCounts.putAll(schema.getShardCounts());
+        return TableStream.of(schema.getTables());
+    }
+
+    /**
+     * tables of the watch goal, introspected once then copied from memory for every generation
+     *
+     * @param shardCounts filled with the shard count of the tables introspected from one representative shard
+     */
+    private TableStream watchedTables(String db, Properties properties, String env, Set<String> targetTableSet,
+                                      Converter<String, String> tableNameBuilder,
+                                      Map<String, Integer> shardCounts) throws Exception {
+        byte[] schema = this.watchedSchemas.get(db);
+        if (null == schema) {
+            Map<String, Integer> counts = new HashMap<>();
+            List<EntityTable> tables;
+            try (TableStream stream = loadTables(db, properties, env, targetTableSet, tableNameBuilder, counts)) {
+                tables = readAll(stream);
+            }
+            try {
+                schema = new SchemaSnapshot(db, "", tables, counts).toByteArray();
+            } catch (IOException e) {
+                // can't be copied, introspected again by the next generation
+                getLog().warn("[" + db + "] schema not kept between generations: " + e.getMessage());
+                shardCounts.putAll(counts);
+                return TableStream.of(tables);
+            }
+            this.watchedSchemas.put(db, schema);
+        }
+        SchemaSnapshot snapshot = SchemaSnapshot.read(schema);
+        shardCounts.putAll(snapshot.getShardCounts());
+        return TableStream.of(snapshot.getTables());
+    }
+
+    private static List<EntityTable> readAll(TableStream stream) throws Exception {
+        List<EntityTable> tables = new ArrayList<>();
+        for (EntityTable table = stream.next(); null != table; table = stream.next()) {
+            tables.add(table);
+        }
+        return tables;
+    }
+
+    /**
+     * @param shardCounts filled with the shard count of the tables introspected from one representative shard
+     * @param stream      introspect the tables by batches while they are rendered, when the table list is read
+     */
+    private TableStream parseTables(String db, String userName, String password, String jdbcUrl,
+                                    Set<String> targetTableSet,
+                                    Converter<String, String> tableNameBuilder,
+                                    Map<String, Integer> shardCounts, boolean stream) throws Exception {
+        GeneratorMetrics.Sample sample = this.metrics.start();
+        Set<String> parserTargets = targetTableSet;
+        boolean bulk = BulkMetadata.BULK.equalsIgnoreCase(this.introspection);
+        BulkMetadata bulkMetadata = null;
+        if (this.pushDownTableFilter || this.shardAware) {
+            TableSelector selector = new TableSelector(this.ignoreTables, targetTableSet, tableNameBuilder);
+            try (Connection connection = DriverManager.getConnection(jdbcUrl, userName, password)) {
+                List<String> listed = selector.listTables(connection);
+                List<String> selected = selector.select(listed);
+                getLog().info("[" + db + "] " + selected.size() + " tables selected, "
+                        + (listed.size() - selected.size()) + " pruned before introspection");
+                if (selected.isEmpty()) {
+                    return TableStream.of(Collections.<EntityTable>emptyList());
+                }
+                if (this.shardAware) {
+                    ShardGroups groups = new ShardGroups(selected, tableNameBuilder);
+                    getLog().info("[" + db + "] " + groups.getGroupCount() + " shard groups, introspect "
+                            + groups.getGroupCount() + " representative tables instead of " + selected.size());
+                    if (this.shardCheckSamples > 0) {
+                        groups.check(connection, this.shardCheckSamples, getLog());
+                    }
+                    shardCounts.putAll(groups.getShardCounts());
+                    parserTargets = groups.getParserTargets();
                 } else {
-                    getLog().info(codeFile.getAbsolutePath() + " exist, will ignore " + table.getTableName());
+                    parserTargets = selector.targetNames(selected);
+                }
+                if (bulk) {
+                    bulkMetadata = readBulkMetadata(db, connection, parserTargets);
                 }
-            } else {
-                FileUtils.writeStringToFile(codeFile, code, this.encoding);
             }
-
-            code = render(writer, codeMaker, "dao", model);
-            codeFile = getCodeFile(sourceDir, code);
-            if (codeFile.exists()) {
-                getLog().info(codeFile.getAbsolutePath()
-                        + " exist, will ignore for " + table.getTableName());
-            } else {
-                FileUtils.writeStringToFile(codeFile, code, this.encoding);
+        } else if (bulk) {
+            try (Connection connection = DriverManager.getConnection(jdbcUrl, userName, password)) {
+                bulkMetadata = readBulkMetadata(db, connection, null);
             }
+        }
 
-            code = render(writer, codeMaker, "service", model);
+        String parserUrl = null == bulkMetadata ? jdbcUrl : bulkMetadata.register(jdbcUrl);
+        EntityParser entityParser = new EntityParser(userName, password, parserUrl, db);
+        entityParser.setLogger(new MavenBizLogger(getLog()));
+        if (stream && parserTargets != targetTableSet) {
+            this.metrics.record(db, GeneratorMetrics.INTROSPECT, null, sample);
+            getLog().info("[" + db + "] stream tables by batches of " + this.streamBatchSize);
+            return TableStream.parse(entityParser, this.ignoreTables, parserTargets, tableNameBuilder,
+                    this.streamBatchSize, this.metrics, db, bulkMetadata);
+        }
+        if (stream) {
+            getLog().warn("streamTables needs pushDownTableFilter or shardAware, tables are read all at once");
+        }
+        try {
+            Collection<EntityTable> tables = entityParser.parse(this.ignoreTables, parserTargets, tableNameBuilder);
+            this.metrics.record(db, GeneratorMetrics.INTROSPECT, null, sample);
+            return TableStream.of(tables);
+        } finally {
+            IOUtils.closeQuietly(bulkMetadata);
+        }
+    }
 
-            codeFile = getCodeFile(sourceDir, code);
-            if (codeFile.exists()) {
-                getLog().info(codeFile.getAbsolutePath()
-                        + " exist, will ignore for " + table.getTableName());
-            } else {
-                FileUtils.writeStringToFile(codeFile, code, this.encoding);
+    /**
+     * @param keep names of the tables whose metadata is kept, all the tables if null
+     * @return the metadata of the schema, null if the database has no MySQL compatible information_schema
+     * or it can't be read
+     */
+    BulkMetadata readBulkMetadata(String db, Connection connection, Collection<String> keep)
+            throws SQLException {
+        if (!BulkMetadata.supports(connection)) {
+            getLog().warn("[" + db + "] bulk introspection needs a MySQL compatible database, "
+                    + "the metadata is read table by table");
+            return null;
+        }
+        BulkMetadata metadata;
+        try {
+            metadata = BulkMetadata.read(connection, keep);
+        } catch (SQLException e) {
+            // H2 1.4 has no INFORMATION_SCHEMA.INDEX_COLUMNS for instance
+            getLog().warn("[" + db + "] the metadata can't be read from information_schema, "
+                    + "it is read table by table: " + e.getMessage());
+            return null;
+        }
+        getLog().info("[" + db + "] metadata of " + metadata.getTableCount() + " tables and "
+                + metadata.getColumnCount() + " columns read from information_schema");
+        return metadata;
+    }
+
+    private File getSnapshotFile(String db) {
+        return new File(this.snapshotDirectory, (BeamUtils.isBlank(db) ? "schema" : "schema-" + db) + ".snapshot");
+    }
+
+    private RenderedTable await(Future<RenderedTable> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
             }
+            throw e;
+        }
+    }
 
-            if (shouldGenerateWebApi) {
-                code = render(writer, codeMaker, "api_controller", model);
-                codeFile = getCodeFile(sourceDir, code);
-                if (codeFile.exists()) {
-                    getLog().info(codeFile.getAbsolutePath() + " exist, will ignore for "
-                            + table.getTableName());
+    /**
+     * @return 1 if the table was up to date and nothing was written, 0 otherwise
+     */
+    private int write(String db, RenderedTable rendered) throws IOException {
+        EntityTable table = rendered.getTable();
+        if (rendered.isUpToDate()) {
+            getLog().debug("table: [" + table.getTableName() + "] is up to date");
+            this.metrics.count(db, GeneratorMetrics.TABLES_UP_TO_DATE, 1);
+            return 1;
+        }
+        getLog().info("domain: [" + rendered.getDomain() + "], table: [" + table.getTableName()
+                + "] to: [" + table.getClassName() + "]");
+        for (RenderedTable.Code code : rendered.getCodes()) {
+            File codeFile = code.getFile();
+            String cacheKey = code.getCacheKey();
+            if (!this.codeWriter.exists(codeFile)) {
+                this.codeWriter.write(db, codeFile, code.getCode(), null, cacheKey, code.getFingerprint());
+                if (null != this.entityMerger && "entity".equals(code.getType())) {
+                    this.entityMerger.record(codeFile, code.getCode());
+                }
+            } else if (!"entity".equals(code.getType())) {
+                getLog().info(codeFile.getAbsolutePath()
+                        + " exist, will ignore for " + table.getTableName());
+                this.ignoredFiles.incrementAndGet();
+                this.codeWriter.skip(db, codeFile, cacheKey, code.getFingerprint());
+            } else if (this.overWriteClass) {
+                GeneratorMetrics.Sample sample = this.metrics.start();
+                String existing = this.codeWriter.read(codeFile);
+                String merged = null == this.entityMerger ? null
+                        : this.entityMerger.merge(codeFile, existing, code.getCode());
+                if (null == merged) {
+                    merged = CodeUtils.overWriteEntity(table, existing);
+                    if (null != this.entityMerger) {
+                        this.entityMerger.record(codeFile, code.getCode());
+                    }
+                }
+                this.metrics.record(db, GeneratorMetrics.MERGE, code.getType(), sample);
+                if (merged.equals(existing)) {
+                    getLog().debug(codeFile.getAbsolutePath() + " already matches " + table.getTableName());
+                    this.codeWriter.skip(db, codeFile, cacheKey, code.getFingerprint());
                 } else {
-                    FileUtils.writeStringToFile(codeFile, code, this.encoding);
+                    this.codeWriter.write(db, codeFile, merged,
+                            codeFile.getAbsolutePath() + " will be overwrite " + table.getTableName(),
+                            cacheKey, code.getFingerprint());
                 }
+            } else {
+                getLog().info(codeFile.getAbsolutePath() + " exist, will ignore " + table.getTableName());
+                this.ignoredFiles.incrementAndGet();
+                this.codeWriter.skip(db, codeFile, cacheKey, code.getFingerprint());
             }
         }
+        return 0;
+    }
+
+    private void logUpToDate(String db, int upToDate) {
+        if (upToDate > 0) {
+            getLog().info(upToDate + " table(s) of [" + db + "] are up to date, skipped");
+        }
+    }
+
+    /**
+     * @return fingerprint of each template together with the generator parameters affecting its output
+     */
+    private Map<String, String> templateFingerprints(String db) {
+        String parameters = SchemaFingerprint.hash(generatorParameters(db), generatorLocation());
+        Map<String, String> fingerprints = new HashMap<>();
+        for (Map.Entry<String, String> template : this.templateDigests.entrySet()) {
+            fingerprints.put(template.getKey(), SchemaFingerprint.hash(template.getValue(), parameters));
+        }
+        return fingerprints;
+    }
+
+    /**
+     * @return fingerprint of the generator parameters affecting the generated code of a datasource
+     */
+    private String generatorParameters(String db) {
+        return SchemaFingerprint.hash(db, this.basePackage, this.packageName, this.classIgnoreRegex,
+                this.encoding, String.valueOf(this.overWriteClass), this.buildStamp.getFingerprint());
+    }
+
+    /**
+     * @return location of the code generator library, which changes with its version
+     */
+    private static String generatorLocation() {
+        try {
+            return String.valueOf(FreeMaker.class.getProtectionDomain().getCodeSource().getLocation());
+        } catch (RuntimeException e) {
+            return "";
+        }
+    }
+
+    /**
+     * @return file of the generator under target/ibeam-generator/
+     */
+    private File getWorkFile(String name) {
+        return FileUtils.getFile(new File(project.getBuild().getDirectory()), "ibeam-generator", name);
     }
 
-    private CodeMaker buildCodeMaker(File rootDir) throws IOException, TemplateException {
+    /**
+     * @return pool rendering the tables, null when generating on the current thread only
+     */
+    private ExecutorService createExecutor() {
+        if (this.threads <= 0) {
+            this.threads = Runtime.getRuntime().availableProcessors();
+        }
+        if (this.threads == 1) {
+            return null;
+        }
+        getLog().info("render tables with " + this.threads + " threads");
+        return Executors.newFixedThreadPool(this.threads, new NamedThreadFactory("ibeam-generator"));
+    }
+
+    /**
+     * @return folder of the custom templates, null to use the default templates of the classpath
+     */
+    private File resolveTemplateDir(File rootDir) {
         File templateDir = null;
         if (BeamUtils.isNotBlank(this.templatePath)) {
             if (this.templatePath.startsWith("/")) {
@@ -405,43 +1069,109 @@ public class CodeGenerateMojo extends AbstractMojo {
                 templateDir = FileUtils.getFile(rootDir, this.templatePath);
             }
         }
-        if (BeamUtils.isNotBlank(basePackage) && !basePackage.endsWith(".")) {
-            basePackage += ".";
-        }
-        FreeMaker codeMaker =
-                new FreeMaker(templateDir, "/code/ftl", this.encoding);
-        codeMaker.setSharedVariable("basePackage", this.basePackage);
-        return codeMaker;
+        return templateDir;
     }
 
-    private File getCodeFile(File sourceDir, String code) throws IllegalClassFormatException {
-        try {
-            CompilationUnit cu = JavaParser.parse(code);
-            Optional<PackageDeclaration> packageDeclaration = cu.getPackageDeclaration();
-            if (!packageDeclaration.isPresent()) {
-                throw new IllegalClassFormatException("no package set in the code for entity: \n" + code);
+    /**
+     * generate the sources again whenever a template or application.properties changes, until the build is stopped.
+     * Only the outputs of the changed templates are rendered again, the schema is introspected again
+     * when application.properties changes.
+     * As in the generate goal, only missing files are written and existing entities are merged with overWriteClass,
+     * the other existing files are left as they are and reported after each generation: delete them to get the
+     * output of the changed templates.
+     */
+    private void watch(File rootDir, File sourceDir, Properties properties, Set<String> targetTableSet,
+                       Converter<String, String> tableNameBuilder) throws IOException, InterruptedException {
+        File templateDir = resolveTemplateDir(rootDir);
+        Path templateFolder = null;
+        Path propertiesFile = getPropertiesFile(rootDir).toPath().toAbsolutePath();
+        try (WatchService watcher = FileSystems.getDefault().newWatchService()) {
+            propertiesFile.getParent().register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+            if (null != templateDir && templateDir.isDirectory()) {
+                templateFolder = templateDir.toPath().toAbsolutePath();
+                registerTree(watcher, templateFolder);
+                getLog().info("watching " + templateFolder + " and " + propertiesFile + ", stop with Ctrl+C");
+            } else {
+                getLog().info("templates are read from the classpath, watching " + propertiesFile
+                        + ", stop with Ctrl+C");
+            }
+            while (true) {
+                Set<Path> changes = nextChanges(watcher, this.watchQuietPeriod);
+                boolean propertiesChanged = changes.contains(propertiesFile);
+                Set<String> templates = new TreeSet<>();
+                for (Path path : changes) {
+                    if (null != templateFolder && path.startsWith(templateFolder)) {
+                        templates.add(templateFolder.relativize(path).toString());
+                        if (Files.isDirectory(path)) {
+                            registerTree(watcher, path);
+                        }
+                    }
+                }
+                if (!propertiesChanged && templates.isEmpty()) {
+                    continue;
+                }
+                if (propertiesChanged) {
+                    getLog().info("application.properties changed, tables will be introspected again");
+                    this.watchedSchemas.clear();
+                } else {
+                    getLog().info("templates changed: " + templates);
+                }
+                long start = System.nanoTime();
+                this.ignoredFiles.set(0);
+                try {
+                    if (propertiesChanged) {
+                        properties = loadProperty(rootDir);
+                        this.refreshSchemas = true;
+                    }
+                    generateSources(rootDir, sourceDir, properties, targetTableSet, tableNameBuilder);
+                    if (this.ignoredFiles.get() > 0) {
+                        getLog().warn(this.ignoredFiles.get() + " existing file(s) not written again, only new files"
+                                + (this.overWriteClass ? " and entities" : "")
+                                + " are generated: delete them to get the output of the changed templates");
+                    }
+                    getLog().info("generated in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+                            + " ms, watching for changes");
+                } catch (Exception e) {
+                    // keep watching, the next change may fix it
+                    getLog().error("Code Generate error", e);
+                } finally {
+                    this.refreshSchemas = false;
+                }
             }
-            String packageName = packageDeclaration.get().getNameAsString();
-            ClassOrInterfaceDeclaration classDeclaration = (ClassOrInterfaceDeclaration) cu.getTypes().get(0);
-            File parentFile = FileUtils.getFile(sourceDir, StringUtils.split(packageName, '.'));
-            return FileUtils.getFile(parentFile, classDeclaration.getNameAsString() + ".java");
-        } catch (ParseProblemException e) {
-            getLog().error(e);
-            throw new IllegalClassFormatException("no package set in the code for entity: \n" + code);
         }
-
     }
 
-    private String render(ReusableStringWriter writer, CodeMaker codeMaker, String name, Map<String, Object> model) throws IOException {
-        try {
-            codeMaker.render(name, model, writer);
-            return writer.toString();
-        } finally {
-            writer.reset();
+    /**
+     * @return the changed paths, gathered until no change comes for the quiet period in milliseconds
+     */
+    static Set<Path> nextChanges(WatchService watcher, long quietPeriod) throws InterruptedException {
+        Set<Path> changes = new HashSet<>();
+        WatchKey key = watcher.take();
+        while (null != key) {
+            Path folder = (Path) key.watchable();
+            for (WatchEvent<?> event : key.pollEvents()) {
+                changes.add(event.kind() == StandardWatchEventKinds.OVERFLOW ? folder
+                        : folder.resolve((Path) event.context()));
+            }
+            key.reset();
+            key = watcher.poll(Math.max(quietPeriod, 0), TimeUnit.MILLISECONDS);
         }
+        return changes;
     }
 
-    private Properties loadProperty(File rootDir) throws IOException {
+    private static void registerTree(final WatchService watcher, Path folder) throws IOException {
+        Files.walkFileTree(folder, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                dir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY,
+                        StandardWatchEventKinds.ENTRY_DELETE);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private File getPropertiesFile(File rootDir) throws IOException {
         File filePath = FileUtils.getFile(rootDir, "src", "main", "resources", "application.properties");
         if (!filePath.exists()) {
             filePath = FileUtils.getFile(rootDir, "src", "test", "resources", "application.properties");
@@ -449,6 +1179,11 @@ public class CodeGenerateMojo extends AbstractMojo {
         if (!filePath.exists()) {
             throw new IOException("application.properties must set under /src/main/resources/ or /src/test/resources/");
         }
+        return filePath;
+    }
+
+    private Properties loadProperty(File rootDir) throws IOException {
+        File filePath = getPropertiesFile(rootDir);
         getLog().info("application.properties at " + filePath.getAbsolutePath());
         try (InputStream in = new FileInputStream(filePath)) {
             Properties properties = new Properties();
@@ -459,32 +1194,7 @@ public class CodeGenerateMojo extends AbstractMojo {
 
 
     /**
-     * Initialize and check the execution context of the Mojo :
-     * - read access to the local repository folder
-     * - unexpected parameter
-     * - pattern syntax exception
-     *
-     * @return a file representing the current maven local repository
-     * @throws MojoExecutionException
-     * @throws MojoFailureException
-     */
-    private File initializeAndCheckMojoContext() throws MojoExecutionException, MojoFailureException {
-        final File localRepositoryFolder = new File(localMavenRepository.getBasedir());
-
-        if (!localRepositoryFolder.exists()) {
-            throw new MojoExecutionException(Enumeres.EXCEPTION.LOCAL_MAVEN_REPOSITORY_UNAVAILABLE + localRepositoryFolder);
-        }
-
-        if (!localRepositoryFolder.canWrite()) {
-            throw new MojoFailureException(Enumeres.EXCEPTION.LOCAL_MAVEN_REPOSITORY_PERMISSION_DENIED + localRepositoryFolder);
-        }
-
-        return localRepositoryFolder;
-    }
-
-
-    /**
-     * Implementation of the execute() method for the clean-local-repository:list goal.
+     * Implementation of the execute() method for the generate goal.
      *
      * @throws MojoExecutionException
      * @throws MojoFailureException
@@ -496,17 +1206,26 @@ public class CodeGenerateMojo extends AbstractMojo {
             getLog().info("IBeam code generator is skipped.");
             return;
         }
-        this.executeCleanLocalRepositoryGoals();
+        this.executeGenerateGoals();
     }
 
 
     /**
-     * This abstract method implementation define the deletion mode associated with the current goal.
+     * This method implementation define if the current goal only saves the schema snapshot.
      *
-     * @return true in the current "clean" goal context
+     * @return false in the current "generate" goal context
      */
-    protected boolean isDeleteModeActivated() {
-        return true;
+    protected boolean isSnapshotGoal() {
+        return false;
+    }
+
+    /**
+     * This method implementation define if the current goal keeps generating while the templates change.
+     *
+     * @return false in the current "generate" goal context
+     */
+    protected boolean isWatchGoal() {
+        return false;
     }
 
 }
@@ -0,0 +1,289 @@
+package ibeam.maven.plugins;
+
+import org.apache.maven.plugin.logging.Log;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Writer stage of the generator: the generated code is handed to a dedicated thread which writes it
+ * through NIO channels, in parallel with the rendering. Package folders are created once per package.
+ * <p>
+ * The code is written only when it differs from the file on disk, compared by length first and then by hash,
+ * so the last modified time of unchanged files is kept for incremental compilation and IDE indexers.
+ * Outputs are handled in the order they are submitted, {@link #close()} waits for all of them
+ * and reports every failure.
+ */
+public class CodeWriter {
+    private static final int QUEUE_SIZE = 1024;
+
+    private static final int BATCH_SIZE = 64;
+
+    private static final Task END = new Task(null, null, null, null, null, null);
+
+    private final Charset charset;
+    private final FingerprintCache cache;
+    private final Log log;
+    private final BlockingQueue<Task> queue = new LinkedBlockingQueue<>(QUEUE_SIZE);
+    private final ConcurrentMap<File, String> pending = new ConcurrentHashMap<>();
+    private final Set<File> folders = new HashSet<>();
+    private final Set<File> outputs = Collections.newSetFromMap(new ConcurrentHashMap<File, Boolean>());
+    private final Map<File, Throwable> failures = new LinkedHashMap<>();
+    private final AtomicInteger written = new AtomicInteger();
+    private final AtomicInteger unchanged = new AtomicInteger();
+    private final AtomicInteger skipped = new AtomicInteger();
+    private GeneratorMetrics metrics = GeneratorMetrics.disabled();
+    private Thread thread;
+
+    /**
+     * @param cache fingerprints to record once the outputs are on disk, may be null
+     */
+    public CodeWriter(String encoding, FingerprintCache cache, Log log) {
+        this.charset = Charset.forName(encoding);
+        this.cache = cache;
+        this.log = log;
+    }
+
+    public void setMetrics(GeneratorMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public void start() {
+        thread = new NamedThreadFactory("ibeam-writer").newThread(new Runnable() {
+            @Override
+            public void run() {
+                drain();
+            }
+        });
+        thread.start();
+    }
+
+    /**
+     * @return true if the file is on disk or waiting to be written
+     */
+    public boolean exists(File file) {
+        return pending.containsKey(file) || file.exists();
+    }
+
+    /**
+     * @return the content waiting to be written to the file, or the content on disk
+     */
+    public String read(File file) throws IOException {
+        String code = pending.get(file);
+        return null != code ? code : new String(Files.readAllBytes(file.toPath()), charset);
+    }
+
+    /**
+     * submit the code of a file, blocks when the writer is too far behind
+     *
+     * @param datasource datasource the code is generated from, for the metrics
+     * @param message    logged if the file already existed and is changed, may be null
+     * @param cacheKey   key of the output in the fingerprint cache, may be null
+     */
+    public void write(String datasource, File file, String code, String message, String cacheKey,
+                      String fingerprint) throws InterruptedIOException {
+        pending.put(file, code);
+        outputs.add(file);
+        submit(new Task(datasource, file, code, message, cacheKey, fingerprint));
+    }
+
+    /**
+     * count an existing file the generator leaves alone
+     */
+    public void skip(String datasource, File file, String cacheKey, String fingerprint)
+            throws InterruptedIOException {
+        skipped.incrementAndGet();
+        outputs.add(file);
+        metrics.count(datasource, GeneratorMetrics.FILES_SKIPPED, 1);
+        if (null != cacheKey) {
+            submit(new Task(datasource, file, null, null, cacheKey, fingerprint));
+        }
+    }
+
+    /**
+     * wait until every submitted file is written
+     *
+     * @throws IOException if any file could not be written, every failure is logged before
+     */
+    public void close() throws IOException {
+        if (null == thread) {
+            return;
+        }
+        submit(END);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for the generated files to be written");
+        } finally {
+            thread = null;
+        }
+        synchronized (failures) {
+            if (failures.isEmpty()) {
+                return;
+            }
+            for (Map.Entry<File, Throwable> failure : failures.entrySet()) {
+                log.error("fail to write " + failure.getKey().getAbsolutePath(), failure.getValue());
+            }
+            throw new IOException(failures.size() + " generated file(s) could not be written");
+        }
+    }
+
+    /**
+     * @return the files written or skipped so far
+     */
+    public Set<File> getOutputs() {
+        return new HashSet<>(outputs);
+    }
+
+    /**
+     * @return the number of files written, unchanged and skipped, for the log of the run
+     */
+    public String summary() {
+        return "written: " + written.get() + ", unchanged: " + unchanged.get() + ", skipped: " + skipped.get();
+    }
+
+    private void submit(Task task) throws InterruptedIOException {
+        try {
+            queue.put(task);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while submitting " + task.file);
+        }
+    }
+
+    private void drain() {
+        List<Task> batch = new ArrayList<>(BATCH_SIZE);
+        try {
+            while (true) {
+                batch.add(queue.take());
+                queue.drainTo(batch, BATCH_SIZE - 1);
+                for (Task task : batch) {
+                    if (task == END) {
+                        return;
+                    }
+                    handle(task);
+                }
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void handle(Task task) {
+        try {
+            if (null != task.code) {
+                GeneratorMetrics.Sample sample = metrics.start();
+                ByteBuffer content = charset.encode(task.code);
+                if (isSame(task.file, content)) {
+                    unchanged.incrementAndGet();
+                    metrics.count(task.datasource, GeneratorMetrics.FILES_UNCHANGED, 1);
+                    log.debug(task.file.getAbsolutePath() + " is unchanged");
+                } else {
+                    boolean exists = task.file.exists();
+                    int length = content.remaining();
+                    writeFile(task.file.toPath(), content);
+                    written.incrementAndGet();
+                    metrics.count(task.datasource, GeneratorMetrics.FILES_WRITTEN, 1);
+                    metrics.count(task.datasource, GeneratorMetrics.BYTES_WRITTEN, length);
+                    if (exists && null != task.message) {
+                        log.info(task.message);
+                    }
+                }
+                metrics.record(task.datasource, GeneratorMetrics.WRITE, null, sample);
+                pending.remove(task.file, task.code);
+            }
+            if (null != cache && null != task.cacheKey) {
+                cache.record(task.cacheKey, task.fingerprint, task.file);
+            }
+        } catch (Throwable e) {
+            // an error is recorded too, the writer thread must keep draining or the producers block on the queue
+            pending.remove(task.file, task.code);
+            synchronized (failures) {
+                failures.put(task.file, e);
+            }
+        }
+    }
+
+    private void writeFile(Path path, ByteBuffer content) throws IOException {
+        File folder = path.toFile().getParentFile();
+        if (folders.add(folder)) {
+            Files.createDirectories(folder.toPath());
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (content.hasRemaining()) {
+                channel.write(content);
+            }
+        }
+    }
+
+    private static boolean isSame(File file, ByteBuffer content) throws IOException {
+        if (!file.isFile() || file.length() != content.remaining()) {
+            return false;
+        }
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[8192];
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        MessageDigest expected = newDigest();
+        expected.update(content.duplicate());
+        return MessageDigest.isEqual(digest.digest(), expected.digest());
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class Task {
+        private final String datasource;
+        private final File file;
+        private final String code;
+        private final String message;
+        private final String cacheKey;
+        private final String fingerprint;
+
+        private Task(String datasource, File file, String code, String message, String cacheKey,
+                     String fingerprint) {
+            this.datasource = datasource;
+            this.file = file;
+            this.code = code;
+            this.message = message;
+            this.cacheKey = cacheKey;
+            this.fingerprint = fingerprint;
+        }
+    }
+}
@@ -0,0 +1,510 @@
+package ibeam.maven.plugins;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseProblemException;
+import com.github.javaparser.Position;
+import com.github.javaparser.Range;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.ImportDeclaration;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import com.github.javaparser.ast.body.FieldDeclaration;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.body.VariableDeclarator;
+import com.github.javaparser.ast.comments.Comment;
+import com.github.javaparser.ast.nodeTypes.NodeWithAnnotations;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Incremental merge of a generated entity into the existing source for overWriteClass.
+ * <p>
+ * The fields of the existing class are compared with the fields of the generated entity, by type, annotations
+ * and comment: an entity already matching is left alone, otherwise only the added, removed or changed fields,
+ * the accessors of the added, removed or retyped ones and the missing imports are changed in the existing text,
+ * the rest of the hand edited source is kept as it is.
+ * A field is only removed if it was generated before, the names of the generated fields of each entity are kept
+ * under target/ for that, by path relative to the source folder. Entities without a record, or with changes this
+ * merge does not handle (class annotations, fields declared on one line...), are left to the full merge of the generator.
+ */
+public class EntityMerger {
+    public static final String FILE_NAME = "entity-fields.properties";
+
+    private static final String SEPARATOR = ",";
+
+    private final File file;
+    private final File sourceDir;
+    private final ConcurrentMap<String, String> generatedFields;
+
+    private EntityMerger(File file, File sourceDir, ConcurrentMap<String, String> generatedFields) {
+        this.file = file;
+        this.sourceDir = sourceDir;
+        this.generatedFields = generatedFields;
+    }
+
+    /**
+     * load the generated fields recorded in the given file, a missing or unreadable file is an empty record
+     *
+     * @param sourceDir folder of the entity sources, the records are kept by path relative to it
+     */
+    public static EntityMerger load(File file, File sourceDir) {
+        ConcurrentMap<String, String> entries = new ConcurrentHashMap<>();
+        if (file.exists()) {
+            Properties properties = new Properties();
+            try (InputStream in = new FileInputStream(file)) {
+                properties.load(in);
+            } catch (IOException e) {
+                properties.clear();
+            }
+            for (String key : properties.stringPropertyNames()) {
+                // records of an older version were kept by absolute path
+                if (!new File(key).isAbsolute()) {
+                    entries.put(key, properties.getProperty(key));
+                }
+            }
+        }
+        return new EntityMerger(file, sourceDir, entries);
+    }
+
+    /**
+     * @return the merged source, the existing source itself when it already matches the generated entity,
+     * null when the entity has to be merged by the generator
+     */
+    public String merge(File source, String existing, String generated) {
+        String previous = generatedFields.get(key(source));
+        if (null == previous) {
+            return null;
+        }
+        Source current;
+        Source target;
+        try {
+            current = Source.parse(existing);
+            target = Source.parse(generated);
+        } catch (ParseProblemException e) {
+            return null;
+        }
+        if (null == current || null == target
+                || !annotations(current.type).equals(annotations(target.type))) {
+            return null;
+        }
+
+        List<String> added = new ArrayList<>();
+        List<String> changed = new ArrayList<>();
+        Set<String> retyped = new HashSet<>();
+        for (Map.Entry<String, VariableDeclarator> field : target.fields.entrySet()) {
+            VariableDeclarator variable = current.fields.get(field.getKey());
+            if (null == variable) {
+                added.add(field.getKey());
+                continue;
+            }
+            if (!variable.getType().toString().equals(field.getValue().getType().toString())) {
+                retyped.add(field.getKey());
+            }
+            // column length, nullability or comment changes come as annotations or javadoc of the field
+            FieldDeclaration declaration = current.declaration(field.getKey());
+            FieldDeclaration generatedDeclaration = target.declaration(field.getKey());
+            if (retyped.contains(field.getKey())
+                    || !annotations(declaration).equals(annotations(generatedDeclaration))
+                    || !comment(declaration).equals(comment(generatedDeclaration))) {
+                changed.add(field.getKey());
+            }
+        }
+        List<String> removed = new ArrayList<>();
+        for (String name : StringUtils.split(previous, SEPARATOR)) {
+            if (!target.fields.containsKey(name) && current.fields.containsKey(name)) {
+                removed.add(name);
+            }
+        }
+        if (added.isEmpty() && changed.isEmpty() && removed.isEmpty()) {
+            record(source, target);
+            return existing;
+        }
+
+        List<Edit> edits = new ArrayList<>();
+        if (!imports(current, target, edits)) {
+            return null;
+        }
+        for (String name : removed) {
+            if (!current.remove(current.declaration(name), edits)) {
+                return null;
+            }
+            for (MethodDeclaration method : current.accessors(name)) {
+                if (!current.remove(method, edits)) {
+                    return null;
+                }
+            }
+        }
+        for (String name : changed) {
+            String block = target.block(target.declaration(name));
+            if (null == block || !current.replaceLines(current.declaration(name), block, edits)) {
+                return null;
+            }
+            if (!retyped.contains(name)) {
+                continue;
+            }
+            for (MethodDeclaration method : current.accessors(name)) {
+                MethodDeclaration generatedMethod = target.accessor(method.getNameAsString(),
+                        method.getParameters().size());
+                if (null != generatedMethod
+                        && !current.replace(method, target.text(generatedMethod), edits)) {
+                    return null;
+                }
+            }
+        }
+        if (!added.isEmpty()) {
+            StringBuilder fields = new StringBuilder();
+            StringBuilder methods = new StringBuilder();
+            for (String name : added) {
+                String block = target.block(target.declaration(name));
+                if (null == block) {
+                    return null;
+                }
+                fields.append('\n').append(block);
+                for (MethodDeclaration method : target.accessors(name)) {
+                    String methodBlock = target.block(method);
+                    if (null == methodBlock) {
+                        return null;
+                    }
+                    methods.append('\n').append(methodBlock);
+                }
+            }
+            int fieldsEnd = current.fieldsEnd();
+            int classEnd = current.classEnd();
+            if (fieldsEnd < 0 || classEnd < 0) {
+                return null;
+            }
+            edits.add(new Edit(fieldsEnd, fieldsEnd, fields.toString()));
+            edits.add(new Edit(classEnd, classEnd, methods.toString()));
+        }
+
+        String merged = apply(existing, edits);
+        if (null == merged) {
+            return null;
+        }
+        try {
+            JavaParser.parse(merged);
+        } catch (ParseProblemException e) {
+            return null;
+        }
+        record(source, target);
+        return merged;
+    }
+
+    /**
+     * record the fields of an entity written by the generator
+     */
+    public void record(File source, String generated) {
+        try {
+            Source target = Source.parse(generated);
+            if (null != target) {
+                record(source, target);
+            }
+        } catch (ParseProblemException e) {
+            generatedFields.remove(key(source));
+        }
+    }
+
+    public void save() throws IOException {
+        Properties properties = new Properties();
+        properties.putAll(generatedFields);
+        FileUtils.forceMkdir(file.getParentFile());
+        try (OutputStream out = new FileOutputStream(file)) {
+            properties.store(out, "ibeam code generator entity fields");
+        }
+    }
+
+    private void record(File source, Source target) {
+        generatedFields.put(key(source), StringUtils.join(target.fields.keySet(), SEPARATOR));
+    }
+
+    /**
+     * @return path of the source relative to the source folder, so the records follow the project when it moves
+     */
+    private String key(File source) {
+        String path = sourceDir.getAbsoluteFile().toURI().relativize(source.getAbsoluteFile().toURI()).getPath();
+        return new File(path).isAbsolute() ? source.getAbsolutePath() : path;
+    }
+
+    private static boolean imports(Source current, Source target, List<Edit> edits) {
+        Set<String> existing = new HashSet<>();
+        for (ImportDeclaration declaration : current.unit.getImports()) {
+            existing.add(declaration.toString().trim());
+        }
+        StringBuilder missing = new StringBuilder();
+        for (ImportDeclaration declaration : target.unit.getImports()) {
+            if (!existing.contains(declaration.toString().trim())) {
+                missing.append(declaration.toString().trim()).append('\n');
+            }
+        }
+        if (missing.length() == 0) {
+            return true;
+        }
+        Node anchor = current.unit.getImports().isEmpty() ? current.unit.getPackageDeclaration().orElse(null)
+                : current.unit.getImports().get(current.unit.getImports().size() - 1);
+        if (null == anchor || !anchor.getRange().isPresent()) {
+            return false;
+        }
+        int end = current.lineEnd(anchor.getRange().get().end);
+        edits.add(new Edit(end, end, current.unit.getImports().isEmpty() ? "\n" + missing : missing.toString()));
+        return true;
+    }
+
+    private static List<String> annotations(NodeWithAnnotations<?> node) {
+        List<String> annotations = new ArrayList<>();
+        for (Node annotation : node.getAnnotations()) {
+            annotations.add(StringUtils.deleteWhitespace(annotation.toString()));
+        }
+        Collections.sort(annotations);
+        return annotations;
+    }
+
+    /**
+     * @return text of the comment of the node without the layout, empty if it has none
+     */
+    private static String comment(Node node) {
+        Optional<Comment> comment = node.getComment();
+        return comment.isPresent() ? StringUtils.deleteWhitespace(comment.get().getContent()).replace("*", "") : "";
+    }
+
+    /**
+     * @return the code with the edits, null if two edits overlap
+     */
+    private static String apply(String code, List<Edit> edits) {
+        Collections.sort(edits, new Comparator<Edit>() {
+            @Override
+            public int compare(Edit o1, Edit o2) {
+                return o1.start != o2.start ? o2.start - o1.start : o2.end - o1.end;
+            }
+        });
+        StringBuilder builder = new StringBuilder(code);
+        int limit = code.length();
+        for (Edit edit : edits) {
+            if (edit.end > limit) {
+                return null;
+            }
+            builder.replace(edit.start, edit.end, edit.text);
+            limit = edit.start;
+        }
+        return builder.toString();
+    }
+
+    /**
+     * parsed source with the offset of each line, to edit the text at the position of the nodes
+     */
+    private static class Source {
+        private final String code;
+        private final int[] lineStarts;
+        private final CompilationUnit unit;
+        private final ClassOrInterfaceDeclaration type;
+        private final Map<String, VariableDeclarator> fields = new LinkedHashMap<>();
+        private final Map<String, FieldDeclaration> declarations = new LinkedHashMap<>();
+
+        private Source(String code, CompilationUnit unit, ClassOrInterfaceDeclaration type) {
+            this.code = code;
+            this.unit = unit;
+            this.type = type;
+            List<Integer> starts = new ArrayList<>();
+            starts.add(0);
+            for (int i = 0; i < code.length(); i++) {
+                if (code.charAt(i) == '\n') {
+                    starts.add(i + 1);
+                }
+            }
+            this.lineStarts = new int[starts.size()];
+            for (int i = 0; i < lineStarts.length; i++) {
+                lineStarts[i] = starts.get(i);
+            }
+        }
+
+        /**
+         * @return the source, null if it declares no class or a field shares its declaration with another one
+         */
+        private static Source parse(String code) {
+            CompilationUnit unit = JavaParser.parse(code);
+            if (unit.getTypes().isEmpty() || !(unit.getTypes().get(0) instanceof ClassOrInterfaceDeclaration)) {
+                return null;
+            }
+            Source source = new Source(code, unit, (ClassOrInterfaceDeclaration) unit.getTypes().get(0));
+            for (FieldDeclaration declaration : source.type.getFields()) {
+                if (declaration.isStatic()) {
+                    continue;
+                }
+                if (declaration.getVariables().size() != 1) {
+                    return null;
+                }
+                VariableDeclarator variable = declaration.getVariables().get(0);
+                source.fields.put(variable.getNameAsString(), variable);
+                source.declarations.put(variable.getNameAsString(), declaration);
+            }
+            return source;
+        }
+
+        private FieldDeclaration declaration(String name) {
+            return declarations.get(name);
+        }
+
+        private List<MethodDeclaration> accessors(String field) {
+            String suffix = StringUtils.capitalize(field);
+            List<MethodDeclaration> accessors = new ArrayList<>();
+            for (String name : Arrays.asList("get" + suffix, "is" + suffix, "set" + suffix)) {
+                for (MethodDeclaration method : type.getMethodsByName(name)) {
+                    if (method.getParameters().size() == (name.startsWith("set") ? 1 : 0)) {
+                        accessors.add(method);
+                    }
+                }
+            }
+            return accessors;
+        }
+
+        private MethodDeclaration accessor(String name, int parameters) {
+            for (MethodDeclaration method : type.getMethodsByName(name)) {
+                if (method.getParameters().size() == parameters) {
+                    return method;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * @return text of the node, without its comment
+         */
+        private String text(Node node) {
+            Range range = node.getRange().get();
+            return code.substring(offset(range.begin), offset(range.end) + 1);
+        }
+
+        /**
+         * @return the lines of the node with its comment, null if they hold other code
+         */
+        private String block(Node node) {
+            int[] lines = lines(node);
+            return null == lines ? null : code.substring(lines[0], lines[1]);
+        }
+
+        /**
+         * delete the lines of the node with its comment and the blank line before
+         */
+        private boolean remove(Node node, List<Edit> edits) {
+            int[] lines = lines(node);
+            if (null == lines) {
+                return false;
+            }
+            int start = lines[0];
+            if (start > 0) {
+                int previousStart = code.lastIndexOf('\n', start - 2) + 1;
+                if (StringUtils.isBlank(code.substring(previousStart, start))) {
+                    start = previousStart;
+                }
+            }
+            edits.add(new Edit(start, lines[1], ""));
+            return true;
+        }
+
+        /**
+         * replace the lines of the node with its comment
+         */
+        private boolean replaceLines(Node node, String text, List<Edit> edits) {
+            int[] lines = lines(node);
+            if (null == lines) {
+                return false;
+            }
+            edits.add(new Edit(lines[0], lines[1], text));
+            return true;
+        }
+
+        private boolean replace(Node node, String text, List<Edit> edits) {
+            if (!node.getRange().isPresent()) {
+                return false;
+            }
+            Range range = node.getRange().get();
+            edits.add(new Edit(offset(range.begin), offset(range.end) + 1, text));
+            return true;
+        }
+
+        /**
+         * @return offset of the line after the last instance field, -1 if the class has none
+         */
+        private int fieldsEnd() {
+            FieldDeclaration last = null;
+            for (FieldDeclaration declaration : declarations.values()) {
+                last = declaration;
+            }
+            return null == last || !last.getRange().isPresent() ? -1 : lineEnd(last.getRange().get().end);
+        }
+
+        /**
+         * @return offset of the line of the closing brace of the class
+         */
+        private int classEnd() {
+            if (!type.getRange().isPresent()) {
+                return -1;
+            }
+            Position end = type.getRange().get().end;
+            int start = lineStarts[end.line - 1];
+            return StringUtils.isBlank(code.substring(start, offset(end))) ? start : -1;
+        }
+
+        /**
+         * @return start of the first line and end of the last line of the node with its comment,
+         * null if the lines hold other code
+         */
+        private int[] lines(Node node) {
+            if (null == node || !node.getRange().isPresent()) {
+                return null;
+            }
+            Range range = node.getRange().get();
+            Position begin = range.begin;
+            Optional<Comment> comment = node.getComment();
+            if (comment.isPresent() && comment.get().getRange().isPresent()) {
+                begin = comment.get().getRange().get().begin;
+            }
+            int start = lineStarts[begin.line - 1];
+            int end = lineEnd(range.end);
+            if (!StringUtils.isBlank(code.substring(start, offset(begin)))
+                    || !StringUtils.isBlank(code.substring(offset(range.end) + 1, end))) {
+                return null;
+            }
+            return new int[]{start, end};
+        }
+
+        private int lineEnd(Position position) {
+            return position.line < lineStarts.length ? lineStarts[position.line] : code.length();
+        }
+
+        private int offset(Position position) {
+            return lineStarts[position.line - 1] + position.column - 1;
+        }
+    }
+
+    private static class Edit {
+        private final int start;
+        private final int end;
+        private final String text;
+
+        private Edit(int start, int end, String text) {
+            this.start = start;
+            this.end = end;
+            this.text = text;
+        }
+    }
+}
@@ -86,6 +86,10 @@ public interface Enumeres {
 
 		String DELETE_RELEASE = "deleteRelease";
 
+		String DELETE_CURRENT_SNAPSHOT = "deleteCurrentSnapshot";
+
+		String DELETE_CURRENT_RELEASE = "deleteCurrentRelease";
+
 		String SNAPSHOT_RETENTION_DELAY = "snapshotRetentionDelay";
 
 		String SNAPSHOT_VERSIONS_RETENTION = "snapshotVersionsRetention";
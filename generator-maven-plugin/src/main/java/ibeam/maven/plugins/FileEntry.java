@@ -0,0 +1,90 @@
+package ibeam.maven.plugins;
+
+/*
+ * Copyright 2013 The Apache Software Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0,
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * A file or folder met by a streaming walk, with its attributes read once, links not followed.
+ *
+ * @author sgu, pef, lab...
+ */
+public final class FileEntry {
+
+	private final Path path;
+
+	private final BasicFileAttributes attributes;
+
+
+	private FileEntry(final Path path, final BasicFileAttributes attributes) {
+		this.path = path;
+		this.attributes = attributes;
+	}
+
+
+	/**
+	 * Read the attributes of the given path, without following a link.
+	 *
+	 * @param path
+	 * @return the entry of the given path, or null if it doesn't exist anymore or can't be read
+	 */
+	public static FileEntry read(final Path path) {
+
+		try {
+			return new FileEntry(path, Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS));
+		}
+		catch (IOException e) {
+			return null;
+		}
+	}
+
+
+	public Path getPath() {
+		return path;
+	}
+
+	public File getFile() {
+		return path.toFile();
+	}
+
+	public String getName() {
+		return path.getFileName().toString();
+	}
+
+	/**
+	 * @return true for a folder, false for a file or a link, even to a folder
+	 */
+	public boolean isDirectory() {
+		return attributes.isDirectory();
+	}
+
+	/**
+	 * @return the size of the file, or of the link itself
+	 */
+	public long getSize() {
+		return attributes.size();
+	}
+
+	public long getLastModified() {
+		return attributes.lastModifiedTime().toMillis();
+	}
+}
@@ -0,0 +1,172 @@
+package ibeam.maven.plugins;
+
+/*
+ * Copyright 2013 The Apache Software Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0,
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Streaming walk of a folder tree, depth first, a folder before its content, links not followed.
+ * Only one directory stream per level of the tree is open, so the memory doesn't depend on the size of the tree;
+ * close the walk when it is not read to the end.
+ * The folders which can't be read are skipped, as the files deleted during the walk.
+ *
+ * @author sgu, pef, lab...
+ */
+public final class FileWalk implements Iterator<FileEntry>, Closeable {
+
+	private final Deque<DirectoryStream<Path>> streams = new ArrayDeque<DirectoryStream<Path>>();
+
+	private final Deque<Iterator<Path>> iterators = new ArrayDeque<Iterator<Path>>();
+
+	private final boolean files;
+
+	private final boolean folders;
+
+	private FileEntry next;
+
+
+	/**
+	 * @param root    the root folder, returned first if folders are returned
+	 * @param files   return the files (and links)
+	 * @param folders return the folders
+	 */
+	public FileWalk(final File root, final boolean files, final boolean folders) {
+
+		this.files = files;
+		this.folders = folders;
+
+		final FileEntry entry = FileEntry.read(root.toPath());
+
+		if (entry != null) {
+
+			if (entry.isDirectory()) {
+				open(entry.getPath());
+			}
+			if (entry.isDirectory() ? folders : files) {
+				next = entry;
+			}
+		}
+	}
+
+
+	@Override
+	public boolean hasNext() {
+
+		if (next == null) {
+			next = advance();
+		}
+		return next != null;
+	}
+
+
+	@Override
+	public FileEntry next() {
+
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		final FileEntry result = next;
+		next = null;
+		return result;
+	}
+
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+
+	@Override
+	public void close() {
+
+		while (!streams.isEmpty()) {
+			closeLevel();
+		}
+	}
+
+
+	private FileEntry advance() {
+
+		while (!iterators.isEmpty()) {
+
+			final Path path;
+
+			try {
+				if (!iterators.peek().hasNext()) {
+					closeLevel();
+					continue;
+				}
+				path = iterators.peek().next();
+			}
+			catch (DirectoryIteratorException e) {
+				closeLevel();
+				continue;
+			}
+
+			final FileEntry entry = FileEntry.read(path);
+
+			if (entry == null) {
+				continue;
+			}
+
+			if (entry.isDirectory()) {
+				open(path);
+				if (folders) {
+					return entry;
+				}
+			}
+			else if (files) {
+				return entry;
+			}
+		}
+
+		return null;
+	}
+
+
+	private void open(final Path folder) {
+
+		try {
+			final DirectoryStream<Path> stream = Files.newDirectoryStream(folder);
+			streams.push(stream);
+			iterators.push(stream.iterator());
+		}
+		catch (IOException e) {
+			// unreadable folder, skipped
+		}
+	}
+
+
+	private void closeLevel() {
+
+		iterators.pop();
+		IOUtils.closeQuietly(streams.pop());
+	}
+}
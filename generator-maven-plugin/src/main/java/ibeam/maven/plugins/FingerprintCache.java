@@ -0,0 +1,164 @@
+package ibeam.maven.plugins;
+
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Fingerprints of the code generated by the previous run, one entry per table and template.
+ * An output is up to date when its fingerprint is the same and the file was not touched since it was recorded,
+ * so it needs neither rendering nor writing again.
+ * <p>
+ * entries are stored under target/ as {@code datasource/table/template=fingerprint|length|lastModified|path}
+ */
+public class FingerprintCache {
+    public static final String FILE_NAME = "fingerprints.properties";
+
+    private static final String SEPARATOR = "|";
+
+    private final File file;
+    private final Map<String, Entry> previous;
+    private final ConcurrentMap<String, Entry> current = new ConcurrentHashMap<>();
+    private final Set<String> completeDatasources = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    private FingerprintCache(File file, Map<String, Entry> previous) {
+        this.file = file;
+        this.previous = previous;
+    }
+
+    /**
+     * load the fingerprints recorded in the given file, a missing or unreadable file is an empty cache
+     */
+    public static FingerprintCache load(File file) {
+        Map<String, Entry> entries = new ConcurrentHashMap<>();
+        if (file.exists()) {
+            Properties properties = new Properties();
+            try (InputStream in = new FileInputStream(file)) {
+                properties.load(in);
+            } catch (IOException e) {
+                properties.clear();
+            }
+            for (String key : properties.stringPropertyNames()) {
+                Entry entry = Entry.parse(properties.getProperty(key));
+                if (null != entry) {
+                    entries.put(key, entry);
+                }
+            }
+        }
+        return new FingerprintCache(file, entries);
+    }
+
+    public static String key(String db, String table, String template) {
+        return db + "/" + table + "/" + template;
+    }
+
+    /**
+     * check if the output of the given key was generated with the same fingerprint and left untouched since,
+     * an up to date entry is kept for the next run
+     */
+    public boolean isUpToDate(String key, String fingerprint) {
+        Entry entry = previous.get(key);
+        if (null == entry || !entry.fingerprint.equals(fingerprint)) {
+            return false;
+        }
+        File output = new File(entry.path);
+        if (output.length() != entry.length || output.lastModified() != entry.lastModified) {
+            return false;
+        }
+        current.put(key, entry);
+        return true;
+    }
+
+    /**
+     * record the fingerprint of an output which is now on disk
+     */
+    public void record(String key, String fingerprint, File output) {
+        current.put(key, new Entry(fingerprint, output.length(), output.lastModified(), output.getAbsolutePath()));
+    }
+
+    /**
+     * mark every table of the datasource as visited during this run, so the entries of its tables which were not
+     * visited belong to removed tables or templates and are dropped on save
+     */
+    public void complete(String db) {
+        completeDatasources.add(db);
+    }
+
+    /**
+     * @return the outputs checked or recorded during this run
+     */
+    public Set<File> getOutputs() {
+        Set<File> outputs = new HashSet<>();
+        for (Entry entry : current.values()) {
+            outputs.add(new File(entry.path));
+        }
+        return outputs;
+    }
+
+    /**
+     * save the entries checked or recorded during this run, together with the previous entries of the tables not
+     * visited, by a run limited to some tables or a datasource which failed.
+     * Entries of the datasources completely visited which were not checked again belong to removed tables and are dropped
+     */
+    public void save() throws IOException {
+        Properties properties = new Properties();
+        for (Map.Entry<String, Entry> entry : previous.entrySet()) {
+            String key = entry.getKey();
+            int separator = key.indexOf('/');
+            if (!current.containsKey(key)
+                    && (separator >= 0 && !completeDatasources.contains(key.substring(0, separator)))) {
+                properties.setProperty(key, entry.getValue().toString());
+            }
+        }
+        for (Map.Entry<String, Entry> entry : current.entrySet()) {
+            properties.setProperty(entry.getKey(), entry.getValue().toString());
+        }
+        FileUtils.forceMkdir(file.getParentFile());
+        try (OutputStream out = new FileOutputStream(file)) {
+            properties.store(out, "ibeam code generator fingerprints");
+        }
+    }
+
+    private static class Entry {
+        private final String fingerprint;
+        private final long length;
+        private final long lastModified;
+        private final String path;
+
+        private Entry(String fingerprint, long length, long lastModified, String path) {
+            this.fingerprint = fingerprint;
+            this.length = length;
+            this.lastModified = lastModified;
+            this.path = path;
+        }
+
+        private static Entry parse(String value) {
+            String[] parts = value.split("\\" + SEPARATOR, 4);
+            if (parts.length != 4) {
+                return null;
+            }
+            try {
+                return new Entry(parts[0], Long.parseLong(parts[1]), Long.parseLong(parts[2]), parts[3]);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return fingerprint + SEPARATOR + length + SEPARATOR + lastModified + SEPARATOR + path;
+        }
+    }
+}
@@ -0,0 +1,358 @@
+package ibeam.maven.plugins;
+
+/*
+ * Copyright 2013 The Apache Software Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0,
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Parallel deletion of folder trees on a fork-join pool, leaves first : each folder forks one task per sub folder
+ * and per slice of files while it streams its content, then deletes itself once they are done.
+ * The number of threads of the pool bounds the deletion throughput, to spare a shared file system.
+ *
+ * @author sgu, pef, lab...
+ */
+public final class FolderDeleter {
+
+	/**
+	 * files deleted by a task without splitting it
+	 */
+	private static final int FILES_PER_TASK = 64;
+
+	/**
+	 * folders to delete when the JVM exits, with a single shutdown hook instead of one deleteOnExit entry per file
+	 */
+	private static final Set<File> ON_EXIT = new LinkedHashSet<File>();
+
+	private static boolean hookRegistered;
+
+	private static final FolderDeleter COMMON = new FolderDeleter(ForkJoinPool.commonPool());
+
+	private final ForkJoinPool pool;
+
+
+	private FolderDeleter(final ForkJoinPool pool) {
+
+		this.pool = pool;
+	}
+
+
+	/**
+	 * @param parallelism number of threads deleting the files, the number of available processors if 0 or less
+	 */
+	public FolderDeleter(final int parallelism) {
+
+		this(new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors()));
+	}
+
+
+	/**
+	 * @return a deleter on the common fork-join pool, which must not be shut down
+	 */
+	public static FolderDeleter common() {
+
+		return COMMON;
+	}
+
+
+	/**
+	 * Delete the given folders and all their content, never throwing an exception.
+	 *
+	 * @param folders
+	 * @param log     the files which can't be deleted are logged at debug level
+	 * @return the files deleted, their bytes and the failures
+	 */
+	public Report delete(final Collection<File> folders, final Log log) {
+
+		final List<ForkJoinTask<Report>> tasks = new ArrayList<ForkJoinTask<Report>>();
+
+		for (final File folder : folders) {
+			tasks.add(pool.submit(new DeleteTask(folder, log)));
+		}
+
+		final Report report = new Report();
+
+		for (final ForkJoinTask<Report> task : tasks) {
+			report.add(task.join());
+		}
+
+		return report;
+	}
+
+
+	/**
+	 * Delete the given folder and all its content, never throwing an exception.
+	 *
+	 * @param folder
+	 * @param log
+	 * @return the files deleted, their bytes and the failures
+	 */
+	public Report delete(final File folder, final Log log) {
+
+		return pool.invoke(new DeleteTask(folder, log));
+	}
+
+
+	/**
+	 * Stop the threads of the pool, once the deletions are done.
+	 */
+	public void shutdown() {
+
+		pool.shutdown();
+	}
+
+
+	/**
+	 * Delete the given folder when the JVM exits normally, leaves first.
+	 * All the folders share one shutdown hook, so the JVM holds one entry per folder instead of one per file.
+	 *
+	 * @param folder
+	 */
+	public static void deleteOnExit(final File folder) {
+
+		synchronized (ON_EXIT) {
+
+			if (!hookRegistered) {
+
+				Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+					@Override
+					public void run() {
+
+						final List<File> folders;
+
+						synchronized (ON_EXIT) {
+							folders = new ArrayList<File>(ON_EXIT);
+						}
+
+						final FolderDeleter deleter = new FolderDeleter(0);
+
+						deleter.delete(folders, null);
+
+						deleter.shutdown();
+					}
+				}, "ibeam-delete-on-exit"));
+
+				hookRegistered = true;
+			}
+
+			ON_EXIT.add(folder.getAbsoluteFile());
+		}
+	}
+
+
+	/**
+	 * Deletes a folder, or a slice of files of a folder.
+	 * The folder is read with a directory stream, the attributes of each entry read once, and a slice task is forked
+	 * every FILES_PER_TASK files, so a folder of thousands of files is never listed in memory.
+	 */
+	private static final class DeleteTask extends RecursiveTask<Report> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final File folder;
+
+		private final transient FileEntry[] files;
+
+		private final int count;
+
+		private final transient Log log;
+
+		/**
+		 * @param folder the folder to delete with its content
+		 */
+		private DeleteTask(final File folder, final Log log) {
+			this.folder = folder;
+			this.files = null;
+			this.count = 0;
+			this.log = log;
+		}
+
+		/**
+		 * @param files the files to delete, the count first ones
+		 */
+		private DeleteTask(final FileEntry[] files, final int count, final Log log) {
+			this.folder = null;
+			this.files = files;
+			this.count = count;
+			this.log = log;
+		}
+
+		@Override
+		protected Report compute() {
+
+			if (folder == null) {
+				return deleteFiles(files, count);
+			}
+
+			final FileEntry entry = FileEntry.read(folder.toPath());
+
+			if (entry == null) {
+				// deleted meanwhile
+				return new Report();
+			}
+
+			if (!entry.isDirectory()) {
+				// a file or a link, never followed
+				return deleteFiles(new FileEntry[] { entry }, 1);
+			}
+
+			final Report report = new Report();
+
+			final List<DeleteTask> tasks = new ArrayList<DeleteTask>();
+
+			FileEntry[] slice = new FileEntry[FILES_PER_TASK];
+
+			int sliceCount = 0;
+
+			try (DirectoryStream<Path> stream = Files.newDirectoryStream(entry.getPath())) {
+
+				for (final Path path : stream) {
+
+					final FileEntry child = FileEntry.read(path);
+
+					if (child == null) {
+						continue;
+					}
+
+					if (child.isDirectory()) {
+						tasks.add(fork(new DeleteTask(child.getFile(), log)));
+					}
+					else {
+						slice[sliceCount++] = child;
+
+						if (sliceCount == FILES_PER_TASK) {
+							tasks.add(fork(new DeleteTask(slice, sliceCount, log)));
+							slice = new FileEntry[FILES_PER_TASK];
+							sliceCount = 0;
+						}
+					}
+				}
+			}
+			catch (IOException | DirectoryIteratorException e) {
+				// the content left makes the deletion of the folder fail below
+				failure(folder);
+			}
+
+			report.add(deleteFiles(slice, sliceCount));
+
+			for (final DeleteTask task : tasks) {
+				report.add(task.join());
+			}
+
+			try {
+				Files.deleteIfExists(entry.getPath());
+				report.folders++;
+			}
+			catch (IOException e) {
+				failure(folder);
+				report.failures++;
+			}
+
+			return report;
+		}
+
+		private static DeleteTask fork(final DeleteTask task) {
+			task.fork();
+			return task;
+		}
+
+		private Report deleteFiles(final FileEntry[] slice, final int sliceCount) {
+
+			final Report report = new Report();
+
+			for (int i = 0; i < sliceCount; i++) {
+
+				try {
+					if (Files.deleteIfExists(slice[i].getPath())) {
+						report.files++;
+						report.bytes += slice[i].getSize();
+					}
+				}
+				catch (IOException e) {
+					failure(slice[i].getFile());
+					report.failures++;
+				}
+			}
+
+			return report;
+		}
+
+		private void failure(final File file) {
+
+			if (log != null && log.isDebugEnabled()) {
+				log.debug(Enumeres.EXCEPTION.FILE_DELETION_EXCEPTION + file);
+			}
+		}
+	}
+
+
+	/**
+	 * Files, folders and bytes deleted, and the files or folders which could not be deleted
+	 */
+	public static final class Report {
+
+		private long files;
+
+		private long folders;
+
+		private long bytes;
+
+		private long failures;
+
+		public void add(final Report report) {
+			files += report.files;
+			folders += report.folders;
+			bytes += report.bytes;
+			failures += report.failures;
+		}
+
+		public long getFiles() {
+			return files;
+		}
+
+		public long getFolders() {
+			return folders;
+		}
+
+		public long getBytes() {
+			return bytes;
+		}
+
+		public long getFailures() {
+			return failures;
+		}
+
+		@Override
+		public String toString() {
+			return files + " files and " + folders + " folders deleted, " + bytes + " bytes, " + failures + " failures";
+		}
+	}
+}
@@ -0,0 +1,53 @@
+package ibeam.maven.plugins;
+
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Inputs and outputs of a reproducible generation, saved under target/ibeam-generator/ for build cache tools.
+ * <p>
+ * Inputs are digests of the templates, of the generator parameters, of application.properties and of the schema
+ * of every datasource, outputs are the generated files relative to the project. Entries are sorted and the file
+ * has no date, so the same inputs always give the same file.
+ */
+public class GenerationManifest {
+    public static final String FILE_NAME = "generation.properties";
+
+    private final Map<String, String> inputs = new TreeMap<>();
+    private final Set<String> outputs = new TreeSet<>();
+
+    public synchronized void input(String name, String digest) {
+        inputs.put(name, digest);
+    }
+
+    /**
+     * @param baseDir the outputs are recorded relative to this folder
+     */
+    public synchronized void outputs(File baseDir, Collection<File> files) {
+        String base = baseDir.getAbsoluteFile().toURI().getPath();
+        for (File file : files) {
+            String path = file.getAbsoluteFile().toURI().getPath();
+            outputs.add(path.startsWith(base) ? path.substring(base.length()) : path);
+        }
+    }
+
+    public synchronized void write(File file) throws IOException {
+        StringBuilder content = new StringBuilder("# inputs and outputs of the ibeam code generator\n");
+        for (Map.Entry<String, String> input : inputs.entrySet()) {
+            content.append("input.").append(input.getKey()).append('=').append(input.getValue()).append('\n');
+        }
+        int i = 0;
+        for (String output : outputs) {
+            content.append("output.").append(i++).append('=').append(output).append('\n');
+        }
+        FileUtils.writeStringToFile(file, content.toString(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,313 @@
+package ibeam.maven.plugins;
+
+import org.apache.maven.plugin.logging.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Time and allocation spent by the generator in each phase, by datasource and template,
+ * with counters of tables and files. Phases run on several threads at once are summed over the threads,
+ * so they may add up to more than the elapsed time.
+ * <p>
+ * Allocated bytes are read from the thread allocation counter of the JVM when it supports it,
+ * they are reported as -1 otherwise.
+ */
+public class GeneratorMetrics {
+    public static final String FILE_NAME = "ibeam-generator-metrics.json";
+
+    public static final String INTROSPECT = "introspect";
+    public static final String SNAPSHOT = "snapshot";
+    public static final String FINGERPRINT = "fingerprint";
+    public static final String RENDER = "render";
+    public static final String RESOLVE = "resolve";
+    public static final String MERGE = "merge";
+    public static final String WRITE = "write";
+    public static final String TOTAL = "total";
+
+    public static final String TABLES = "tables";
+    public static final String TABLES_UP_TO_DATE = "tables.upToDate";
+    public static final String FILES_WRITTEN = "files.written";
+    public static final String FILES_UNCHANGED = "files.unchanged";
+    public static final String FILES_SKIPPED = "files.skipped";
+    public static final String BYTES_WRITTEN = "bytes.written";
+
+    private static final List<String> PHASE_ORDER = Arrays.asList(INTROSPECT, SNAPSHOT, FINGERPRINT, RENDER,
+            RESOLVE, MERGE, WRITE, TOTAL);
+
+    private static final com.sun.management.ThreadMXBean ALLOCATION = allocationBean();
+
+    private final boolean enabled;
+    private final long startTime = System.currentTimeMillis();
+    private final ConcurrentMap<Key, Phase> phases = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Key, AtomicLong> counters = new ConcurrentHashMap<>();
+
+    public GeneratorMetrics() {
+        this(true);
+    }
+
+    private GeneratorMetrics(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * @return metrics recording nothing
+     */
+    public static GeneratorMetrics disabled() {
+        return new GeneratorMetrics(false);
+    }
+
+    public static boolean isAllocationSupported() {
+        return null != ALLOCATION;
+    }
+
+    /**
+     * @return sample of the current thread to pass to {@link #record} at the end of the phase
+     */
+    public Sample start() {
+        if (!enabled) {
+            return null;
+        }
+        return new Sample(System.nanoTime(), allocatedBytes());
+    }
+
+    /**
+     * add the time and allocation of the current thread since the sample to a phase
+     *
+     * @param template template name, null for phases not bound to a template
+     */
+    public void record(String datasource, String phase, String template, Sample sample) {
+        if (!enabled || null == sample) {
+            return;
+        }
+        long nanos = System.nanoTime() - sample.nanos;
+        long allocated = sample.allocated < 0 ? -1 : allocatedBytes() - sample.allocated;
+        Key key = new Key(datasource, phase, template);
+        Phase stats = phases.get(key);
+        if (null == stats) {
+            Phase created = new Phase();
+            stats = phases.putIfAbsent(key, created);
+            if (null == stats) {
+                stats = created;
+            }
+        }
+        stats.count.incrementAndGet();
+        stats.nanos.addAndGet(nanos);
+        if (allocated >= 0) {
+            stats.allocated.addAndGet(allocated);
+        }
+    }
+
+    public void count(String datasource, String counter, long value) {
+        if (!enabled) {
+            return;
+        }
+        Key key = new Key(datasource, counter, null);
+        AtomicLong total = counters.get(key);
+        if (null == total) {
+            AtomicLong created = new AtomicLong();
+            total = counters.putIfAbsent(key, created);
+            if (null == total) {
+                total = created;
+            }
+        }
+        total.addAndGet(value);
+    }
+
+    /**
+     * log one line per phase
+     */
+    public void log(Log log) {
+        if (!enabled || phases.isEmpty()) {
+            return;
+        }
+        log.info(String.format("%-16s %-12s %-16s %8s %12s %12s", "datasource", "phase", "template",
+                "count", "time (ms)", "alloc (MB)"));
+        for (Key key : sortedPhases()) {
+            Phase stats = phases.get(key);
+            log.info(String.format("%-16s %-12s %-16s %8d %12d %12s", name(key.datasource), key.name,
+                    null == key.template ? "-" : key.template, stats.count.get(), stats.nanos.get() / 1000000L,
+                    isAllocationSupported() ? String.valueOf(stats.allocated.get() / (1024 * 1024)) : "n/a"));
+        }
+        for (Map.Entry<String, Map<String, Long>> datasource : countersByDatasource().entrySet()) {
+            log.info("[" + name(datasource.getKey()) + "] " + datasource.getValue());
+        }
+    }
+
+    /**
+     * write the metrics as json
+     */
+    public void write(File file) throws IOException {
+        if (!enabled) {
+            return;
+        }
+        StringBuilder json = new StringBuilder(4096);
+        json.append("{\n  \"startTime\": ").append(startTime)
+                .append(",\n  \"elapsedMillis\": ").append(System.currentTimeMillis() - startTime)
+                .append(",\n  \"allocationSupported\": ").append(isAllocationSupported())
+                .append(",\n  \"phases\": [");
+        String separator = "\n";
+        for (Key key : sortedPhases()) {
+            Phase stats = phases.get(key);
+            json.append(separator).append("    {\"datasource\": ").append(quote(key.datasource))
+                    .append(", \"phase\": ").append(quote(key.name))
+                    .append(", \"template\": ").append(null == key.template ? "null" : quote(key.template))
+                    .append(", \"count\": ").append(stats.count.get())
+                    .append(", \"nanos\": ").append(stats.nanos.get())
+                    .append(", \"allocatedBytes\": ").append(isAllocationSupported() ? stats.allocated.get() : -1)
+                    .append('}');
+            separator = ",\n";
+        }
+        json.append("\n  ],\n  \"counters\": {");
+        separator = "\n";
+        for (Map.Entry<String, Map<String, Long>> datasource : countersByDatasource().entrySet()) {
+            json.append(separator).append("    ").append(quote(datasource.getKey())).append(": {");
+            String counterSeparator = "";
+            for (Map.Entry<String, Long> counter : datasource.getValue().entrySet()) {
+                json.append(counterSeparator).append(quote(counter.getKey())).append(": ").append(counter.getValue());
+                counterSeparator = ", ";
+            }
+            json.append('}');
+            separator = ",\n";
+        }
+        json.append("\n  }\n}\n");
+        File folder = file.getParentFile();
+        if (null != folder) {
+            Files.createDirectories(folder.toPath());
+        }
+        Files.write(file.toPath(), json.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private List<Key> sortedPhases() {
+        List<Key> keys = new ArrayList<>(phases.keySet());
+        Collections.sort(keys, new Comparator<Key>() {
+            @Override
+            public int compare(Key o1, Key o2) {
+                int result = o1.datasource.compareTo(o2.datasource);
+                if (result == 0) {
+                    result = order(o1.name) - order(o2.name);
+                }
+                if (result == 0) {
+                    result = String.valueOf(o1.template).compareTo(String.valueOf(o2.template));
+                }
+                return result;
+            }
+        });
+        return keys;
+    }
+
+    private Map<String, Map<String, Long>> countersByDatasource() {
+        Map<String, Map<String, Long>> byDatasource = new TreeMap<>();
+        for (Map.Entry<Key, AtomicLong> counter : counters.entrySet()) {
+            Map<String, Long> values = byDatasource.get(counter.getKey().datasource);
+            if (null == values) {
+                values = new TreeMap<>();
+                byDatasource.put(counter.getKey().datasource, values);
+            }
+            values.put(counter.getKey().name, counter.getValue().get());
+        }
+        return byDatasource;
+    }
+
+    private static int order(String phase) {
+        int index = PHASE_ORDER.indexOf(phase);
+        return index < 0 ? PHASE_ORDER.size() : index;
+    }
+
+    private static String name(String datasource) {
+        return datasource.isEmpty() ? "default" : datasource;
+    }
+
+    private static String quote(String value) {
+        StringBuilder builder = new StringBuilder(value.length() + 2).append('"');
+        for (char c : value.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                builder.append('\\').append(c);
+            } else if (c < 0x20) {
+                builder.append(String.format("\\u%04x", (int) c));
+            } else {
+                builder.append(c);
+            }
+        }
+        return builder.append('"').toString();
+    }
+
+    private static long allocatedBytes() {
+        return null == ALLOCATION ? -1 : ALLOCATION.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static com.sun.management.ThreadMXBean allocationBean() {
+        try {
+            ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            if (bean instanceof com.sun.management.ThreadMXBean) {
+                com.sun.management.ThreadMXBean allocation = (com.sun.management.ThreadMXBean) bean;
+                if (allocation.isThreadAllocatedMemorySupported() && allocation.isThreadAllocatedMemoryEnabled()) {
+                    return allocation;
+                }
+            }
+        } catch (LinkageError | RuntimeException e) {
+            // not a hotspot jvm
+        }
+        return null;
+    }
+
+    public static class Sample {
+        private final long nanos;
+        private final long allocated;
+
+        private Sample(long nanos, long allocated) {
+            this.nanos = nanos;
+            this.allocated = allocated;
+        }
+    }
+
+    private static class Phase {
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong nanos = new AtomicLong();
+        private final AtomicLong allocated = new AtomicLong();
+    }
+
+    private static class Key {
+        private final String datasource;
+        private final String name;
+        private final String template;
+
+        private Key(String datasource, String name, String template) {
+            this.datasource = null == datasource ? "" : datasource;
+            this.name = name;
+            this.template = template;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return datasource.equals(key.datasource) && name.equals(key.name)
+                    && (null == template ? null == key.template : template.equals(key.template));
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * datasource.hashCode() + name.hashCode()) + (null == template ? 0 : template.hashCode());
+        }
+    }
+}
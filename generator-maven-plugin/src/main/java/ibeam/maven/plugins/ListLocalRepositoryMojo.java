@@ -0,0 +1,41 @@
+package ibeam.maven.plugins;
+
+/*
+ * Copyright 2013 The Apache Software Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0,
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import org.apache.maven.plugins.annotations.Mojo;
+
+/**
+ * Dry run of the clean goal : list the artifact versions the clean goal would delete
+ * and the bytes it would reclaim, without deleting anything.
+ *
+ * @author sgu, pef, lab...
+ * @version $Id$
+ */
+@Mojo(name = Enumeres.MVN_GOAL.LIST, requiresProject = false, threadSafe = true)
+public class ListLocalRepositoryMojo extends CleanLocalRepositoryMojo {
+
+	/**
+	 * This method implementation define the deletion mode associated with the current goal.
+	 *
+	 * @return false in the current "list" goal context
+	 */
+	@Override
+	protected boolean isDeleteModeActivated() {
+		return false;
+	}
+
+}
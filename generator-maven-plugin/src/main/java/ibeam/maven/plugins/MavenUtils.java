@@ -39,22 +39,6 @@ public final class MavenUtils {
 	}
 	
 	
-	/**
-	 * In a standard Maven repository file system, get recursively all the snapshots folders from a given folder. 
-	 * 
-	 * @param Artifactfolder
-	 * @return
-	 */
-	public static List<File> getSnapshots(File Artifactfolder) {
-		
-		final List<File> folderContent = Tools.listSubFoldersOrdered(Artifactfolder);
-		
-		final List<File> snapshotFoldersList = MavenUtils.getSnapshots(folderContent);
-		
-		return snapshotFoldersList;
-	}
-	
-	
 	/**
 	 * Get all the snapshot folders from a given list of artifact folders 
 	 * 
@@ -123,7 +107,7 @@ public final class MavenUtils {
 	 * @param file
 	 * @return true if the given file is a snapshot artifact, false otherwise.
 	 */
-	private static boolean isSnapshotFolder(final File file) {
+	public static boolean isSnapshotFolder(final File file) {
 		
 		final String path = file.getAbsolutePath();
 		
@@ -0,0 +1,132 @@
+package ibeam.maven.plugins;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Package or class name template such as {@code ${BASE_PKG_NAME}.${DOMAIN}.entity} or {@code ${entity.className}Dao},
+ * compiled once into literals and property paths so it is evaluated without the template engine.
+ * <p>
+ * Only plain references ({@code ${name}} and {@code ${name.property}}) are supported,
+ * {@link #compile} returns null for any other FreeMarker syntax so the caller falls back to the template engine.
+ */
+public final class NameExpression {
+    private static final ConcurrentMap<String, Method> GETTERS = new ConcurrentHashMap<>();
+
+    /**
+     * literals are kept as String, references as String[] paths
+     */
+    private final Object[] parts;
+
+    private NameExpression(Object[] parts) {
+        this.parts = parts;
+    }
+
+    /**
+     * @return the compiled expression, null if the template uses more than plain references
+     */
+    public static NameExpression compile(String template) {
+        if (template.contains("<#") || template.contains("#{")) {
+            return null;
+        }
+        List<Object> parts = new ArrayList<>();
+        int i = 0;
+        while (i < template.length()) {
+            int start = template.indexOf("${", i);
+            if (start < 0) {
+                parts.add(template.substring(i));
+                break;
+            }
+            if (start > i) {
+                parts.add(template.substring(i, start));
+            }
+            int end = template.indexOf('}', start);
+            if (end < 0) {
+                return null;
+            }
+            String[] path = template.substring(start + 2, end).trim().split("\\.", -1);
+            for (String name : path) {
+                if (!isIdentifier(name)) {
+                    return null;
+                }
+            }
+            parts.add(path);
+            i = end + 1;
+        }
+        return new NameExpression(parts.toArray());
+    }
+
+    /**
+     * @return the name, null if a reference is missing or null in the model
+     */
+    public String evaluate(Map<String, ?> model) {
+        StringBuilder builder = new StringBuilder(64);
+        for (Object part : parts) {
+            if (part instanceof String) {
+                builder.append((String) part);
+                continue;
+            }
+            String[] path = (String[]) part;
+            Object value = model.get(path[0]);
+            for (int i = 1; i < path.length && null != value; i++) {
+                value = property(value, path[i]);
+            }
+            if (null == value) {
+                return null;
+            }
+            builder.append(value);
+        }
+        return builder.toString();
+    }
+
+    private static Object property(Object bean, String name) {
+        if (bean instanceof Map) {
+            return ((Map<?, ?>) bean).get(name);
+        }
+        String key = bean.getClass().getName() + "#" + name;
+        Method getter = GETTERS.get(key);
+        if (null == getter) {
+            getter = findGetter(bean.getClass(), name);
+            if (null == getter) {
+                return null;
+            }
+            GETTERS.putIfAbsent(key, getter);
+        }
+        try {
+            return getter.invoke(bean);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private static Method findGetter(Class<?> type, String name) {
+        String suffix = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        for (String prefix : new String[]{"get", "is"}) {
+            try {
+                Method method = type.getMethod(prefix + suffix);
+                if (method.getReturnType() != void.class) {
+                    return method;
+                }
+            } catch (NoSuchMethodException e) {
+                // try the next prefix
+            }
+        }
+        return null;
+    }
+
+    private static boolean isIdentifier(String name) {
+        if (name.isEmpty() || !Character.isJavaIdentifierStart(name.charAt(0))) {
+            return false;
+        }
+        for (int i = 1; i < name.length(); i++) {
+            if (!Character.isJavaIdentifierPart(name.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,89 @@
+package ibeam.maven.plugins;
+
+import ibeam.code.vo.EntityTable;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * all the source code rendered for one table, waiting to be written to disk
+ */
+public class RenderedTable {
+    private final EntityTable table;
+    private final String domain;
+    private final List<Code> codes = new ArrayList<>(4);
+
+    public RenderedTable(EntityTable table, String domain) {
+        this.table = table;
+        this.domain = domain;
+    }
+
+    public EntityTable getTable() {
+        return table;
+    }
+
+    public String getDomain() {
+        return domain;
+    }
+
+    public List<Code> getCodes() {
+        return codes;
+    }
+
+    public void add(String type, File file, String code, String cacheKey, String fingerprint) {
+        codes.add(new Code(type, file, code, cacheKey, fingerprint));
+    }
+
+    /**
+     * @return true if every output of the table is up to date, nothing was rendered
+     */
+    public boolean isUpToDate() {
+        return codes.isEmpty();
+    }
+
+    /**
+     * one rendered source file
+     */
+    public static class Code {
+        private final String type;
+        private final File file;
+        private final String code;
+        private final String cacheKey;
+        private final String fingerprint;
+
+        public Code(String type, File file, String code, String cacheKey, String fingerprint) {
+            this.type = type;
+            this.file = file;
+            this.code = code;
+            this.cacheKey = cacheKey;
+            this.fingerprint = fingerprint;
+        }
+
+        /**
+         * @return template name the code is rendered with, such as entity, dao...
+         */
+        public String getType() {
+            return type;
+        }
+
+        public File getFile() {
+            return file;
+        }
+
+        public String getCode() {
+            return code;
+        }
+
+        /**
+         * @return key of the output in the fingerprint cache, null when generating without cache
+         */
+        public String getCacheKey() {
+            return cacheKey;
+        }
+
+        public String getFingerprint() {
+            return fingerprint;
+        }
+    }
+}
@@ -0,0 +1,522 @@
+package ibeam.maven.plugins;
+
+/*
+ * Copyright 2013 The Apache Software Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0,
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Index of the folders of a local maven repository, saved in the repository so the next runs don't scan it again.
+ * Each version folder records its newest file date, its size and its snapshot flag; the other folders record
+ * their sub folders.
+ * <p>
+ * A folder whose modification date did not change since it was indexed still has the same sub folders, so an update
+ * only reads the date of each folder and lists the changed ones. A version folder is listed at every update: a file
+ * rewritten in place doesn't change the date of its folder, but does change the newest file date and the size.
+ * Sorting and retention then run on the index.
+ * <p>
+ * format: magic, version, folder count, then the folders in one deflated data stream.
+ *
+ * @author sgu, pef, lab...
+ */
+public final class RepositoryIndex {
+
+	/**
+	 * Default name of the index file, in the local repository folder
+	 */
+	public static final String FILE_NAME = ".ibeam-repository.index";
+
+	/**
+	 * Order the version folders on their newest file, the most recent first, then on their path
+	 */
+	public static final Comparator<Folder> NEWEST_FIRST = new Comparator<Folder>() {
+		@Override
+		public int compare(final Folder folder0, final Folder folder1) {
+			final int result = Long.compare(folder1.newest, folder0.newest);
+			return result != 0 ? result : folder0.path.compareTo(folder1.path);
+		}
+	};
+
+	private static final int MAGIC = 0x49425249;
+
+	private static final int VERSION = 2;
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * a folder modified less than this before it was listed may change again within the same date,
+	 * on file systems with a one or two second precision, it is listed again at the next update
+	 */
+	private static final long DATE_PRECISION = 2000L;
+
+	/**
+	 * folders at this depth (org/apache, com/google..) are scanned in parallel
+	 */
+	private static final int PARALLEL_DEPTH = 2;
+
+	/**
+	 * depth of the shallowest version folders, groupId/artifactId/version
+	 */
+	private static final int VERSION_DEPTH = 3;
+
+	private static final String[] NO_CHILDREN = new String[0];
+
+	private final File localRepositoryFolder;
+
+	private final Map<String, Folder> folders;
+
+	private final AtomicInteger listed = new AtomicInteger();
+
+
+	private RepositoryIndex(final File localRepositoryFolder, final Map<String, Folder> folders) {
+		this.localRepositoryFolder = localRepositoryFolder;
+		this.folders = folders;
+	}
+
+
+	/**
+	 * Load the index saved in the given file, a missing, unreadable or outdated file is an empty index.
+	 *
+	 * @param localRepositoryFolder
+	 * @param file
+	 * @return the index of the given repository, call {@link #update(ExecutorService)} before using it
+	 */
+	public static RepositoryIndex load(final File localRepositoryFolder, final File file) {
+
+		final Map<String, Folder> folders = new ConcurrentHashMap<String, Folder>();
+
+		if (file.isFile()) {
+			try {
+				read(file, folders);
+			}
+			catch (IOException e) {
+				folders.clear();
+			}
+		}
+
+		return new RepositoryIndex(localRepositoryFolder, folders);
+	}
+
+
+	private static void read(final File file, final Map<String, Folder> folders) throws IOException {
+
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE))) {
+
+			if (in.readInt() != MAGIC || in.readShort() != VERSION) {
+				throw new IOException(file + " is not a repository index of this version");
+			}
+
+			final int count = in.readInt();
+
+			final DataInputStream data = new DataInputStream(new BufferedInputStream(new InflaterInputStream(in), BUFFER_SIZE));
+
+			for (int i = 0; i < count; i++) {
+
+				final String path = data.readUTF();
+				final long modified = data.readLong();
+
+				if (data.readBoolean()) {
+					folders.put(path, new Folder(path, modified, data.readBoolean(), data.readLong(), data.readLong(),
+							data.readInt()));
+				}
+				else {
+					final String[] children = new String[data.readInt()];
+					for (int j = 0; j < children.length; j++) {
+						children[j] = data.readUTF();
+					}
+					folders.put(path, new Folder(path, modified, children));
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Save the index, through a temporary file so a concurrent build never reads half an index.
+	 *
+	 * @param file
+	 * @throws IOException
+	 */
+	public void write(final File file) throws IOException {
+
+		final List<Folder> sorted = new ArrayList<Folder>(folders.values());
+
+		Collections.sort(sorted, new Comparator<Folder>() {
+			@Override
+			public int compare(final Folder folder0, final Folder folder1) {
+				return folder0.path.compareTo(folder1.path);
+			}
+		});
+
+		final Path temporary = Files.createTempFile(file.getParentFile().toPath(), file.getName() + ".", ".tmp");
+
+		try {
+			write(temporary, sorted);
+
+			try {
+				Files.move(temporary, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			}
+			catch (AtomicMoveNotSupportedException e) {
+				Files.move(temporary, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		}
+		finally {
+			// left only when the index could not be written
+			Files.deleteIfExists(temporary);
+		}
+	}
+
+
+	private static void write(final Path file, final List<Folder> sorted) throws IOException {
+
+		final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(file.toFile()), BUFFER_SIZE))) {
+
+			out.writeInt(MAGIC);
+			out.writeShort(VERSION);
+			out.writeInt(sorted.size());
+
+			final DataOutputStream data = new DataOutputStream(new BufferedOutputStream(
+					new DeflaterOutputStream(out, deflater, BUFFER_SIZE), BUFFER_SIZE));
+
+			for (final Folder folder : sorted) {
+
+				data.writeUTF(folder.path);
+				data.writeLong(folder.modified);
+				data.writeBoolean(folder.version);
+
+				if (folder.version) {
+					data.writeBoolean(folder.snapshot);
+					data.writeLong(folder.newest);
+					data.writeLong(folder.size);
+					data.writeInt(folder.fileCount);
+				}
+				else {
+					data.writeInt(folder.children.length);
+					for (final String child : folder.children) {
+						data.writeUTF(child);
+					}
+				}
+			}
+			data.close();
+		}
+		finally {
+			deflater.end();
+		}
+	}
+
+
+	/**
+	 * Bring the index up to date with the repository in one parallel walk: the version folders and the folders whose
+	 * date changed are listed, the sub folders of the others are taken from the index, and the folders gone are dropped.
+	 *
+	 * @param executor
+	 * @return the number of folders listed
+	 * @throws IOException
+	 */
+	public int update(final ExecutorService executor) throws IOException {
+
+		final Map<String, Folder> previous = new HashMap<String, Folder>(folders);
+
+		final Map<String, Folder> current = new ConcurrentHashMap<String, Folder>();
+
+		final List<Future<?>> futures = new ArrayList<Future<?>>();
+
+		listed.set(0);
+
+		scan("", localRepositoryFolder, localRepositoryFolder.lastModified(), 0, previous, current, executor, futures);
+
+		for (final Future<?> future : futures) {
+			try {
+				future.get();
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("interrupted while indexing " + localRepositoryFolder, e);
+			}
+			catch (ExecutionException e) {
+				throw new IOException("failed to index " + localRepositoryFolder, e.getCause());
+			}
+		}
+
+		folders.clear();
+		folders.putAll(current);
+
+		return listed.get();
+	}
+
+
+	private void scan(final String path, final File directory, final long modified, final int depth,
+			final Map<String, Folder> previous, final Map<String, Folder> current,
+			final ExecutorService executor, final List<Future<?>> futures) {
+
+		Folder folder = previous.get(path);
+
+		// the files of a version folder are measured again, a jar or pom rewritten in place keeps the folder date
+		if (folder == null || folder.version || folder.modified != modified) {
+			folder = list(path, directory, modified, depth);
+		}
+
+		current.put(path, folder);
+
+		for (final String child : folder.children) {
+
+			final String childPath = path.isEmpty() ? child : path + "/" + child;
+
+			final File childDirectory = new File(directory, child);
+
+			final long childModified = childDirectory.lastModified();
+
+			if (childModified == 0L) {
+				// deleted meanwhile
+				continue;
+			}
+
+			if (executor != null && depth + 1 == PARALLEL_DEPTH) {
+
+				futures.add(executor.submit(new Callable<Void>() {
+					@Override
+					public Void call() {
+						scan(childPath, childDirectory, childModified, depth + 1, previous, current, null, null);
+						return null;
+					}
+				}));
+			}
+			else {
+				scan(childPath, childDirectory, childModified, depth + 1, previous, current, executor, futures);
+			}
+		}
+	}
+
+
+	/**
+	 * List a folder once: a folder holding files named after its artifact (artifactId-version.pom,
+	 * artifactId-version.jar..) is a version folder, measured with its sub folders, otherwise its sub folders
+	 * are recorded.
+	 */
+	private Folder list(final String path, final File directory, final long modified, final int depth) {
+
+		listed.incrementAndGet();
+
+		final long recorded = System.currentTimeMillis() - modified < DATE_PRECISION ? -1L : modified;
+
+		final String prefix = depth >= VERSION_DEPTH ? directory.getParentFile().getName() + "-" : null;
+
+		final List<String> children = new ArrayList<String>();
+
+		boolean version = false;
+
+		long newest = 0L;
+
+		long size = 0L;
+
+		int fileCount = 0;
+
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory.toPath())) {
+
+			for (final Path child : stream) {
+
+				final FileEntry entry = FileEntry.read(child);
+
+				if (entry == null) {
+					continue;
+				}
+
+				if (entry.isDirectory()) {
+					children.add(entry.getName());
+				}
+				else if (!entry.getName().equals(FILE_NAME)) {
+					version |= prefix != null && entry.getName().startsWith(prefix);
+					newest = Math.max(newest, entry.getLastModified());
+					size += entry.getSize();
+					fileCount++;
+				}
+			}
+		}
+		catch (IOException | DirectoryIteratorException e) {
+			// unreadable folder, listed again at the next update
+			return new Folder(path, -1L, NO_CHILDREN);
+		}
+
+		if (!version) {
+			Collections.sort(children);
+			return new Folder(path, recorded, children.toArray(new String[children.size()]));
+		}
+
+		for (final String child : children) {
+
+			try (FileWalk walk = Tools.iterateFiles(new File(directory, child))) {
+
+				while (walk.hasNext()) {
+					final FileEntry file = walk.next();
+					newest = Math.max(newest, file.getLastModified());
+					size += file.getSize();
+					fileCount++;
+				}
+			}
+		}
+
+		// the date of the folder changes with any file added or removed, the newest file tells when it was used
+		return new Folder(path, recorded, MavenUtils.isSnapshotFolder(directory), fileCount > 0 ? newest : modified, size,
+				fileCount);
+	}
+
+
+	/**
+	 * @return the version folders of the index, the most recent first
+	 */
+	public List<Folder> getVersionFolders() {
+
+		final List<Folder> result = new ArrayList<Folder>();
+
+		for (final Folder folder : folders.values()) {
+
+			if (folder.version) {
+				result.add(folder);
+			}
+		}
+
+		Collections.sort(result, NEWEST_FIRST);
+
+		return result;
+	}
+
+
+	/**
+	 * Drop a deleted version folder from the index, its parent folder is listed again at the next update.
+	 *
+	 * @param folder
+	 */
+	public void remove(final Folder folder) {
+
+		folders.remove(folder.path);
+	}
+
+
+	/**
+	 * @param folder
+	 * @return the folder of the repository matching the given entry
+	 */
+	public File getFile(final Folder folder) {
+
+		return new File(localRepositoryFolder, folder.path);
+	}
+
+
+	/**
+	 * Entry of a folder of the index, a version folder or a folder holding other folders
+	 */
+	public static final class Folder {
+
+		private final String path;
+
+		private final long modified;
+
+		private final boolean version;
+
+		private final String[] children;
+
+		private final boolean snapshot;
+
+		private final long newest;
+
+		private final long size;
+
+		private final int fileCount;
+
+		private Folder(final String path, final long modified, final String[] children) {
+			this.path = path;
+			this.modified = modified;
+			this.version = false;
+			this.children = children;
+			this.snapshot = false;
+			this.newest = modified;
+			this.size = 0L;
+			this.fileCount = 0;
+		}
+
+		private Folder(final String path, final long modified, final boolean snapshot, final long newest,
+				final long size, final int fileCount) {
+			this.path = path;
+			this.modified = modified;
+			this.version = true;
+			this.children = NO_CHILDREN;
+			this.snapshot = snapshot;
+			this.newest = newest;
+			this.size = size;
+			this.fileCount = fileCount;
+		}
+
+		/**
+		 * @return the path of the folder in the repository, with / separators
+		 */
+		public String getPath() {
+			return path;
+		}
+
+		public boolean isSnapshot() {
+			return snapshot;
+		}
+
+		/**
+		 * @return the modification date of the newest file of the version folder
+		 */
+		public long getNewest() {
+			return newest;
+		}
+
+		/**
+		 * @return the bytes of the files of the version folder
+		 */
+		public long getSize() {
+			return size;
+		}
+
+		public int getFileCount() {
+			return fileCount;
+		}
+	}
+}
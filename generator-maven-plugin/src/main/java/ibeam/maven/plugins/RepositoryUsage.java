@@ -0,0 +1,315 @@
+package ibeam.maven.plugins;
+
+/*
+ * Copyright 2013 The Apache Software Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0,
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Disk usage of a local repository, from the version folders of its {@link RepositoryIndex} :
+ * bytes, files and versions per groupId, per artifact, snapshot or release and age of the newest file.
+ *
+ * @author sgu, pef, lab...
+ */
+public final class RepositoryUsage {
+
+	public static final String SNAPSHOT = "snapshot";
+
+	public static final String RELEASE = "release";
+
+	/**
+	 * upper bounds in days of the age buckets, the last bucket has none
+	 */
+	private static final int[] AGE_LIMITS = { 30, 90, 365 };
+
+	private static final String[] AGE_BUCKETS = { "less than 30 days", "30 to 90 days", "90 to 365 days", "more than a year" };
+
+	private static final long DAY = 24L * 60L * 60L * 1000L;
+
+	private final long now;
+
+	private final Usage total = new Usage();
+
+	private final Map<String, Usage> kinds = new LinkedHashMap<String, Usage>();
+
+	private final Map<String, Usage> ages = new LinkedHashMap<String, Usage>();
+
+	private final Map<String, Usage> groupIds = new HashMap<String, Usage>();
+
+	private final Map<String, Usage> artifacts = new HashMap<String, Usage>();
+
+
+	/**
+	 * @param now the date the ages are computed from
+	 */
+	public RepositoryUsage(final long now) {
+
+		this.now = now;
+
+		kinds.put(SNAPSHOT, new Usage());
+		kinds.put(RELEASE, new Usage());
+
+		for (final String bucket : AGE_BUCKETS) {
+			ages.put(bucket, new Usage());
+		}
+	}
+
+
+	/**
+	 * Count a version folder, groupId/artifactId/version
+	 *
+	 * @param folder
+	 */
+	public void add(final RepositoryIndex.Folder folder) {
+
+		final String[] segments = folder.getPath().split("/");
+
+		if (segments.length < 3) {
+			return;
+		}
+
+		final StringBuilder groupId = new StringBuilder(segments[0]);
+
+		for (int i = 1; i < segments.length - 2; i++) {
+			groupId.append('.').append(segments[i]);
+		}
+
+		final String artifactId = segments[segments.length - 2];
+
+		total.add(folder);
+		kinds.get(folder.isSnapshot() ? SNAPSHOT : RELEASE).add(folder);
+		ages.get(ageBucket(folder.getNewest())).add(folder);
+		usage(groupIds, groupId.toString()).add(folder);
+		usage(artifacts, groupId + ":" + artifactId).add(folder);
+	}
+
+
+	private String ageBucket(final long newest) {
+
+		final long days = (now - newest) / DAY;
+
+		for (int i = 0; i < AGE_LIMITS.length; i++) {
+
+			if (days < AGE_LIMITS[i]) {
+				return AGE_BUCKETS[i];
+			}
+		}
+
+		return AGE_BUCKETS[AGE_LIMITS.length];
+	}
+
+
+	private static Usage usage(final Map<String, Usage> usages, final String name) {
+
+		Usage usage = usages.get(name);
+
+		if (usage == null) {
+			usage = new Usage();
+			usages.put(name, usage);
+		}
+
+		return usage;
+	}
+
+
+	/**
+	 * @return the lines of a table of the total, the snapshots and releases, the age buckets,
+	 *         and the given number of biggest groupIds and artifacts
+	 */
+	public List<String> toTable(final int top) {
+
+		final List<String> lines = new ArrayList<String>();
+
+		lines.add(String.format(Locale.ROOT, "%12s %6s %10s %9s  %s", "size", "share", "files", "versions", "name"));
+
+		line(lines, "total", total);
+
+		lines.add("");
+		for (final Map.Entry<String, Usage> kind : kinds.entrySet()) {
+			line(lines, kind.getKey(), kind.getValue());
+		}
+
+		lines.add("");
+		for (final Map.Entry<String, Usage> age : ages.entrySet()) {
+			line(lines, age.getKey(), age.getValue());
+		}
+
+		lines.add("");
+		lines.add("top " + top + " groupIds");
+		for (final Map.Entry<String, Usage> groupId : sorted(groupIds, top)) {
+			line(lines, groupId.getKey(), groupId.getValue());
+		}
+
+		lines.add("");
+		lines.add("top " + top + " artifacts");
+		for (final Map.Entry<String, Usage> artifact : sorted(artifacts, top)) {
+			line(lines, artifact.getKey(), artifact.getValue());
+		}
+
+		return lines;
+	}
+
+
+	private void line(final List<String> lines, final String name, final Usage usage) {
+
+		final double share = total.bytes == 0L ? 0d : 100d * usage.bytes / total.bytes;
+
+		lines.add(String.format(Locale.ROOT, "%12s %5.1f%% %10d %9d  %s", FileUtils.byteCountToDisplaySize(usage.bytes),
+				share, usage.files, usage.versions, name));
+	}
+
+
+	/**
+	 * @return the usages, the biggest first, at most max of them
+	 */
+	private static List<Map.Entry<String, Usage>> sorted(final Map<String, Usage> usages, final int max) {
+
+		final List<Map.Entry<String, Usage>> result = new ArrayList<Map.Entry<String, Usage>>(usages.entrySet());
+
+		Collections.sort(result, new Comparator<Map.Entry<String, Usage>>() {
+			@Override
+			public int compare(final Map.Entry<String, Usage> usage0, final Map.Entry<String, Usage> usage1) {
+				final int order = Long.compare(usage1.getValue().bytes, usage0.getValue().bytes);
+				return order != 0 ? order : usage0.getKey().compareTo(usage1.getKey());
+			}
+		});
+
+		return result.size() > max ? result.subList(0, max) : result;
+	}
+
+
+	/**
+	 * @param repository the path of the repository, written as is
+	 * @return the whole usage as JSON, groupIds and artifacts the biggest first
+	 */
+	public String toJson(final String repository) {
+
+		final StringBuilder json = new StringBuilder(4096);
+
+		json.append("{\n  \"repository\": ");
+		string(json, repository);
+		json.append(",\n  \"total\": ");
+		object(json, total);
+
+		json.append(",\n  \"kinds\": {");
+		entries(json, new ArrayList<Map.Entry<String, Usage>>(kinds.entrySet()), false);
+		json.append("\n  },\n  \"ages\": {");
+		entries(json, new ArrayList<Map.Entry<String, Usage>>(ages.entrySet()), false);
+		json.append("\n  },\n  \"groupIds\": [");
+		entries(json, sorted(groupIds, Integer.MAX_VALUE), true);
+		json.append("\n  ],\n  \"artifacts\": [");
+		entries(json, sorted(artifacts, Integer.MAX_VALUE), true);
+		json.append("\n  ]\n}\n");
+
+		return json.toString();
+	}
+
+
+	private static void entries(final StringBuilder json, final List<Map.Entry<String, Usage>> usages, final boolean array) {
+
+		String separator = "\n    ";
+
+		for (final Map.Entry<String, Usage> usage : usages) {
+
+			json.append(separator);
+			separator = ",\n    ";
+
+			if (array) {
+				json.append("{\"name\": ");
+				string(json, usage.getKey());
+				json.append(", \"usage\": ");
+				object(json, usage.getValue());
+				json.append('}');
+			}
+			else {
+				string(json, usage.getKey());
+				json.append(": ");
+				object(json, usage.getValue());
+			}
+		}
+	}
+
+
+	private static void object(final StringBuilder json, final Usage usage) {
+
+		json.append("{\"bytes\": ").append(usage.bytes)
+				.append(", \"files\": ").append(usage.files)
+				.append(", \"versions\": ").append(usage.versions).append('}');
+	}
+
+
+	private static void string(final StringBuilder json, final String value) {
+
+		json.append('"');
+
+		for (int i = 0; i < value.length(); i++) {
+
+			final char c = value.charAt(i);
+
+			if (c == '"' || c == '\\') {
+				json.append('\\').append(c);
+			}
+			else if (c < 0x20) {
+				json.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+			}
+			else {
+				json.append(c);
+			}
+		}
+
+		json.append('"');
+	}
+
+
+	/**
+	 * Bytes, files and version folders of a part of the repository
+	 */
+	public static final class Usage {
+
+		private long bytes;
+
+		private long files;
+
+		private long versions;
+
+		private void add(final RepositoryIndex.Folder folder) {
+			bytes += folder.getSize();
+			files += folder.getFileCount();
+			versions++;
+		}
+
+		public long getBytes() {
+			return bytes;
+		}
+
+		public long getFiles() {
+			return files;
+		}
+
+		public long getVersions() {
+			return versions;
+		}
+	}
+}
@@ -0,0 +1,221 @@
+package ibeam.maven.plugins;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Forward only, read only result set over rows held in memory, such as the metadata read by {@link BulkMetadata}.
+ * <p>
+ * Only the getters used to read metadata are supported: strings, numbers, booleans and objects,
+ * by column index or label.
+ */
+public final class RowResultSet implements InvocationHandler {
+    private final String[] labels;
+    private final List<Object[]> rows;
+    private int row = -1;
+    private boolean wasNull;
+    private boolean closed;
+
+    private RowResultSet(String[] labels, List<Object[]> rows) {
+        this.labels = labels;
+        this.rows = rows;
+    }
+
+    /**
+     * @param labels column labels of the rows
+     * @param rows   one value per label for each row
+     */
+    public static ResultSet of(String[] labels, List<Object[]> rows) {
+        return (ResultSet) Proxy.newProxyInstance(RowResultSet.class.getClassLoader(),
+                new Class<?>[]{ResultSet.class}, new RowResultSet(labels, rows));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        String name = method.getName();
+        switch (name) {
+            case "next":
+                checkOpen();
+                return ++row < rows.size();
+            case "close":
+                closed = true;
+                return null;
+            case "isClosed":
+                return closed;
+            case "wasNull":
+                return wasNull;
+            case "findColumn":
+                return column((String) args[0]);
+            case "getMetaData":
+                return metaData();
+            case "getType":
+                return ResultSet.TYPE_FORWARD_ONLY;
+            case "getConcurrency":
+                return ResultSet.CONCUR_READ_ONLY;
+            case "getFetchDirection":
+                return ResultSet.FETCH_FORWARD;
+            case "getRow":
+                return row < rows.size() ? row + 1 : 0;
+            case "isBeforeFirst":
+                return row < 0 && !rows.isEmpty();
+            case "isAfterLast":
+                return row >= rows.size() && !rows.isEmpty();
+            case "getStatement":
+            case "getWarnings":
+            case "clearWarnings":
+            case "setFetchSize":
+            case "setFetchDirection":
+                return null;
+            case "isWrapperFor":
+                return ((Class<?>) args[0]).isInstance(proxy);
+            case "unwrap":
+                return ((Class<?>) args[0]).cast(proxy);
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "equals":
+                return proxy == args[0];
+            case "toString":
+                return "RowResultSet" + Arrays.toString(labels);
+            default:
+                break;
+        }
+        if (name.startsWith("get") && null != args && args.length == 1) {
+            return convert(value(args[0]), method.getReturnType());
+        }
+        if ("getObject".equals(name) && null != args && args.length == 2 && args[1] instanceof Class) {
+            Object value = value(args[0]);
+            return null == value ? null : ((Class<?>) args[1]).cast(convert(value, (Class<?>) args[1]));
+        }
+        throw new SQLFeatureNotSupportedException(name + " is not supported by an in-memory result set");
+    }
+
+    private Object value(Object column) throws SQLException {
+        checkOpen();
+        if (row < 0 || row >= rows.size()) {
+            throw new SQLException("no current row");
+        }
+        int index = column instanceof Integer ? (Integer) column : column((String) column);
+        if (index < 1 || index > labels.length) {
+            throw new SQLException("no column " + column);
+        }
+        Object value = rows.get(row)[index - 1];
+        wasNull = null == value;
+        return value;
+    }
+
+    private static Object convert(Object value, Class<?> type) throws SQLException {
+        if (type == Object.class || (null != value && type.isInstance(value))) {
+            return value;
+        }
+        if (type == String.class) {
+            return null == value ? null : value.toString();
+        }
+        if (type == boolean.class || type == Boolean.class) {
+            if (value instanceof Number) {
+                return ((Number) value).intValue() != 0;
+            }
+            String text = null == value ? "" : value.toString().trim();
+            return "true".equalsIgnoreCase(text) || "yes".equalsIgnoreCase(text) || "1".equals(text);
+        }
+        Number number;
+        if (null == value) {
+            number = 0;
+        } else if (value instanceof Number) {
+            number = (Number) value;
+        } else if (value instanceof Boolean) {
+            number = (Boolean) value ? 1 : 0;
+        } else {
+            try {
+                number = new BigDecimal(value.toString().trim());
+            } catch (NumberFormatException e) {
+                throw new SQLException("[" + value + "] is not a number", e);
+            }
+        }
+        if (type == int.class || type == Integer.class) {
+            return number.intValue();
+        }
+        if (type == long.class || type == Long.class) {
+            return number.longValue();
+        }
+        if (type == short.class || type == Short.class) {
+            return number.shortValue();
+        }
+        if (type == byte.class || type == Byte.class) {
+            return number.byteValue();
+        }
+        if (type == double.class || type == Double.class) {
+            return number.doubleValue();
+        }
+        if (type == float.class || type == Float.class) {
+            return number.floatValue();
+        }
+        if (type == BigDecimal.class) {
+            return null == value ? null : new BigDecimal(number.toString());
+        }
+        throw new SQLFeatureNotSupportedException("can't read " + type.getSimpleName()
+                + " from an in-memory result set");
+    }
+
+    private int column(String label) throws SQLException {
+        for (int i = 0; i < labels.length; i++) {
+            if (labels[i].equalsIgnoreCase(label)) {
+                return i + 1;
+            }
+        }
+        throw new SQLException("no column " + label);
+    }
+
+    private void checkOpen() throws SQLException {
+        if (closed) {
+            throw new SQLException("result set is closed");
+        }
+    }
+
+    private ResultSetMetaData metaData() {
+        return (ResultSetMetaData) Proxy.newProxyInstance(RowResultSet.class.getClassLoader(),
+                new Class<?>[]{ResultSetMetaData.class}, new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                        switch (method.getName()) {
+                            case "getColumnCount":
+                                return labels.length;
+                            case "getColumnLabel":
+                            case "getColumnName":
+                                return labels[(Integer) args[0] - 1];
+                            case "getColumnType":
+                                return Types.VARCHAR;
+                            case "getColumnTypeName":
+                                return "VARCHAR";
+                            case "getColumnClassName":
+                                return Object.class.getName();
+                            case "isNullable":
+                                return ResultSetMetaData.columnNullableUnknown;
+                            case "isReadOnly":
+                                return true;
+                            default:
+                                break;
+                        }
+                        if (method.getReturnType() == boolean.class) {
+                            return false;
+                        }
+                        if (method.getReturnType() == int.class) {
+                            return 0;
+                        }
+                        if (method.getReturnType() == String.class) {
+                            return "";
+                        }
+                        throw new SQLFeatureNotSupportedException(method.getName()
+                                + " is not supported by an in-memory result set");
+                    }
+                });
+    }
+}
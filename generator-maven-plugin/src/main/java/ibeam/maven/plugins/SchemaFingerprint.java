@@ -0,0 +1,171 @@
+package ibeam.maven.plugins;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hash of the metadata of a table, walks the fields of the {@code EntityTable} / {@code EntityField}
+ * beans by reflection so every column attribute read from the database takes part in the fingerprint.
+ */
+public final class SchemaFingerprint {
+    private static final Map<Class<?>, List<Field>> FIELDS = new ConcurrentHashMap<>();
+
+    private static final Comparator<Field> FIELD_ORDER = new Comparator<Field>() {
+        @Override
+        public int compare(Field o1, Field o2) {
+            int result = o1.getName().compareTo(o2.getName());
+            return result != 0 ? result : o1.getDeclaringClass().getName().compareTo(o2.getDeclaringClass().getName());
+        }
+    };
+
+    private final MessageDigest digest;
+    private final Map<Object, Boolean> visited = new IdentityHashMap<>();
+
+    private SchemaFingerprint() {
+        this.digest = newDigest();
+    }
+
+    /**
+     * @return hex fingerprint of the given bean, including everything reachable from it
+     */
+    public static String of(Object bean) {
+        SchemaFingerprint fingerprint = new SchemaFingerprint();
+        fingerprint.visit(bean);
+        return toHex(fingerprint.digest.digest());
+    }
+
+    /**
+     * @return hex fingerprint of the given values, null values are allowed
+     */
+    public static String hash(String... values) {
+        MessageDigest digest = newDigest();
+        for (String value : values) {
+            update(digest, String.valueOf(value));
+        }
+        return toHex(digest.digest());
+    }
+
+    /**
+     * @return hex fingerprint of raw content, such as a template file
+     */
+    public static String hash(byte[] content) {
+        return toHex(newDigest().digest(content));
+    }
+
+    private void visit(Object value) {
+        if (null == value) {
+            update(digest, "null");
+            return;
+        }
+        Class<?> type = value.getClass();
+        if (value instanceof CharSequence || value instanceof Number || value instanceof Boolean
+                || value instanceof Character || value instanceof Enum) {
+            update(digest, value.toString());
+        } else if (value instanceof Class) {
+            update(digest, ((Class<?>) value).getName());
+        } else if (null != visited.put(value, Boolean.TRUE)) {
+            // back reference, such as a field pointing to its table
+            update(digest, "@" + type.getName());
+        } else if (type.isArray()) {
+            int length = Array.getLength(value);
+            update(digest, "[" + length);
+            for (int i = 0; i < length; i++) {
+                visit(Array.get(value, i));
+            }
+        } else if (value instanceof Set) {
+            // hash sets have no stable order, hash the items apart and sort them
+            List<String> items = new ArrayList<>();
+            for (Object item : (Set<?>) value) {
+                items.add(of(item));
+            }
+            Collections.sort(items);
+            update(digest, "(" + items.size());
+            for (String item : items) {
+                update(digest, item);
+            }
+        } else if (value instanceof Collection) {
+            update(digest, "[" + ((Collection<?>) value).size());
+            for (Object item : (Collection<?>) value) {
+                visit(item);
+            }
+        } else if (value instanceof Map) {
+            Map<String, Object> sorted = new TreeMap<>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                sorted.put(String.valueOf(entry.getKey()), entry.getValue());
+            }
+            update(digest, "{" + sorted.size());
+            for (Map.Entry<String, Object> entry : sorted.entrySet()) {
+                update(digest, entry.getKey());
+                visit(entry.getValue());
+            }
+        } else if (type.getName().startsWith("java.")) {
+            update(digest, value.toString());
+        } else {
+            update(digest, type.getName());
+            for (Field field : fields(type)) {
+                update(digest, field.getName());
+                try {
+                    visit(field.get(value));
+                } catch (IllegalAccessException e) {
+                    update(digest, "?");
+                }
+            }
+        }
+    }
+
+    private static List<Field> fields(Class<?> type) {
+        List<Field> fields = FIELDS.get(type);
+        if (null == fields) {
+            fields = new ArrayList<>();
+            for (Class<?> current = type; null != current && current != Object.class;
+                 current = current.getSuperclass()) {
+                for (Field field : current.getDeclaredFields()) {
+                    int modifiers = field.getModifiers();
+                    if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.isSynthetic()) {
+                        continue;
+                    }
+                    field.setAccessible(true);
+                    fields.add(field);
+                }
+            }
+            Collections.sort(fields, FIELD_ORDER);
+            FIELDS.put(type, fields);
+        }
+        return fields;
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder builder = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            builder.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return builder.toString();
+    }
+}
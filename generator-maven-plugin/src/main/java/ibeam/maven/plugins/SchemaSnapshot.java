@@ -0,0 +1,184 @@
+package ibeam.maven.plugins;
+
+import ibeam.code.vo.EntityTable;
+import org.apache.commons.io.FileUtils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Parsed tables of a datasource saved to a file, so the code can be generated without a database.
+ * <p>
+ * format: magic, version, datasource, table filter fingerprint, table count, shard counts,
+ * then the tables serialized in one deflated object stream so class descriptors are written once.
+ */
+public final class SchemaSnapshot {
+    public static final int VERSION = 2;
+
+    private static final int MAGIC = 0x49425353;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final String datasource;
+    private final String filter;
+    private final Collection<EntityTable> tables;
+    private final Map<String, Integer> shardCounts;
+
+    public SchemaSnapshot(String datasource, String filter, Collection<EntityTable> tables,
+                          Map<String, Integer> shardCounts) {
+        this.datasource = datasource;
+        this.filter = filter;
+        this.tables = tables;
+        this.shardCounts = shardCounts;
+    }
+
+    public String getDatasource() {
+        return datasource;
+    }
+
+    /**
+     * @return fingerprint of the table filters the snapshot was taken with
+     */
+    public String getFilter() {
+        return filter;
+    }
+
+    public Collection<EntityTable> getTables() {
+        return tables;
+    }
+
+    /**
+     * @return shard count of the tables introspected from one representative shard, by table name
+     */
+    public Map<String, Integer> getShardCounts() {
+        return shardCounts;
+    }
+
+    public void write(File file) throws IOException {
+        FileUtils.forceMkdir(file.getParentFile());
+        write(new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE));
+    }
+
+    /**
+     * @return the snapshot in the format of the snapshot files
+     */
+    public byte[] toByteArray() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(BUFFER_SIZE);
+        write(bytes);
+        return bytes.toByteArray();
+    }
+
+    private void write(OutputStream stream) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(stream)) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeUTF(datasource);
+            out.writeUTF(filter);
+            out.writeInt(tables.size());
+            out.writeInt(shardCounts.size());
+            for (Map.Entry<String, Integer> shardCount : new TreeMap<>(shardCounts).entrySet()) {
+                out.writeUTF(shardCount.getKey());
+                out.writeInt(shardCount.getValue());
+            }
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            try {
+                ObjectOutputStream objects = new ObjectOutputStream(
+                        new DeflaterOutputStream(out, deflater, BUFFER_SIZE));
+                for (EntityTable table : tables) {
+                    objects.writeObject(table);
+                }
+                objects.close();
+            } catch (NotSerializableException e) {
+                throw new IOException("table metadata can't be saved to a snapshot, "
+                        + e.getMessage() + " is not serializable", e);
+            } finally {
+                deflater.end();
+            }
+        }
+    }
+
+    /**
+     * @throws IOException if the file is not a snapshot or was written by another version
+     */
+    public static SchemaSnapshot read(File file) throws IOException {
+        return read(new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE), file.toString());
+    }
+
+    /**
+     * @param bytes snapshot written by {@link #toByteArray()}
+     */
+    public static SchemaSnapshot read(byte[] bytes) throws IOException {
+        return read(new ByteArrayInputStream(bytes), "in memory");
+    }
+
+    private static SchemaSnapshot read(InputStream stream, String file) throws IOException {
+        try (DataInputStream in = new DataInputStream(stream)) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException(file + " is not a schema snapshot");
+            }
+            int version = in.readShort();
+            if (version != VERSION) {
+                throw new IOException("schema snapshot " + file + " has version " + version
+                        + " but " + VERSION + " is expected, please take the snapshot again");
+            }
+            String datasource = in.readUTF();
+            String filter = in.readUTF();
+            int count = in.readInt();
+            int shardGroups = in.readInt();
+            Map<String, Integer> shardCounts = new HashMap<>(shardGroups * 2);
+            for (int i = 0; i < shardGroups; i++) {
+                shardCounts.put(in.readUTF(), in.readInt());
+            }
+            List<EntityTable> tables = new ArrayList<>(count);
+            ObjectInputStream objects = new PluginObjectInputStream(new InflaterInputStream(in));
+            try {
+                for (int i = 0; i < count; i++) {
+                    tables.add((EntityTable) objects.readObject());
+                }
+            } catch (ClassNotFoundException e) {
+                throw new IOException("schema snapshot " + file + " doesn't match the code generator", e);
+            }
+            return new SchemaSnapshot(datasource, filter, tables, shardCounts);
+        }
+    }
+
+    /**
+     * resolve classes with the plugin class loader, maven runs the plugin in its own class realm
+     */
+    private static class PluginObjectInputStream extends ObjectInputStream {
+        private PluginObjectInputStream(InputStream in) throws IOException {
+            super(in);
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            try {
+                return Class.forName(desc.getName(), false, SchemaSnapshot.class.getClassLoader());
+            } catch (ClassNotFoundException e) {
+                return super.resolveClass(desc);
+            }
+        }
+    }
+}
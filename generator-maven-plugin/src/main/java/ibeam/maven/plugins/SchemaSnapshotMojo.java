@@ -0,0 +1,25 @@
+package ibeam.maven.plugins;
+
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+
+/**
+ * Save the tables of every datasource to a schema snapshot under snapshotDirectory,
+ * the generate goal then reads the snapshot instead of connecting to the database.
+ *
+ * @version $Id$
+ */
+@Mojo(name = "snapshot", requiresDependencyResolution = ResolutionScope.COMPILE,
+        threadSafe = true)
+public class SchemaSnapshotMojo extends CodeGenerateMojo {
+
+    /**
+     * This method implementation define if the current goal only saves the schema snapshot.
+     *
+     * @return true in the current "snapshot" goal context
+     */
+    @Override
+    protected boolean isSnapshotGoal() {
+        return true;
+    }
+}
@@ -0,0 +1,120 @@
+package ibeam.maven.plugins;
+
+import ibeam.Converter;
+import org.apache.maven.plugin.logging.Log;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Shards of a table (order_0000 .. order_1023) grouped by tableIgnoreRegex from the table list,
+ * so only one representative table per group has its columns introspected,
+ * the shard count of the group being its size.
+ */
+public class ShardGroups {
+    private final Map<String, List<String>> groups = new LinkedHashMap<>();
+
+    /**
+     * @param tableNames       table names in name order
+     * @param tableNameBuilder converts a table name to the name shared by its shards
+     */
+    public ShardGroups(List<String> tableNames, Converter<String, String> tableNameBuilder) {
+        for (String tableName : tableNames) {
+            String group = tableNameBuilder.convert(tableName);
+            List<String> members = groups.get(group);
+            if (null == members) {
+                members = new ArrayList<>();
+                groups.put(group, members);
+            }
+            members.add(tableName);
+        }
+    }
+
+    public int getGroupCount() {
+        return groups.size();
+    }
+
+    /**
+     * @return names to pass to the parser: the representative of each group,
+     * with the shared name only for tables without shards so the other shards are not selected again
+     */
+    public Set<String> getParserTargets() {
+        Set<String> targets = new LinkedHashSet<>();
+        for (Map.Entry<String, List<String>> group : groups.entrySet()) {
+            targets.add(group.getValue().get(0));
+            if (group.getValue().size() == 1) {
+                targets.add(group.getKey());
+            }
+        }
+        return targets;
+    }
+
+    /**
+     * @return shard count of each group with more than one table,
+     * keyed by both the representative table name and the shared name
+     */
+    public Map<String, Integer> getShardCounts() {
+        Map<String, Integer> shardCounts = new HashMap<>();
+        for (Map.Entry<String, List<String>> group : groups.entrySet()) {
+            int size = group.getValue().size();
+            if (size > 1) {
+                shardCounts.put(group.getKey(), size);
+                shardCounts.put(group.getValue().get(0), size);
+            }
+        }
+        return shardCounts;
+    }
+
+    /**
+     * Compare the columns of a few shards of every group with the columns of the representative,
+     * a warning is logged for every shard which differs.
+     *
+     * @param samples max number of shards checked per group, spread over the group
+     * @return number of shards which differ from their representative
+     */
+    public int check(Connection connection, int samples, Log log) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        String catalog = connection.getCatalog();
+        int mismatches = 0;
+        for (Map.Entry<String, List<String>> group : groups.entrySet()) {
+            List<String> members = group.getValue();
+            if (members.size() < 2 || samples <= 0) {
+                continue;
+            }
+            List<String> expected = columns(metaData, catalog, members.get(0));
+            int count = Math.min(samples, members.size() - 1);
+            for (int i = 1; i <= count; i++) {
+                String shard = members.get(i * (members.size() - 1) / count);
+                List<String> actual = columns(metaData, catalog, shard);
+                if (!expected.equals(actual)) {
+                    mismatches++;
+                    log.warn("columns of shard [" + shard + "] differ from [" + members.get(0) + "]: "
+                            + actual + " instead of " + expected);
+                }
+            }
+        }
+        return mismatches;
+    }
+
+    private static List<String> columns(DatabaseMetaData metaData, String catalog, String table) throws SQLException {
+        List<String> columns = new ArrayList<>();
+        try (ResultSet rs = metaData.getColumns(catalog, null,
+                TableSelector.escapeLike(table, metaData.getSearchStringEscape()), "%")) {
+            while (rs.next()) {
+                columns.add(rs.getString("COLUMN_NAME") + " " + rs.getString("TYPE_NAME")
+                        + "(" + rs.getInt("COLUMN_SIZE") + "," + rs.getInt("DECIMAL_DIGITS") + ")"
+                        + (rs.getInt("NULLABLE") == DatabaseMetaData.columnNoNulls ? " not null" : ""));
+            }
+        }
+        return columns;
+    }
+}
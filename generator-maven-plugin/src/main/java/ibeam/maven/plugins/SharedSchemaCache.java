@@ -0,0 +1,92 @@
+package ibeam.maven.plugins;
+
+import org.apache.maven.plugin.logging.Log;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Schemas introspected during a build, shared by all the modules of the reactor reading the same database
+ * with the same table filters, so a schema is introspected once per build even with parallel builds:
+ * the modules asking for a schema being introspected wait for it.
+ * <p>
+ * Schemas are kept in the snapshot format and every module gets its own copy of the tables, as the generator
+ * decorates them. Only the schemas of the current build are kept, the plugin class loader may live longer
+ * in a build daemon.
+ * <p>
+ * A schema whose tables can't be serialized is not shared: the module which introspected it uses its tables
+ * directly, and the other modules introspect it themselves.
+ */
+public final class SharedSchemaCache {
+    private static final ConcurrentMap<String, Future<byte[]>> SCHEMAS = new ConcurrentHashMap<>();
+
+    private static String currentBuild;
+
+    private SharedSchemaCache() {
+        super();
+    }
+
+    /**
+     * @param build  id of the current build, the schemas of other builds are dropped
+     * @param key    database and table filters of the schema
+     * @param loader introspects the schema, called by the first module asking for it
+     */
+    public static SchemaSnapshot get(String build, String key, final Callable<SchemaSnapshot> loader, final Log log)
+            throws Exception {
+        synchronized (SharedSchemaCache.class) {
+            if (!build.equals(currentBuild)) {
+                SCHEMAS.clear();
+                currentBuild = build;
+            }
+        }
+        final SchemaSnapshot[] loaded = new SchemaSnapshot[1];
+        FutureTask<byte[]> task = new FutureTask<>(new Callable<byte[]>() {
+            @Override
+            public byte[] call() throws Exception {
+                loaded[0] = loader.call();
+                try {
+                    return loaded[0].toByteArray();
+                } catch (IOException e) {
+                    log.warn("schema not shared with the other modules of the build: " + e.getMessage());
+                    return null;
+                }
+            }
+        });
+        Future<byte[]> schema = SCHEMAS.putIfAbsent(key, task);
+        if (null == schema) {
+            schema = task;
+            task.run();
+        } else {
+            log.info("schema shared with another module of the build");
+        }
+        byte[] bytes;
+        try {
+            bytes = schema.get();
+        } catch (ExecutionException e) {
+            // let the next module try again
+            SCHEMAS.remove(key, schema);
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw e;
+        }
+        if (null == bytes) {
+            // not shareable, the tables of this module are its own
+            return null != loaded[0] ? loaded[0] : loader.call();
+        }
+        return SchemaSnapshot.read(bytes);
+    }
+
+    /**
+     * drop the schema of the given key, the next module asking for it introspects it again
+     */
+    public static void evict(String key) {
+        SCHEMAS.remove(key);
+    }
+}
@@ -0,0 +1,347 @@
+package ibeam.maven.plugins;
+
+/*
+ * Copyright 2013 The Apache Software Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0,
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.apache.maven.plugin.logging.Log;
+import org.w3c.dom.Document;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+/**
+ * Retention of the timestamped builds of a snapshot version folder : keep the newest builds and delete the others.
+ * <p>
+ * A build is identified by the timestamp and build number of its files, artifactId-1.0-20240101.123456-7.jar,
+ * -sources.jar, .pom, .sha1.. The build referenced as the current snapshot by the maven-metadata-*.xml files of the
+ * folder is always kept, the artifactId-1.0-SNAPSHOT.* files and the metadata are never deleted.
+ * <p>
+ * The folder is streamed twice, once to collect its builds and once to delete the files of the builds dropped,
+ * so only the builds are held in memory, not the files, whatever the number of jars.
+ *
+ * @author sgu, pef, lab...
+ */
+public final class SnapshotRetention {
+
+	private static final String SNAPSHOT = "-SNAPSHOT";
+
+	private static final String METADATA_PREFIX = "maven-metadata-";
+
+	/**
+	 * timestamp and build number following artifactId-baseVersion- in a file name
+	 */
+	private static final Pattern BUILD = Pattern.compile("(\\d{8}\\.\\d{6})-(\\d{1,9})([.-].*)?");
+
+	private final int buildsKept;
+
+	private final int retentionDelay;
+
+
+	/**
+	 * @param buildsKept     number of builds kept per snapshot version, at least 1
+	 * @param retentionDelay number of days an older build is kept, 0 to delete them all
+	 */
+	public SnapshotRetention(final int buildsKept, final int retentionDelay) {
+
+		this.buildsKept = Math.max(1, buildsKept);
+		this.retentionDelay = retentionDelay;
+	}
+
+
+	/**
+	 * Delete, or only list, the builds of a snapshot version folder beyond the newest ones.
+	 *
+	 * @param versionFolder a folder such as artifactId/1.0-SNAPSHOT
+	 * @param deleteMode    false to only list the builds and the bytes
+	 * @param onExit        delete the files when the JVM exits
+	 * @param log
+	 * @return the builds dropped, their files and bytes
+	 */
+	public Result apply(final File versionFolder, final boolean deleteMode, final boolean onExit, final Log log) {
+
+		final Result result = new Result();
+
+		final String prefix = prefix(versionFolder);
+
+		if (prefix == null) {
+			return result;
+		}
+
+		final NavigableSet<Build> builds = new TreeSet<Build>();
+
+		final Set<Build> current = new TreeSet<Build>();
+
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(versionFolder.toPath())) {
+
+			for (final Path path : stream) {
+
+				final String name = path.getFileName().toString();
+
+				final Build build = parse(prefix, name);
+
+				if (build != null) {
+					builds.add(build);
+				}
+				else if (name.startsWith(METADATA_PREFIX) && name.endsWith(".xml")) {
+					final Build metadataBuild = readCurrentBuild(path.toFile());
+					if (metadataBuild != null) {
+						current.add(metadataBuild);
+					}
+				}
+			}
+		}
+		catch (IOException | DirectoryIteratorException e) {
+			log.warn(Enumeres.EXCEPTION.FILE_DELETION_EXCEPTION + versionFolder, e);
+			return result;
+		}
+
+		final Set<Build> dropped = selectDropped(builds, current);
+
+		if (dropped.isEmpty()) {
+			return result;
+		}
+
+		for (final Build build : dropped) {
+			log.info((deleteMode ? Enumeres.LOG.DELETE : Enumeres.LOG.LIST) + new File(versionFolder, prefix + build));
+		}
+
+		result.builds = dropped.size();
+
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(versionFolder.toPath())) {
+
+			for (final Path path : stream) {
+
+				final Build build = parse(prefix, path.getFileName().toString());
+
+				final FileEntry file = build != null && dropped.contains(build) ? FileEntry.read(path) : null;
+
+				if (file == null || file.isDirectory()) {
+					continue;
+				}
+
+				if (deleteMode && onExit) {
+					FolderDeleter.deleteOnExit(file.getFile());
+				}
+				else if (deleteMode) {
+					try {
+						if (!Files.deleteIfExists(path)) {
+							continue;
+						}
+					}
+					catch (IOException e) {
+						log.debug(Enumeres.EXCEPTION.FILE_DELETION_EXCEPTION + path);
+						result.failures++;
+						continue;
+					}
+				}
+
+				result.files++;
+				result.bytes += file.getSize();
+			}
+		}
+		catch (IOException | DirectoryIteratorException e) {
+			log.warn(Enumeres.EXCEPTION.FILE_DELETION_EXCEPTION + versionFolder, e);
+		}
+
+		return result;
+	}
+
+
+	/**
+	 * @return the builds beyond the newest ones, older than the retention delay and not current in the metadata
+	 */
+	Set<Build> selectDropped(final NavigableSet<Build> builds, final Set<Build> current) {
+
+		final Set<Build> dropped = new TreeSet<Build>();
+
+		final long limit = System.currentTimeMillis() - retentionDelay * 24L * 60L * 60L * 1000L;
+
+		int kept = 0;
+
+		for (final Iterator<Build> iterator = builds.descendingIterator(); iterator.hasNext();) {
+
+			final Build build = iterator.next();
+
+			if (kept < buildsKept || current.contains(build) || (retentionDelay > 0 && build.getDate() > limit)) {
+				kept++;
+			}
+			else {
+				dropped.add(build);
+			}
+		}
+
+		return dropped;
+	}
+
+
+	/**
+	 * @return artifactId-baseVersion- for a folder artifactId/baseVersion-SNAPSHOT, null for another folder
+	 */
+	static String prefix(final File versionFolder) {
+
+		final String version = versionFolder.getName();
+
+		final File artifactFolder = versionFolder.getParentFile();
+
+		if (artifactFolder == null || !version.endsWith(SNAPSHOT)) {
+			return null;
+		}
+
+		return artifactFolder.getName() + "-" + version.substring(0, version.length() - SNAPSHOT.length()) + "-";
+	}
+
+
+	static Build parse(final String prefix, final String name) {
+
+		if (!name.startsWith(prefix)) {
+			return null;
+		}
+
+		final Matcher matcher = BUILD.matcher(name.substring(prefix.length()));
+
+		return matcher.matches() ? new Build(matcher.group(1), Integer.parseInt(matcher.group(2))) : null;
+	}
+
+
+	/**
+	 * @return the build of versioning/snapshot in the given metadata, null if it has none or can't be read
+	 */
+	static Build readCurrentBuild(final File metadata) {
+
+		try {
+			final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+			factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+			factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+
+			final Document document = factory.newDocumentBuilder().parse(metadata);
+
+			final NodeList timestamps = document.getElementsByTagName("timestamp");
+			final NodeList buildNumbers = document.getElementsByTagName("buildNumber");
+
+			if (timestamps.getLength() == 0 || buildNumbers.getLength() == 0) {
+				return null;
+			}
+
+			return new Build(timestamps.item(0).getTextContent().trim(),
+					Integer.parseInt(buildNumbers.item(0).getTextContent().trim()));
+		}
+		catch (ParserConfigurationException | SAXException | IOException | NumberFormatException e) {
+			return null;
+		}
+	}
+
+
+	/**
+	 * A timestamped build, ordered on its timestamp then its build number
+	 */
+	static final class Build implements Comparable<Build> {
+
+		private final String timestamp;
+
+		private final int number;
+
+		Build(final String timestamp, final int number) {
+			this.timestamp = timestamp;
+			this.number = number;
+		}
+
+		/**
+		 * @return the date of the timestamp, in UTC as maven writes it
+		 */
+		private long getDate() {
+			final SimpleDateFormat format = new SimpleDateFormat("yyyyMMdd.HHmmss");
+			format.setTimeZone(TimeZone.getTimeZone("UTC"));
+			try {
+				return format.parse(timestamp).getTime();
+			}
+			catch (ParseException e) {
+				return new Date().getTime();
+			}
+		}
+
+		@Override
+		public int compareTo(final Build other) {
+			final int result = timestamp.compareTo(other.timestamp);
+			return result != 0 ? result : Integer.compare(number, other.number);
+		}
+
+		@Override
+		public boolean equals(final Object other) {
+			return other instanceof Build && compareTo((Build) other) == 0;
+		}
+
+		@Override
+		public int hashCode() {
+			return timestamp.hashCode() * 31 + number;
+		}
+
+		@Override
+		public String toString() {
+			return timestamp + "-" + number;
+		}
+	}
+
+
+	/**
+	 * Builds dropped, their files and bytes, and the files which could not be deleted
+	 */
+	public static final class Result {
+
+		private int builds;
+
+		private long files;
+
+		private long bytes;
+
+		private long failures;
+
+		public int getBuilds() {
+			return builds;
+		}
+
+		public long getFiles() {
+			return files;
+		}
+
+		public long getBytes() {
+			return bytes;
+		}
+
+		public long getFailures() {
+			return failures;
+		}
+	}
+}
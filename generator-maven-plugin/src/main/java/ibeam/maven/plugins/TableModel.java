@@ -0,0 +1,110 @@
+package ibeam.maven.plugins;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Template model of one table: the entries of the table on top of the immutable base model shared by every table,
+ * so the constant entries are neither copied nor computed again for each table.
+ * <p>
+ * Entries put in the model only go to the table entries, they hide the base entries of the same name.
+ */
+public class TableModel extends AbstractMap<String, Object> {
+    private final Map<String, Object> base;
+    private final Map<String, Object> overlay;
+
+    /**
+     * @param base entries shared by every table, must not change any more
+     */
+    public TableModel(Map<String, Object> base, int expectedSize) {
+        this.base = base;
+        this.overlay = new HashMap<>(expectedSize * 2);
+    }
+
+    @Override
+    public Object get(Object key) {
+        Object value = overlay.get(key);
+        return null != value || overlay.containsKey(key) ? value : base.get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return overlay.containsKey(key) || base.containsKey(key);
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        Object previous = get(key);
+        overlay.put(key, value);
+        return previous;
+    }
+
+    @Override
+    public int size() {
+        int size = overlay.size();
+        for (String key : base.keySet()) {
+            if (!overlay.containsKey(key)) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return new AbstractSet<Entry<String, Object>>() {
+            @Override
+            public Iterator<Entry<String, Object>> iterator() {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                return TableModel.this.size();
+            }
+        };
+    }
+
+    /**
+     * iterate the table entries, then the base entries not hidden by a table entry
+     */
+    private class EntryIterator implements Iterator<Entry<String, Object>> {
+        private final Iterator<Entry<String, Object>> overlayEntries = overlay.entrySet().iterator();
+        private final Iterator<Entry<String, Object>> baseEntries = base.entrySet().iterator();
+        private Entry<String, Object> next;
+
+        @Override
+        public boolean hasNext() {
+            if (null != next) {
+                return true;
+            }
+            if (overlayEntries.hasNext()) {
+                next = overlayEntries.next();
+                return true;
+            }
+            while (baseEntries.hasNext()) {
+                Entry<String, Object> entry = baseEntries.next();
+                if (!overlay.containsKey(entry.getKey())) {
+                    next = entry;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public Entry<String, Object> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Entry<String, Object> entry = next;
+            next = null;
+            return entry;
+        }
+    }
+}
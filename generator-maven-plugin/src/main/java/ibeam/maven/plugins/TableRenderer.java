@@ -0,0 +1,258 @@
+package ibeam.maven.plugins;
+
+import ibeam.BeamUtils;
+import ibeam.annotation.entity.ShardByMod;
+import ibeam.code.CodeMaker;
+import ibeam.code.CodeUtils;
+import ibeam.code.ReusableStringWriter;
+import ibeam.code.vo.EntityField;
+import ibeam.code.vo.EntityTable;
+import ibeam.code.vo.GenerateInfo;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.instrument.IllegalClassFormatException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * Render all the source code of a table for one datasource.
+ * A renderer is shared by the generator worker threads, every thread renders with its own writer.
+ */
+public class TableRenderer {
+    private static final ThreadLocal<ReusableStringWriter> WRITER = new ThreadLocal<ReusableStringWriter>() {
+        @Override
+        protected ReusableStringWriter initialValue() {
+            return new ReusableStringWriter(1000);
+        }
+    };
+
+    private final CodeMaker codeMaker;
+    private final String db;
+    private final CodeFileResolver resolver;
+    private final boolean shouldGenerateWebApi;
+    private final String defaultDomain;
+    private final Map<String, Object> baseModel;
+    private Names names;
+    private Map<String, Integer> shardCounts = Collections.emptyMap();
+    private FingerprintCache cache;
+    private Map<String, String> templateFingerprints;
+    private GeneratorMetrics metrics = GeneratorMetrics.disabled();
+
+    public TableRenderer(CodeMaker codeMaker, String db, CodeFileResolver resolver,
+                         boolean shouldGenerateWebApi) {
+        this(codeMaker, db, resolver, shouldGenerateWebApi, BuildStamp.now(null));
+    }
+
+    /**
+     * @param stamp YEAR, TIME and USER of the model
+     */
+    public TableRenderer(CodeMaker codeMaker, String db, CodeFileResolver resolver,
+                         boolean shouldGenerateWebApi, BuildStamp stamp) {
+        this.codeMaker = codeMaker;
+        this.db = db;
+        this.resolver = resolver;
+        this.shouldGenerateWebApi = shouldGenerateWebApi;
+        this.defaultDomain = StringUtils.replaceEachRepeatedly(db,
+                new String[]{"_", "-"}, new String[]{".", "."});
+
+        Map<String, Object> model = new HashMap<>();
+        model.put("BASE_PKG_NAME", "ibeam.demo");
+        model.put("DOMAIN", db);
+        model.put("YEAR", stamp.getYear());
+        model.put("TIME", stamp.getTime());
+        model.put("USER", stamp.getUser());
+        this.baseModel = Collections.unmodifiableMap(model);
+    }
+
+    /**
+     * @param shardCounts shard count of the tables introspected from one representative shard, by table name
+     */
+    public void setShardCounts(Map<String, Integer> shardCounts) {
+        this.shardCounts = shardCounts;
+    }
+
+    public void setMetrics(GeneratorMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * skip the outputs which are up to date in the given cache
+     *
+     * @param templateFingerprints fingerprint of the templates and generator parameters, by template name
+     */
+    public void setCache(FingerprintCache cache, Map<String, String> templateFingerprints) {
+        this.cache = cache;
+        this.templateFingerprints = templateFingerprints;
+    }
+
+    /**
+     * @return task rendering the given table, to be submitted to the worker pool
+     */
+    public Callable<RenderedTable> task(final EntityTable table) {
+        return new Callable<RenderedTable>() {
+            @Override
+            public RenderedTable call() throws Exception {
+                return render(table);
+            }
+        };
+    }
+
+    public RenderedTable render(EntityTable table) throws IOException, IllegalClassFormatException {
+        String domain =
+                BeamUtils.isNotBlank(defaultDomain) ? defaultDomain :
+                        StringUtils.replaceEachRepeatedly(db,
+                                new String[]{"_", "-"}, new String[]{".", "."});
+        RenderedTable rendered = new RenderedTable(table, domain);
+        // fingerprint the metadata before the table gets decorated below
+        Map<String, String> staleFingerprints = staleFingerprints(table);
+        if (null != staleFingerprints && staleFingerprints.isEmpty()) {
+            return rendered;
+        }
+        Map<String, Object> model = model(table);
+
+        for (String name : TemplateDigests.TEMPLATES) {
+            if (shouldRender(name, staleFingerprints)) {
+                GeneratorMetrics.Sample sample = metrics.start();
+                String code = render(name, model);
+                metrics.record(db, GeneratorMetrics.RENDER, name, sample);
+                String fingerprint = null == staleFingerprints ? null : staleFingerprints.get(name);
+                String cacheKey = null == fingerprint ? null
+                        : FingerprintCache.key(db, table.getTableName(), name);
+                GenerateInfo info = (GenerateInfo) model.get(name);
+                sample = metrics.start();
+                File file = null == info ? resolver.resolve(code, null, null)
+                        : resolver.resolve(code, info.getPackageName(), info.getClassName());
+                metrics.record(db, GeneratorMetrics.RESOLVE, name, sample);
+                rendered.add(name, file, code, cacheKey, fingerprint);
+            }
+        }
+        return rendered;
+    }
+
+    /**
+     * decorate the table with its shard annotation and property names, and build its template model
+     */
+    public Map<String, Object> model(EntityTable table) throws IOException, IllegalClassFormatException {
+        int shardCount = shardCount(table);
+        if (shardCount > 1) {
+            table.addPackage(ShardByMod.class);
+            table.addAnnotation("@ShardByMod(value = " + shardCount + ")");
+        }
+
+        for (EntityField column : table.getFields()) {
+            column.setField(BeamUtils.toPropertyName(column.getInfo().getName()));
+        }
+
+        Names names = names();
+        GenerateInfo entityInfo = GenerateInfo.from(table);
+        entityInfo.setPackageName(names.packageNames.get("entity"));
+        Map<String, Object> model = new TableModel(baseModel, 8);
+        model.put("entity", entityInfo);
+        model.put("primaryKey", entityInfo.getPrimaryKey());
+        GenerateInfo shardParam = null;
+        if (shardCount > 0) {
+            Class shardParamType = Long.class;
+            shardParam = new GenerateInfo(shardParamType.getPackage().getName(),
+                    shardParamType.getSimpleName(), "");
+        }
+        model.put("shardParam", shardParam);
+
+        model.put("dao", names.generateInfo("dao", model));
+        model.put("service", names.generateInfo("service", model));
+        model.put("api_controller", names.generateInfo("api_controller", model));
+        return model;
+    }
+
+    private boolean shouldRender(String name, Map<String, String> staleFingerprints) {
+        if ("api_controller".equals(name) && !shouldGenerateWebApi) {
+            return false;
+        }
+        return null == staleFingerprints || staleFingerprints.containsKey(name);
+    }
+
+    /**
+     * @return fingerprint of the outputs of the table which are out of date, null when generating without cache
+     */
+    private Map<String, String> staleFingerprints(EntityTable table) {
+        if (null == cache) {
+            return null;
+        }
+        GeneratorMetrics.Sample sample = metrics.start();
+        String tableFingerprint = SchemaFingerprint.hash(SchemaFingerprint.of(table),
+                String.valueOf(shardCount(table)));
+        Map<String, String> fingerprints = new HashMap<>();
+        for (String name : TemplateDigests.TEMPLATES) {
+            if (!shouldRender(name, null)) {
+                continue;
+            }
+            String fingerprint = SchemaFingerprint.hash(tableFingerprint, templateFingerprints.get(name));
+            if (!cache.isUpToDate(FingerprintCache.key(db, table.getTableName(), name), fingerprint)) {
+                fingerprints.put(name, fingerprint);
+            }
+        }
+        metrics.record(db, GeneratorMetrics.FINGERPRINT, null, sample);
+        return fingerprints;
+    }
+
+    /**
+     * package names only depend on the base model, they are rendered once per renderer
+     */
+    private synchronized Names names() {
+        if (null == names) {
+            Map<String, String> packageNames = new HashMap<>();
+            Map<String, NameExpression> classNames = new HashMap<>();
+            for (String[] templates : TemplateCache.NAME_TEMPLATES) {
+                packageNames.put(templates[0],
+                        CodeUtils.getPackageName(codeMaker, templates[0], new TableModel(baseModel, 2)));
+                NameExpression className = NameExpression.compile(templates[2]);
+                if (null != className) {
+                    classNames.put(templates[0], className);
+                }
+            }
+            names = new Names(packageNames, classNames);
+        }
+        return names;
+    }
+
+    private int shardCount(EntityTable table) {
+        Integer shardCount = shardCounts.get(table.getTableName());
+        return null == shardCount ? table.getShardCount() : Math.max(shardCount, table.getShardCount());
+    }
+
+    private String render(String name, Map<String, Object> model) throws IOException {
+        ReusableStringWriter writer = WRITER.get();
+        try {
+            codeMaker.render(name, model, writer);
+            return writer.toString();
+        } finally {
+            writer.reset();
+        }
+    }
+
+    /**
+     * Package names and compiled class names of the templates, the template engine builds the names
+     * of the templates whose class name is not a plain reference
+     */
+    private class Names {
+        private final Map<String, String> packageNames;
+        private final Map<String, NameExpression> classNames;
+
+        private Names(Map<String, String> packageNames, Map<String, NameExpression> classNames) {
+            this.packageNames = packageNames;
+            this.classNames = classNames;
+        }
+
+        private GenerateInfo generateInfo(String name, Map<String, Object> model) {
+            NameExpression expression = classNames.get(name);
+            String className = null == expression ? null : expression.evaluate(model);
+            if (null == className) {
+                return CodeUtils.buildGenerateInfo(codeMaker, model, name);
+            }
+            return new GenerateInfo(packageNames.get(name), className, "");
+        }
+    }
+}
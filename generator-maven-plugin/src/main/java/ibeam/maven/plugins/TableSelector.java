@@ -0,0 +1,136 @@
+package ibeam.maven.plugins;
+
+import ibeam.BeamUtils;
+import ibeam.Converter;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+/**
+ * Table selection rules of the generator (ignoreTables, tables and tableIgnoreRegex) compiled into one matcher,
+ * applied to the cheap table list of the database so only the selected tables are introspected.
+ * <p>
+ * The parser still applies ignoreTables to the tables handed to it, so a table is only pruned here when
+ * the whole name matches ignoreTables with its case: any table pruned is ignored by the parser too,
+ * whether it matches the regex on the whole name or a part of it, with or without case.
+ */
+public class TableSelector {
+    private static final String[] TABLE_TYPES = {"TABLE"};
+
+    private final Pattern ignorePattern;
+    private final Set<String> targetTables;
+    private final Set<String> namePatterns;
+    private final Converter<String, String> tableNameBuilder;
+
+    /**
+     * @param ignoreTables     regex of the tables to ignore, may be blank
+     * @param targetTables     tables to generate, all tables if empty
+     * @param tableNameBuilder converts a table name to the name shared by its shards
+     */
+    public TableSelector(String ignoreTables, Set<String> targetTables, Converter<String, String> tableNameBuilder) {
+        this.ignorePattern = BeamUtils.isNotBlank(ignoreTables) && Tools.testPattern(ignoreTables) ?
+                Pattern.compile(ignoreTables) : null;
+        this.targetTables = new HashSet<>();
+        this.namePatterns = new TreeSet<>(targetTables);
+        for (String table : targetTables) {
+            this.targetTables.add(table.toLowerCase(Locale.ENGLISH));
+        }
+        this.tableNameBuilder = tableNameBuilder;
+    }
+
+    public boolean isSelected(String tableName) {
+        if (null != ignorePattern && ignorePattern.matcher(tableName).matches()) {
+            return false;
+        }
+        if (targetTables.isEmpty()) {
+            return true;
+        }
+        return targetTables.contains(tableName.toLowerCase(Locale.ENGLISH))
+                || targetTables.contains(tableNameBuilder.convert(tableName).toLowerCase(Locale.ENGLISH));
+    }
+
+    /**
+     * List the tables of the current catalog with getTables name patterns, one per target table
+     * (with its shards) or all the tables when no target is set.
+     *
+     * @return names of the tables, in name order
+     */
+    public List<String> listTables(Connection connection) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        String escape = metaData.getSearchStringEscape();
+        Set<String> names = new TreeSet<>();
+        for (String pattern : namePatterns(escape)) {
+            try (ResultSet rs = metaData.getTables(connection.getCatalog(), null, pattern, TABLE_TYPES)) {
+                while (rs.next()) {
+                    names.add(rs.getString("TABLE_NAME"));
+                }
+            }
+        }
+        return new ArrayList<>(names);
+    }
+
+    /**
+     * @return the selected tables of the given ones, in the same order
+     */
+    public List<String> select(List<String> names) {
+        List<String> selected = new ArrayList<>(names.size());
+        for (String name : names) {
+            if (isSelected(name)) {
+                selected.add(name);
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * @return names to pass to the parser for the selected tables, with the name shared by their shards
+     */
+    public Set<String> targetNames(Collection<String> selected) {
+        Set<String> names = new LinkedHashSet<>();
+        for (String name : selected) {
+            names.add(name);
+            names.add(tableNameBuilder.convert(name));
+        }
+        return names;
+    }
+
+    private Collection<String> namePatterns(String escape) {
+        if (targetTables.isEmpty()) {
+            return Collections.singleton("%");
+        }
+        Set<String> patterns = new TreeSet<>();
+        for (String table : namePatterns) {
+            patterns.add(escapeLike(table, escape) + "%");
+        }
+        return patterns;
+    }
+
+    /**
+     * @return the name escaped to be used as a getTables / getColumns name pattern
+     */
+    static String escapeLike(String name, String escape) {
+        if (BeamUtils.isBlank(escape)) {
+            return name;
+        }
+        StringBuilder builder = new StringBuilder(name.length() + 4);
+        for (char c : name.toCharArray()) {
+            if (c == '_' || c == '%') {
+                builder.append(escape);
+            }
+            builder.append(c);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,195 @@
+package ibeam.maven.plugins;
+
+import ibeam.Converter;
+import ibeam.code.vo.EntityTable;
+import ibeam.jdbc.EntityParser;
+import org.apache.commons.io.IOUtils;
+
+import java.io.Closeable;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tables of a datasource handed to the rendering one by one.
+ * <p>
+ * A streamed datasource is introspected by a producer thread, a batch of tables at a time, while the tables
+ * of the previous batches are rendered. The tables go through a bounded queue, so at most a couple of batches
+ * of metadata are held in memory whatever the size of the schema, and the producer waits when the rendering
+ * is behind. The shards of a table always are in the same batch, so the parser merges them as before.
+ */
+public class TableStream implements Closeable {
+    private static final Object END = new Object();
+
+    private final BlockingQueue<Object> queue;
+    private final Iterator<EntityTable> tables;
+    private final AtomicInteger count = new AtomicInteger();
+    private Thread producer;
+    private boolean ended;
+
+    private TableStream(BlockingQueue<Object> queue, Iterator<EntityTable> tables) {
+        this.queue = queue;
+        this.tables = tables;
+    }
+
+    /**
+     * @return stream of tables already introspected
+     */
+    public static TableStream of(Collection<EntityTable> tables) {
+        return new TableStream(null, tables.iterator());
+    }
+
+    /**
+     * start introspecting the target tables by batches on a producer thread.
+     * Each batch is one call of the parser, which opens its own connection and lists the tables of the schema
+     *
+     * @param targets   names to pass to the parser, each table with the name shared by its shards
+     * @param batchSize number of tables, with their shards, introspected by one parser call
+     * @param resource  used by the parser, closed once all the tables are introspected, may be null
+     */
+    public static TableStream parse(final EntityParser parser, final String ignoreTables, Set<String> targets,
+                                    final Converter<String, String> tableNameBuilder, int batchSize,
+                                    final GeneratorMetrics metrics, final String db, final Closeable resource) {
+        final List<Set<String>> batches = batches(targets, tableNameBuilder, Math.max(batchSize, 1));
+        final TableStream stream = new TableStream(new LinkedBlockingQueue<>(Math.max(batchSize, 1)), null);
+        stream.producer = new NamedThreadFactory("ibeam-introspect").newThread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    produce();
+                } finally {
+                    IOUtils.closeQuietly(resource);
+                }
+            }
+
+            private void produce() {
+                Object last = END;
+                try {
+                    for (Set<String> batch : batches) {
+                        GeneratorMetrics.Sample sample = metrics.start();
+                        Collection<EntityTable> tables = parser.parse(ignoreTables, batch, tableNameBuilder);
+                        metrics.record(db, GeneratorMetrics.INTROSPECT, null, sample);
+                        for (EntityTable table : tables) {
+                            stream.queue.put(table);
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                } catch (Throwable e) {
+                    // errors too, such as a driver class missing, or the consumer would wait for the end forever
+                    last = e;
+                }
+                try {
+                    stream.queue.put(last);
+                } catch (InterruptedException e) {
+                    // closed by the consumer
+                }
+            }
+        });
+        stream.producer.start();
+        return stream;
+    }
+
+    /**
+     * @return the next table, null once all the tables are read
+     * @throws Exception the exception of the producer, once the tables introspected before are read,
+     *                   an error of the producer is thrown as is
+     */
+    public EntityTable next() throws Exception {
+        if (ended) {
+            return null;
+        }
+        if (null == queue) {
+            return tables.hasNext() ? counted(tables.next()) : end();
+        }
+        Object next;
+        try {
+            next = queue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for the next table");
+        }
+        if (next == END) {
+            return end();
+        }
+        if (next instanceof Exception) {
+            end();
+            throw (Exception) next;
+        }
+        if (next instanceof Error) {
+            end();
+            throw (Error) next;
+        }
+        return counted((EntityTable) next);
+    }
+
+    /**
+     * @return number of tables read so far
+     */
+    public int getCount() {
+        return count.get();
+    }
+
+    /**
+     * stop the producer, the tables not read yet are dropped
+     */
+    @Override
+    public void close() {
+        ended = true;
+        if (null != producer) {
+            producer.interrupt();
+            producer = null;
+        }
+    }
+
+    private EntityTable counted(EntityTable table) {
+        count.incrementAndGet();
+        return table;
+    }
+
+    private EntityTable end() {
+        ended = true;
+        return null;
+    }
+
+    /**
+     * split the targets into batches of tables, keeping the names of a table and of its shards together
+     */
+    static List<Set<String>> batches(Set<String> targets, Converter<String, String> tableNameBuilder,
+                                     int batchSize) {
+        Map<String, Set<String>> groups = new LinkedHashMap<>();
+        for (String name : targets) {
+            String group = tableNameBuilder.convert(name);
+            Set<String> names = groups.get(group);
+            if (null == names) {
+                names = new LinkedHashSet<>();
+                groups.put(group, names);
+            }
+            names.add(name);
+        }
+        List<Set<String>> batches = new ArrayList<>();
+        Set<String> batch = new LinkedHashSet<>();
+        int tables = 0;
+        for (Set<String> names : groups.values()) {
+            batch.addAll(names);
+            if (++tables >= batchSize) {
+                batches.add(batch);
+                batch = new LinkedHashSet<>();
+                tables = 0;
+            }
+        }
+        if (!batch.isEmpty()) {
+            batches.add(batch);
+        }
+        return batches;
+    }
+}
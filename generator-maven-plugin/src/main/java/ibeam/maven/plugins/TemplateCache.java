@@ -0,0 +1,87 @@
+package ibeam.maven.plugins;
+
+import freemarker.template.TemplateException;
+import ibeam.code.CodeMaker;
+import ibeam.code.CodeUtils;
+import ibeam.code.template.FreeMaker;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Code makers with their templates loaded and compiled, shared by every datasource of an execution
+ * and kept for the life of the plugin class loader, so the other modules of a reactor
+ * (or the next builds of a build daemon) don't parse the templates again.
+ * <p>
+ * A code maker is keyed by its template folder, encoding and base package, and reused only while
+ * the digest of the template contents is the same, the code maker of changed templates is replaced.
+ * The least recently used code makers are dropped beyond {@link #MAX_CODE_MAKERS}, so a build daemon
+ * going through many projects doesn't keep the templates of all of them.
+ */
+public final class TemplateCache {
+    /**
+     * package and class name templates of each code template
+     */
+    static final String[][] NAME_TEMPLATES = {
+            {"entity", "${BASE_PKG_NAME}.${DOMAIN}.entity", "${entity.className}"},
+            {"dao", "${BASE_PKG_NAME}.${DOMAIN}.repository", "${entity.className}Dao"},
+            {"service", "${BASE_PKG_NAME}.${DOMAIN}.service", "${entity.className}Service"},
+            {"api_controller", "${BASE_PKG_NAME}.${DOMAIN}.api", "${entity.className}ApiController"}};
+
+    private static final int MAX_CODE_MAKERS = 16;
+
+    private static final Map<String, Entry> CODE_MAKERS = new LinkedHashMap<String, Entry>(MAX_CODE_MAKERS, 0.75f,
+            true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > MAX_CODE_MAKERS;
+        }
+    };
+
+    private TemplateCache() {
+        super();
+    }
+
+    /**
+     * @param templateDir     custom template folder, may be null
+     * @param classpathRoot   folder of the default templates in the classpath
+     * @param templateDigests digest of each template, see {@link TemplateDigests}
+     */
+    public static synchronized CodeMaker get(File templateDir, String classpathRoot, String encoding,
+                                             String basePackage, Map<String, String> templateDigests)
+            throws IOException, TemplateException {
+        String key = (null == templateDir ? classpathRoot : templateDir.getAbsolutePath())
+                + "|" + encoding + "|" + basePackage;
+        String digest = String.valueOf(new TreeMap<>(templateDigests));
+        Entry entry = CODE_MAKERS.get(key);
+        if (null == entry || !entry.digest.equals(digest)) {
+            entry = new Entry(digest, build(templateDir, classpathRoot, encoding, basePackage));
+            CODE_MAKERS.put(key, entry);
+        }
+        return entry.codeMaker;
+    }
+
+    private static CodeMaker build(File templateDir, String classpathRoot, String encoding, String basePackage)
+            throws IOException, TemplateException {
+        FreeMaker codeMaker = new FreeMaker(templateDir, classpathRoot, encoding);
+        codeMaker.setSharedVariable("basePackage", basePackage);
+
+        for (String[] names : NAME_TEMPLATES) {
+            CodeUtils.addTemplate(codeMaker, names[0], names[1], names[2]);
+        }
+        return codeMaker;
+    }
+
+    private static class Entry {
+        private final String digest;
+        private final CodeMaker codeMaker;
+
+        private Entry(String digest, CodeMaker codeMaker) {
+            this.digest = digest;
+            this.codeMaker = codeMaker;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package ibeam.maven.plugins;
+
+import ibeam.code.template.FreeMaker;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Digest of the content of every code template, a change of one template only invalidates the outputs of that template.
+ * Other files of the template folder (macros, includes...) are shared by all the templates.
+ */
+public final class TemplateDigests {
+    /**
+     * templates rendered for every table
+     */
+    public static final String[] TEMPLATES = {"entity", "dao", "service", "api_controller"};
+
+    private static final String EXTENSION = ".ftl";
+
+    private TemplateDigests() {
+        super();
+    }
+
+    /**
+     * @param templateDir   custom template folder, may be null
+     * @param classpathRoot folder of the default templates in the classpath
+     * @return digest of each template name
+     */
+    public static Map<String, String> of(File templateDir, String classpathRoot) throws IOException {
+        String shared = "";
+        if (null != templateDir && templateDir.isDirectory()) {
+            List<String> sharedDigests = new ArrayList<>();
+            String root = templateDir.getAbsolutePath();
+            for (File file : Tools.listFiles(templateDir)) {
+                String path = file.getAbsolutePath().substring(root.length());
+                if (!isTemplate(templateDir, file)) {
+                    sharedDigests.add(path + "=" + SchemaFingerprint.hash(FileUtils.readFileToByteArray(file)));
+                }
+            }
+            Collections.sort(sharedDigests);
+            shared = SchemaFingerprint.hash(sharedDigests.toArray(new String[0]));
+        }
+
+        Map<String, String> digests = new HashMap<>();
+        for (String name : TEMPLATES) {
+            digests.put(name, SchemaFingerprint.hash(name, content(templateDir, classpathRoot, name), shared));
+        }
+        return digests;
+    }
+
+    private static boolean isTemplate(File templateDir, File file) {
+        for (String name : TEMPLATES) {
+            if (file.equals(new File(templateDir, name + EXTENSION))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String content(File templateDir, String classpathRoot, String name) throws IOException {
+        if (null != templateDir) {
+            File file = new File(templateDir, name + EXTENSION);
+            if (file.isFile()) {
+                return SchemaFingerprint.hash(FileUtils.readFileToByteArray(file));
+            }
+        }
+        try (InputStream in = FreeMaker.class.getResourceAsStream(classpathRoot + "/" + name + EXTENSION)) {
+            return null == in ? "" : "classpath:" + SchemaFingerprint.hash(IOUtils.toByteArray(in));
+        }
+    }
+}
@@ -17,9 +17,7 @@ package ibeam.maven.plugins;
  */
 
 import java.io.File;
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
@@ -93,19 +91,44 @@ public final class Tools {
 	 */
 	public static void deleteFolderQuietly(final File file, final boolean deleteOnExistMode, final Log log) {
 		
+		deleteFolderQuietly(file, deleteOnExistMode, FolderDeleter.common(), log);
+	}
+
+	
+	/**
+	 * Deletes a directory and all sub-file or directories leaves first on the pool of the given deleter,
+	 * never throwing an exception.
+	 * If deleteOnExistMode option is activated, the whole directory is registered for deletion at the normal termination
+	 * of the virtual machine, with a single shutdown hook instead of one deleteOnExit entry per file.
+	 * 
+	 * @param file
+	 * @param deleteOnExistMode
+	 * @param deleter
+	 * @param log
+	 * @return the files and bytes deleted and the failures, empty in deleteOnExistMode
+	 */
+	public static FolderDeleter.Report deleteFolderQuietly(final File file, final boolean deleteOnExistMode,
+			final FolderDeleter deleter, final Log log) {
+		
 		try {
 
 			if(file.exists()){
-					
-				final Collection<File> files = listFilesAndFolders(file);
-	
-				deleteFileCollectionQuietly(files, deleteOnExistMode, log);
+				
+				if(deleteOnExistMode)
+				{
+					FolderDeleter.deleteOnExit(file);
+				}
+				else {
+					return deleter.delete(file, log);
+				}
 			}
 		}
 		catch(Exception e)
 		{
 			log.error( Enumeres.EXCEPTION.FILE_DELETION_EXCEPTION + file , e);
 		}
+		
+		return new FolderDeleter.Report();
 	}
 
 	
@@ -192,27 +215,39 @@ public final class Tools {
 	
 	
 	/**
-	 * List recursively all folder of a given directory, excluding the current directory.
-	 * The result list is ordered on artifact last modification date.
+	 * Walk recursively all the files of a given directory, streaming, the attributes of each file read once.
+	 * Unlike listFiles, the memory doesn't depend on the size of the tree, close the walk if it is not read to the end.
 	 * 
 	 * @param file
-	 * @return a list of the folders and only folders (files are not listed) contained by the given directory,
-	 * 		   the result is ordered on the modification date (ascending, with the most recent first).
+	 * @return a walk over the files and only files (folder are not returned) contained by the given directory
 	 */
-	public static List<File> listSubFoldersOrdered(final File file) {
-
-		List<File> result = new ArrayList<File>();
-
-		if (file.exists() && file.isDirectory()) {
-
-			result = listFolders(file);
-
-			result.remove(file);
-
-			Collections.sort(result, new ArtifactFolderComparator());
-		}
+	public static FileWalk iterateFiles(final File file) {
+		
+		return new FileWalk(file, true, false);
+	}
+	
+	
+	/**
+	 * Walk recursively all the files and folders of a given directory, streaming, a folder before its content.
+	 * 
+	 * @param file
+	 * @return a walk over the given directory, then the files and folders it contains
+	 */
+	public static FileWalk iterateFilesAndFolders(final File file) {
+		
+		return new FileWalk(file, true, true);
+	}
+	
+	
+	/**
+	 * Walk recursively all the folders of a given directory, streaming, a folder before its sub folders.
+	 * 
+	 * @param file
+	 * @return a walk over the given directory and the folders and only folders (files are not returned) it contains
+	 */
+	public static FileWalk iterateFolders(final File file) {
 
-		return result;
+		return new FileWalk(file, false, true);
 	}
 	
 	
@@ -0,0 +1,25 @@
+package ibeam.maven.plugins;
+
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+
+/**
+ * Generate the code, then keep the templates and the tables in memory and generate again whenever a template
+ * or application.properties changes, only rendering the outputs of the changed templates, until stopped.
+ * Existing files other than the entities merged with overWriteClass are not written again.
+ *
+ * @version $Id$
+ */
+@Mojo(name = "watch", requiresDependencyResolution = ResolutionScope.COMPILE)
+public class WatchMojo extends CodeGenerateMojo {
+
+    /**
+     * This method implementation define if the current goal keeps generating while the templates change.
+     *
+     * @return true in the current "watch" goal context
+     */
+    @Override
+    protected boolean isWatchGoal() {
+        return true;
+    }
+}
@@ -0,0 +1,265 @@
+package ibeam.maven.plugins;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Metadata read in bulk from the information_schema of H2 in MySQL mode, compared with the metadata
+ * the H2 driver returns table by table.
+ */
+public class BulkMetadataTest {
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    /**
+     * labels the bulk metadata fills as the MySQL driver does, not as the H2 driver does
+     */
+    private static final Set<String> MYSQL_LABELS = new HashSet<>(Arrays.asList("NUM_PREC_RADIX",
+            "CHAR_OCTET_LENGTH", "INDEX_QUALIFIER"));
+
+    private String url;
+    private Connection connection;
+
+    @Before
+    public void setUp() throws SQLException {
+        url = "jdbc:h2:mem:bulk" + DATABASES.incrementAndGet() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE";
+        connection = DriverManager.getConnection(url, "sa", "");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE t_order (id BIGINT AUTO_INCREMENT PRIMARY KEY,"
+                    + " order_no VARCHAR(64) NOT NULL COMMENT 'order number', amount DECIMAL(18,4) DEFAULT 0,"
+                    + " created DATETIME, flag TINYINT, note TEXT) COMMENT 'orders'");
+            statement.execute("CREATE UNIQUE INDEX uk_order_no ON t_order(order_no)");
+            statement.execute("CREATE INDEX idx_created ON t_order(created, amount)");
+            statement.execute("CREATE TABLE t_user (user_id INT NOT NULL, tenant INT NOT NULL, name VARCHAR(32),"
+                    + " PRIMARY KEY (tenant, user_id))");
+        }
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Test
+    public void readTablesAsTheDriver() throws SQLException {
+        BulkMetadata metadata = BulkMetadata.read(connection, null);
+        DatabaseMetaData driver = connection.getMetaData();
+        String[] types = {"TABLE"};
+
+        assertEquals(2, metadata.getTableCount());
+        assertRows(BulkMetadata.TABLE_LABELS, driver.getTables(catalog(), schema(), "%", types),
+                metadata.getTables("%", types));
+        assertRows(BulkMetadata.TABLE_LABELS, driver.getTables(catalog(), schema(), "t\\_order", types),
+                metadata.getTables("t\\_order", types));
+    }
+
+    @Test
+    public void readColumnsAsTheDriver() throws SQLException {
+        BulkMetadata metadata = BulkMetadata.read(connection, null);
+        DatabaseMetaData driver = connection.getMetaData();
+
+        assertEquals(9, metadata.getColumnCount());
+        for (String table : new String[]{"t_order", "t_user"}) {
+            assertRows(BulkMetadata.COLUMN_LABELS, driver.getColumns(catalog(), schema(), table, "%"),
+                    metadata.getColumns(table, "%"));
+        }
+        assertRows(BulkMetadata.COLUMN_LABELS, driver.getColumns(catalog(), schema(), "t\\_order", "order%"),
+                metadata.getColumns("t\\_order", "order%"));
+    }
+
+    @Test
+    public void readPrimaryKeysAsTheDriver() throws SQLException {
+        BulkMetadata metadata = BulkMetadata.read(connection, null);
+        DatabaseMetaData driver = connection.getMetaData();
+
+        for (String table : new String[]{"t_order", "t_user"}) {
+            assertRows(BulkMetadata.PRIMARY_KEY_LABELS, driver.getPrimaryKeys(catalog(), schema(), table),
+                    metadata.getPrimaryKeys(table));
+        }
+    }
+
+    @Test
+    public void readIndexesAsTheDriver() throws SQLException {
+        BulkMetadata metadata = BulkMetadata.read(connection, null);
+        DatabaseMetaData driver = connection.getMetaData();
+
+        for (String table : new String[]{"t_order", "t_user"}) {
+            for (boolean unique : new boolean[]{false, true}) {
+                assertRows(BulkMetadata.INDEX_LABELS, driver.getIndexInfo(catalog(), schema(), table, unique, false),
+                        metadata.getIndexInfo(table, unique));
+            }
+        }
+    }
+
+    @Test
+    public void leaveTheTablesNotKeptToTheDriver() throws SQLException {
+        BulkMetadata metadata = BulkMetadata.read(connection, Collections.singleton("T_ORDER"));
+
+        assertEquals(1, metadata.getTableCount());
+        assertNull(metadata.getTables("%", null));
+        assertNull(metadata.getColumns("t\\_user", "%"));
+        assertNull(metadata.getPrimaryKeys("t_user"));
+        assertEquals(0, count(metadata.getPrimaryKeys("t_missing")));
+        assertEquals(6, count(metadata.getColumns("t\\_order", "%")));
+    }
+
+    @Test
+    public void answerTheParserConnectionsFromMemory() throws SQLException {
+        BulkMetadata metadata = BulkMetadata.read(connection, Collections.singleton("t_order"));
+        String bulkUrl = metadata.register(url);
+        try (Connection parser = DriverManager.getConnection(bulkUrl, "sa", "")) {
+            DatabaseMetaData metaData = parser.getMetaData();
+
+            assertTrue(inMemory(metaData.getTables(catalog(), schema(), "t\\_order", null)));
+            assertTrue(inMemory(metaData.getColumns(catalog(), schema(), "t\\_order", "%")));
+            assertTrue(inMemory(metaData.getPrimaryKeys(catalog(), schema(), "t_order")));
+            assertTrue(inMemory(metaData.getIndexInfo(catalog(), schema(), "t_order", false, false)));
+            // not kept, asked to the database
+            assertFalse(inMemory(metaData.getColumns(catalog(), schema(), "t\\_user", "%")));
+            assertEquals(3, count(metaData.getColumns(catalog(), schema(), "t\\_user", "%")));
+            assertEquals("H2", metaData.getDatabaseProductName());
+        } finally {
+            metadata.close();
+        }
+
+        assertFalse(bulkDriverRegistered());
+        try {
+            DriverManager.getConnection(bulkUrl, "sa", "").close();
+            fail("the bulk metadata is closed");
+        } catch (SQLException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void readTableByTableWhenInformationSchemaFails() throws SQLException {
+        Connection withoutIndexColumns = withoutIndexColumns(connection);
+        try {
+            BulkMetadata.read(withoutIndexColumns, null);
+            fail("INDEX_COLUMNS can't be read");
+        } catch (SQLException e) {
+            // expected
+        }
+
+        assertNull(new CodeGenerateMojo().readBulkMetadata("bulk", withoutIndexColumns, null));
+        assertNotNull(new CodeGenerateMojo().readBulkMetadata("bulk", connection, null));
+    }
+
+    private String catalog() throws SQLException {
+        return connection.getCatalog();
+    }
+
+    private String schema() throws SQLException {
+        return connection.getSchema();
+    }
+
+    /**
+     * compare the rows of the driver and of the bulk metadata, on the labels both fill the same way;
+     * DECIMAL_DIGITS of character columns is null for MySQL but 0 for H2, both read as 0
+     */
+    private static void assertRows(String[] labels, ResultSet expected, ResultSet actual) throws SQLException {
+        List<String> expectedRows = rows(labels, expected);
+        List<String> actualRows = rows(labels, actual);
+
+        assertFalse(expectedRows.isEmpty());
+        assertEquals(expectedRows, actualRows);
+    }
+
+    private static List<String> rows(String[] labels, ResultSet rs) throws SQLException {
+        List<String> rows = new ArrayList<>();
+        try {
+            while (rs.next()) {
+                StringBuilder row = new StringBuilder();
+                for (String label : labels) {
+                    if (MYSQL_LABELS.contains(label)) {
+                        continue;
+                    }
+                    String value = "DECIMAL_DIGITS".equals(label) ? String.valueOf(rs.getInt(label))
+                            : rs.getString(label);
+                    row.append(label).append('=').append(null == value ? null : value.toLowerCase()).append(' ');
+                }
+                rows.add(row.toString());
+            }
+        } finally {
+            rs.close();
+        }
+        return rows;
+    }
+
+    private static boolean inMemory(ResultSet rs) throws SQLException {
+        try {
+            return Proxy.isProxyClass(rs.getClass()) && Proxy.getInvocationHandler(rs) instanceof RowResultSet;
+        } finally {
+            rs.close();
+        }
+    }
+
+    private static int count(ResultSet rs) throws SQLException {
+        int count = 0;
+        try {
+            while (rs.next()) {
+                count++;
+            }
+        } finally {
+            rs.close();
+        }
+        return count;
+    }
+
+    private static boolean bulkDriverRegistered() {
+        for (Enumeration<Driver> drivers = DriverManager.getDrivers(); drivers.hasMoreElements(); ) {
+            if (drivers.nextElement() instanceof BulkMetadataDriver) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the connection of a database without INFORMATION_SCHEMA.INDEX_COLUMNS, such as H2 1.4
+     */
+    private static Connection withoutIndexColumns(final Connection connection) {
+        return (Connection) Proxy.newProxyInstance(BulkMetadataTest.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                        if ("prepareStatement".equals(method.getName())
+                                && String.valueOf(args[0]).contains("INDEX_COLUMNS")) {
+                            throw new SQLException("Table \"INDEX_COLUMNS\" not found");
+                        }
+                        try {
+                            return method.invoke(connection, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    }
+                });
+    }
+}
@@ -0,0 +1,175 @@
+package ibeam.maven.plugins;
+
+/*
+ * Copyright 2013 The Apache Software Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0,
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Selection of the version folders deleted by the clean goal.
+ *
+ * @author sgu, pef, lab...
+ */
+public class CleanLocalRepositoryMojoTest {
+
+	private static final long DAY = 24L * 60L * 60L * 1000L;
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private RepositoryIndex index;
+
+	private CleanLocalRepositoryMojo mojo;
+
+
+	@Before
+	public void setUp() throws Exception {
+
+		final File repository = temporaryFolder.newFolder("repository");
+
+		version(repository, "com/acme/lib", "1.0", 100);
+		version(repository, "com/acme/lib", "1.1", 50);
+		version(repository, "com/acme/lib", "1.2-SNAPSHOT", 30);
+		version(repository, "com/acme/lib", "1.3-SNAPSHOT", 1);
+		version(repository, "org/other/tool", "2.0-SNAPSHOT", 200);
+
+		index = RepositoryIndex.load(repository, new File(repository, RepositoryIndex.FILE_NAME));
+		index.update(null);
+
+		mojo = new CleanLocalRepositoryMojo();
+		set("deleteSnapshot", true);
+	}
+
+
+	@Test
+	public void keepTheNewestSnapshotOfEachArtifact() throws Exception {
+
+		assertEquals(Arrays.asList("com/acme/lib/1.2-SNAPSHOT"), select());
+	}
+
+
+	@Test
+	public void deleteTheNewestSnapshotOnDemand() throws Exception {
+
+		set("deleteCurrentSnapshot", true);
+
+		assertEquals(Arrays.asList("com/acme/lib/1.3-SNAPSHOT", "com/acme/lib/1.2-SNAPSHOT", "org/other/tool/2.0-SNAPSHOT"),
+				select());
+	}
+
+
+	@Test
+	public void keepTheNewestReleaseOfEachArtifact() throws Exception {
+
+		set("deleteSnapshot", false);
+		set("deleteRelease", true);
+
+		assertEquals(Arrays.asList("com/acme/lib/1.0"), select());
+
+		set("deleteCurrentRelease", true);
+
+		assertEquals(Arrays.asList("com/acme/lib/1.1", "com/acme/lib/1.0"), select());
+	}
+
+
+	@Test
+	public void keepTheVersionsWithinTheDelay() throws Exception {
+
+		set("deleteCurrentSnapshot", true);
+		set("snapshotRetentionDelay", 40);
+		set("deleteRelease", true);
+		set("deleteCurrentRelease", true);
+		set("releaseRetentionDelay", 60);
+
+		assertEquals(Arrays.asList("com/acme/lib/1.0", "org/other/tool/2.0-SNAPSHOT"), select());
+	}
+
+
+	@Test
+	public void deleteOnlyTheMatchingVersions() throws Exception {
+
+		set("deleteCurrentSnapshot", true);
+		set("pattern", Pattern.compile("ORG/.*", Pattern.CASE_INSENSITIVE));
+
+		assertEquals(Arrays.asList("org/other/tool/2.0-SNAPSHOT"), select());
+	}
+
+
+	@Test
+	public void keepTheSnapshotsWhoseBuildsArePruned() throws Exception {
+
+		set("deleteCurrentSnapshot", true);
+		set("snapshotVersionsRetention", 2);
+
+		assertEquals(new ArrayList<String>(), select());
+	}
+
+
+	private List<String> select() {
+
+		final List<String> result = new ArrayList<String>();
+
+		for (final RepositoryIndex.Folder folder : mojo.selectVersionFolders(index)) {
+			result.add(folder.getPath());
+		}
+
+		return result;
+	}
+
+
+	private void set(final String name, final Object value) throws ReflectiveOperationException {
+
+		final Field field = CleanLocalRepositoryMojo.class.getDeclaredField(name);
+		field.setAccessible(true);
+		field.set(mojo, value);
+	}
+
+
+	/**
+	 * Create a version folder whose files were last modified the given number of days ago.
+	 */
+	private static void version(final File repository, final String artifactPath, final String version, final int age)
+			throws IOException {
+
+		final File folder = new File(repository, artifactPath + "/" + version);
+
+		final String artifactId = folder.getParentFile().getName();
+
+		final long modified = System.currentTimeMillis() - age * DAY;
+
+		for (final String extension : new String[] { ".jar", ".pom" }) {
+
+			final File file = new File(folder, artifactId + "-" + version + extension);
+
+			if (!folder.isDirectory() && !folder.mkdirs() || !file.createNewFile() || !file.setLastModified(modified)) {
+				throw new IOException("can't create " + file);
+			}
+		}
+	}
+}
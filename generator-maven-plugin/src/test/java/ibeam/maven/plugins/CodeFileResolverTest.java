@@ -0,0 +1,66 @@
+package ibeam.maven.plugins;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Package and class names read by the header scan of {@link CodeFileResolver}.
+ */
+public class CodeFileResolverTest {
+
+    @Test
+    public void scanClass() {
+        assertArrayEquals(new String[]{"ibeam.demo.entity", "Order"},
+                CodeFileResolver.scanHeader("package ibeam.demo.entity;\n\nimport java.util.Date;\n\n"
+                        + "public class Order implements java.io.Serializable {\n}\n"));
+    }
+
+    @Test
+    public void scanInterfaceAndEnum() {
+        assertArrayEquals(new String[]{"ibeam.demo.dao", "OrderDao"},
+                CodeFileResolver.scanHeader("package ibeam.demo.dao;\npublic interface OrderDao {}"));
+        assertArrayEquals(new String[]{"ibeam.demo", "Status"},
+                CodeFileResolver.scanHeader("package ibeam.demo;\nenum Status { ON, OFF }"));
+        assertArrayEquals(new String[]{"ibeam.demo", "Marker"},
+                CodeFileResolver.scanHeader("package ibeam.demo;\npublic @interface Marker {}"));
+    }
+
+    @Test
+    public void skipComments() {
+        assertArrayEquals(new String[]{"ibeam.demo", "Order"},
+                CodeFileResolver.scanHeader("/*\n * class Header of the file\n */\n// package other;\n"
+                        + "package ibeam.demo;\n/** the enum of orders */\npublic /* interface */ class\n"
+                        + "  // name\n  Order {}"));
+    }
+
+    @Test
+    public void skipLiterals() {
+        assertArrayEquals(new String[]{"ibeam.demo", "Order"},
+                CodeFileResolver.scanHeader("package ibeam.demo;\n@Table(name = \"class \\\"Fake\\\"\", quote = '\"')\n"
+                        + "@Comment('\\'')\npublic class Order {}"));
+    }
+
+    @Test
+    public void skipClassLiteralsOfAnnotations() {
+        assertArrayEquals(new String[]{"ibeam.demo", "Order"},
+                CodeFileResolver.scanHeader("package ibeam.demo;\n@JsonSerialize(using = Fake.class)\n"
+                        + "@SuppressWarnings(\"serial\")\npublic final class Order {}"));
+    }
+
+    @Test
+    public void removeWhitespaceOfPackage() {
+        assertArrayEquals(new String[]{"ibeam.demo", "Order"},
+                CodeFileResolver.scanHeader("package ibeam . demo ;\nclass Order {}"));
+    }
+
+    @Test
+    public void noHeader() {
+        assertNull(CodeFileResolver.scanHeader("public class Order {}"));
+        assertNull(CodeFileResolver.scanHeader("package ibeam.demo;\n"));
+        assertNull(CodeFileResolver.scanHeader("package ibeam.demo"));
+        assertNull(CodeFileResolver.scanHeader("package ibeam.demo;\n/* class Order {}"));
+        assertNull(CodeFileResolver.scanHeader("package ibeam.demo;\npublic class {}"));
+    }
+}
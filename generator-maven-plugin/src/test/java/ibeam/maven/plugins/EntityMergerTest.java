@@ -0,0 +1,181 @@
+package ibeam.maven.plugins;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Fields added, removed or changed by {@link EntityMerger} in the hand edited source of an entity, and the
+ * changes left to the full merge of the generator.
+ */
+public class EntityMergerTest {
+    private static final String TABLE = "@Table(name = \"t_order\")\n";
+
+    /**
+     * method written by hand in the existing source, kept by every merge
+     */
+    private static final String LABEL = "\n    public String label() {\n        return orderNo + \"#\" + id;\n    }\n";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File sourceDir;
+    private File source;
+    private EntityMerger merger;
+
+    @Before
+    public void setUp() throws IOException {
+        sourceDir = temporaryFolder.newFolder("java");
+        source = new File(sourceDir, "ibeam/demo/entity/Order.java");
+        merger = EntityMerger.load(temporaryFolder.newFile(EntityMerger.FILE_NAME), sourceDir);
+    }
+
+    @Test
+    public void mergeOnlyTheRecordedEntities() {
+        String generated = entity("", TABLE, field("Long", "id", "id"));
+
+        assertNull(merger.merge(source, generated + LABEL, generated));
+    }
+
+    @Test
+    public void leaveTheMatchingEntityAlone() {
+        String generated = entity("", TABLE, field("Long", "id", "id"), field("String", "orderNo", "order number"));
+        String existing = entity("", TABLE, LABEL, field("Long", "id", "id"),
+                field("String", "orderNo", "order number"));
+        merger.record(source, generated);
+
+        assertEquals(existing, merger.merge(source, existing, generated));
+    }
+
+    @Test
+    public void addTheNewFields() {
+        merger.record(source, entity("", TABLE, field("Long", "id", "id"), field("String", "orderNo", "order number")));
+        String existing = entity("", TABLE, LABEL, field("Long", "id", "id"),
+                field("String", "orderNo", "order number"));
+        String generated = entity("import java.math.BigDecimal;\n", TABLE, field("Long", "id", "id"),
+                field("String", "orderNo", "order number"), field("BigDecimal", "amount", "amount"));
+
+        assertEquals(entity("import java.math.BigDecimal;\n", TABLE, LABEL, field("Long", "id", "id"),
+                field("String", "orderNo", "order number"), field("BigDecimal", "amount", "amount")),
+                merger.merge(source, existing, generated));
+    }
+
+    @Test
+    public void removeTheFieldsGeneratedBefore() {
+        merger.record(source, entity("", TABLE, field("Long", "id", "id"), field("String", "orderNo", "order number"),
+                field("String", "note", "note")));
+        // the remark is not generated, it was added by hand
+        String existing = entity("", TABLE, LABEL, field("Long", "id", "id"),
+                field("String", "orderNo", "order number"), field("String", "note", "note"),
+                field("String", "remark", "remark"));
+        String generated = entity("", TABLE, field("Long", "id", "id"), field("String", "orderNo", "order number"));
+
+        assertEquals(entity("", TABLE, LABEL, field("Long", "id", "id"), field("String", "orderNo", "order number"),
+                field("String", "remark", "remark")), merger.merge(source, existing, generated));
+    }
+
+    @Test
+    public void replaceTheRetypedFields() {
+        merger.record(source, entity("", TABLE, field("Integer", "id", "id"), field("String", "orderNo", "order number")));
+        String existing = entity("", TABLE, LABEL, field("Integer", "id", "id"),
+                field("String", "orderNo", "order number"));
+        String generated = entity("", TABLE, field("Long", "id", "id"), field("String", "orderNo", "order number"));
+
+        assertEquals(entity("", TABLE, LABEL, field("Long", "id", "id"), field("String", "orderNo", "order number")),
+                merger.merge(source, existing, generated));
+    }
+
+    @Test
+    public void replaceTheChangedComments() {
+        merger.record(source, entity("", TABLE, field("Long", "id", "id"), field("String", "orderNo", "order number")));
+        String existing = entity("", TABLE, LABEL, field("Long", "id", "id"),
+                field("String", "orderNo", "order number"));
+        String generated = entity("", TABLE, field("Long", "id", "id"), field("String", "orderNo", "number of the order"));
+
+        assertEquals(entity("", TABLE, LABEL, field("Long", "id", "id"), field("String", "orderNo", "number of the order")),
+                merger.merge(source, existing, generated));
+    }
+
+    @Test
+    public void leaveTheFieldsDeclaredOnOneLineToTheGenerator() {
+        String generated = entity("", TABLE, field("Long", "id", "id"), field("Integer", "width", "width"),
+                field("Integer", "height", "height"));
+        merger.record(source, generated);
+        String existing = generated.replace("    private Integer width;\n", "    private Integer width, height;\n")
+                .replace("    private Integer height;\n", "");
+
+        assertNull(merger.merge(source, existing, generated));
+    }
+
+    @Test
+    public void leaveTheChangedClassAnnotationsToTheGenerator() {
+        String existing = entity("", TABLE, field("Long", "id", "id"));
+        merger.record(source, existing);
+
+        assertNull(merger.merge(source, existing, entity("", "@Table(name = \"t_order_history\")\n",
+                field("Long", "id", "id"))));
+    }
+
+    @Test
+    public void leaveTheOverlappingEditsToTheGenerator() {
+        // both removed fields have the accessors getUrl() and setUrl(), which can't be removed twice
+        String existing = entity("", TABLE, field("Long", "id", "id"), field("String", "url", "url"),
+                field("String", "Url", "url"));
+        merger.record(source, existing);
+
+        assertNull(merger.merge(source, existing, entity("", TABLE, field("Long", "id", "id"))));
+    }
+
+    @Test
+    public void keepTheRecordsWhenTheSourceFolderMoves() throws IOException {
+        String generated = entity("", TABLE, field("Long", "id", "id"));
+        File file = temporaryFolder.newFile("moved-" + EntityMerger.FILE_NAME);
+        merger = EntityMerger.load(file, sourceDir);
+        merger.record(source, generated);
+        merger.save();
+
+        File movedDir = temporaryFolder.newFolder("moved");
+        EntityMerger moved = EntityMerger.load(file, movedDir);
+
+        assertEquals(generated, moved.merge(new File(movedDir, "ibeam/demo/entity/Order.java"), generated, generated));
+    }
+
+    /**
+     * @return source of the Order entity with the given fields and their accessors, followed by the methods
+     */
+    private static String entity(String imports, String annotations, String methods, String[]... fields) {
+        StringBuilder code = new StringBuilder("package ibeam.demo.entity;\n\nimport java.util.Date;\n")
+                .append(imports).append('\n').append(annotations)
+                .append("public class Order implements java.io.Serializable {\n");
+        for (int i = 0; i < fields.length; i++) {
+            code.append(i == 0 ? "" : "\n").append("    /**\n     * ").append(fields[i][2]).append("\n     */\n")
+                    .append("    @Column(name = \"").append(fields[i][1]).append("\")\n")
+                    .append("    private ").append(fields[i][0]).append(' ').append(fields[i][1]).append(";\n");
+        }
+        code.append(methods);
+        for (String[] field : fields) {
+            String suffix = Character.toUpperCase(field[1].charAt(0)) + field[1].substring(1);
+            code.append("\n    public ").append(field[0]).append(" get").append(suffix).append("() {\n")
+                    .append("        return ").append(field[1]).append(";\n    }\n")
+                    .append("\n    public void set").append(suffix).append('(').append(field[0]).append(' ')
+                    .append(field[1]).append(") {\n        this.").append(field[1]).append(" = ")
+                    .append(field[1]).append(";\n    }\n");
+        }
+        return code.append("}\n").toString();
+    }
+
+    private static String entity(String imports, String annotations, String[]... fields) {
+        return entity(imports, annotations, "", fields);
+    }
+
+    private static String[] field(String type, String name, String comment) {
+        return new String[]{type, name, comment};
+    }
+}
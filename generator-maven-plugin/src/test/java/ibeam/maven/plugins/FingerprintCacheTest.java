@@ -0,0 +1,207 @@
+package ibeam.maven.plugins;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Outputs found up to date by {@link FingerprintCache} from one run to the next, as long as neither the table,
+ * the template nor the file changed.
+ */
+public class FingerprintCacheTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File cacheFile;
+    private File templateDir;
+
+    @Before
+    public void setUp() throws IOException {
+        cacheFile = new File(temporaryFolder.getRoot(), FingerprintCache.FILE_NAME);
+        templateDir = temporaryFolder.newFolder("templates");
+        for (String name : TemplateDigests.TEMPLATES) {
+            template(name + ".ftl", "<#-- " + name + " -->");
+        }
+    }
+
+    @Test
+    public void keepTheUnchangedOutputs() throws IOException {
+        Table order = order();
+        String dao = fingerprint(order, "dao");
+        FingerprintCache cache = FingerprintCache.load(cacheFile);
+        cache.record(key("t_order", "dao"), dao, output("OrderDao.java", "dao"));
+        cache.save();
+
+        FingerprintCache loaded = FingerprintCache.load(cacheFile);
+
+        assertTrue(loaded.isUpToDate(key("t_order", "dao"), fingerprint(order(), "dao")));
+        assertFalse(loaded.isUpToDate(key("t_order", "service"), dao));
+    }
+
+    @Test
+    public void renderAgainWhenAColumnChanges() throws IOException {
+        Table order = order();
+        FingerprintCache cache = FingerprintCache.load(cacheFile);
+        cache.record(key("t_order", "dao"), fingerprint(order, "dao"), output("OrderDao.java", "dao"));
+        cache.save();
+
+        order.columns.get(1).length = 128;
+
+        assertFalse(FingerprintCache.load(cacheFile).isUpToDate(key("t_order", "dao"), fingerprint(order, "dao")));
+
+        order.columns.get(1).length = 64;
+        order.columns.add(new Column(order, "amount", "DECIMAL", 18));
+
+        assertFalse(FingerprintCache.load(cacheFile).isUpToDate(key("t_order", "dao"), fingerprint(order, "dao")));
+    }
+
+    @Test
+    public void renderAgainTheOutputsOfAChangedTemplate() throws IOException {
+        Table order = order();
+        FingerprintCache cache = FingerprintCache.load(cacheFile);
+        cache.record(key("t_order", "dao"), fingerprint(order, "dao"), output("OrderDao.java", "dao"));
+        cache.record(key("t_order", "entity"), fingerprint(order, "entity"), output("Order.java", "entity"));
+        cache.save();
+
+        template("dao.ftl", "<#-- dao, changed -->");
+        FingerprintCache loaded = FingerprintCache.load(cacheFile);
+
+        assertFalse(loaded.isUpToDate(key("t_order", "dao"), fingerprint(order, "dao")));
+        assertTrue(loaded.isUpToDate(key("t_order", "entity"), fingerprint(order, "entity")));
+
+        // files of the template folder other than the templates are shared by all of them
+        template("macros.ftl", "<#macro column></#macro>");
+
+        assertFalse(FingerprintCache.load(cacheFile).isUpToDate(key("t_order", "entity"), fingerprint(order, "entity")));
+    }
+
+    @Test
+    public void renderAgainATouchedOutput() throws IOException {
+        String dao = fingerprint(order(), "dao");
+        File output = output("OrderDao.java", "dao");
+        FingerprintCache cache = FingerprintCache.load(cacheFile);
+        cache.record(key("t_order", "dao"), dao, output);
+        cache.save();
+
+        FileUtils.writeStringToFile(output, "dao edited by hand", StandardCharsets.UTF_8);
+
+        assertFalse(FingerprintCache.load(cacheFile).isUpToDate(key("t_order", "dao"), dao));
+    }
+
+    @Test
+    public void dropTheTablesNotVisitedOfACompleteDatasource() throws IOException {
+        recordThreeTables();
+
+        FingerprintCache cache = FingerprintCache.load(cacheFile);
+        assertTrue(cache.isUpToDate(key("t_order", "dao"), fingerprint(order(), "dao")));
+        cache.complete("db");
+        cache.save();
+
+        FingerprintCache loaded = FingerprintCache.load(cacheFile);
+
+        assertTrue(loaded.isUpToDate(key("t_order", "dao"), fingerprint(order(), "dao")));
+        assertFalse(loaded.isUpToDate(key("t_user", "dao"), fingerprint(user(), "dao")));
+        // the other datasource was not visited completely
+        assertTrue(loaded.isUpToDate(FingerprintCache.key("other", "t_user", "dao"), fingerprint(user(), "dao")));
+    }
+
+    @Test
+    public void keepTheTablesNotVisitedOfAPartialRun() throws IOException {
+        recordThreeTables();
+
+        FingerprintCache cache = FingerprintCache.load(cacheFile);
+        assertTrue(cache.isUpToDate(key("t_order", "dao"), fingerprint(order(), "dao")));
+        cache.save();
+
+        FingerprintCache loaded = FingerprintCache.load(cacheFile);
+
+        assertTrue(loaded.isUpToDate(key("t_order", "dao"), fingerprint(order(), "dao")));
+        assertTrue(loaded.isUpToDate(key("t_user", "dao"), fingerprint(user(), "dao")));
+        assertTrue(loaded.isUpToDate(FingerprintCache.key("other", "t_user", "dao"), fingerprint(user(), "dao")));
+    }
+
+    private void recordThreeTables() throws IOException {
+        FingerprintCache cache = FingerprintCache.load(cacheFile);
+        cache.record(key("t_order", "dao"), fingerprint(order(), "dao"), output("OrderDao.java", "order"));
+        cache.record(key("t_user", "dao"), fingerprint(user(), "dao"), output("UserDao.java", "user"));
+        cache.record(FingerprintCache.key("other", "t_user", "dao"), fingerprint(user(), "dao"),
+                output("other/UserDao.java", "other user"));
+        cache.save();
+    }
+
+    /**
+     * @return fingerprint of an output, from the metadata of the table and the digest of its template,
+     * as the renderer computes it
+     */
+    private String fingerprint(Table table, String template) throws IOException {
+        Map<String, String> digests = TemplateDigests.of(templateDir, "/templates");
+        return SchemaFingerprint.hash(SchemaFingerprint.of(table), digests.get(template));
+    }
+
+    private static String key(String table, String template) {
+        return FingerprintCache.key("db", table, template);
+    }
+
+    private void template(String name, String content) throws IOException {
+        FileUtils.writeStringToFile(new File(templateDir, name), content, StandardCharsets.UTF_8);
+    }
+
+    private File output(String name, String content) throws IOException {
+        File file = new File(temporaryFolder.getRoot(), "java/" + name);
+        FileUtils.writeStringToFile(file, content, StandardCharsets.UTF_8);
+        return file;
+    }
+
+    private static Table order() {
+        Table table = new Table("t_order");
+        table.columns.add(new Column(table, "id", "BIGINT", 20));
+        table.columns.add(new Column(table, "order_no", "VARCHAR", 64));
+        return table;
+    }
+
+    private static Table user() {
+        Table table = new Table("t_user");
+        table.columns.add(new Column(table, "user_id", "INT", 11));
+        return table;
+    }
+
+    /**
+     * metadata of a table, as the fields of the parsed table beans
+     */
+    private static class Table {
+        private final String name;
+        private final List<Column> columns = new ArrayList<>();
+
+        private Table(String name) {
+            this.name = name;
+        }
+    }
+
+    private static class Column {
+        private final Table table;
+        private final String name;
+        private final String type;
+        private int length;
+
+        private Column(Table table, String name, String type, int length) {
+            this.table = table;
+            this.name = name;
+            this.type = type;
+            this.length = length;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package ibeam.maven.plugins;
+
+import freemarker.template.Configuration;
+import freemarker.template.Template;
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Names of a {@link NameExpression}, the same as the template engine renders for the name templates.
+ */
+public class NameExpressionTest {
+
+    @Test
+    public void evaluateTheNameTemplatesAsTheTemplateEngine() throws Exception {
+        Map<String, Object> model = model();
+        for (String[] templates : TemplateCache.NAME_TEMPLATES) {
+            for (int i = 1; i < templates.length; i++) {
+                assertEquals(templates[i], render(templates[i], model),
+                        NameExpression.compile(templates[i]).evaluate(model));
+            }
+        }
+        assertEquals("ibeam.demo.order.entity", NameExpression.compile(TemplateCache.NAME_TEMPLATES[0][1]).evaluate(model));
+        assertEquals("OrderDao", NameExpression.compile(TemplateCache.NAME_TEMPLATES[1][2]).evaluate(model));
+    }
+
+    @Test
+    public void readMapsAndBooleanProperties() {
+        Map<String, Object> model = model();
+        model.put("settings", Collections.singletonMap("suffix", "Repository"));
+
+        assertEquals("OrderRepository", NameExpression.compile("${entity.className}${settings.suffix}").evaluate(model));
+        assertEquals("true", NameExpression.compile("${entity.sharded}").evaluate(model));
+    }
+
+    @Test
+    public void leaveTheMissingReferencesToTheTemplateEngine() {
+        Map<String, Object> model = model();
+
+        assertNull(NameExpression.compile("${entity.tableName}Dao").evaluate(model));
+        assertNull(NameExpression.compile("${MODULE}.dao").evaluate(model));
+    }
+
+    @Test
+    public void leaveTheOtherSyntaxToTheTemplateEngine() {
+        assertNull(NameExpression.compile("<#if DOMAIN??>${DOMAIN}</#if>.entity"));
+        assertNull(NameExpression.compile("${entity.className?cap_first}"));
+        assertNull(NameExpression.compile("${DOMAIN!\"common\"}.entity"));
+        assertNull(NameExpression.compile("#{index}"));
+        assertNull(NameExpression.compile("${entity.className"));
+    }
+
+    private static String render(String template, Map<String, Object> model) throws Exception {
+        StringWriter writer = new StringWriter();
+        new Template("name", template, new Configuration(Configuration.VERSION_2_3_23)).process(model, writer);
+        return writer.toString();
+    }
+
+    private static Map<String, Object> model() {
+        Map<String, Object> model = new HashMap<>();
+        model.put("BASE_PKG_NAME", "ibeam.demo");
+        model.put("DOMAIN", "order");
+        model.put("entity", new Entity("Order", true));
+        return model;
+    }
+
+    /**
+     * entity of the model, as read by the name templates
+     */
+    public static class Entity {
+        private final String className;
+        private final boolean sharded;
+
+        private Entity(String className, boolean sharded) {
+            this.className = className;
+            this.sharded = sharded;
+        }
+
+        public String getClassName() {
+            return className;
+        }
+
+        public boolean isSharded() {
+            return sharded;
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package ibeam.maven.plugins;
+
+/*
+ * Copyright 2013 The Apache Software Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0,
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.filefilter.FalseFileFilter;
+import org.apache.commons.io.filefilter.TrueFileFilter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Update of a {@link RepositoryIndex}: folders listed again or reused from the saved index.
+ *
+ * @author sgu, pef, lab...
+ */
+public class RepositoryIndexTest {
+
+	private static final long DAY = 24L * 60L * 60L * 1000L;
+
+	/**
+	 * folders and files are dated in the past, so the index records their dates
+	 */
+	private static final long MODIFIED = System.currentTimeMillis() - 10L * DAY;
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private File repository;
+
+	private File indexFile;
+
+	private ExecutorService executor;
+
+
+	@Before
+	public void setUp() throws IOException {
+
+		repository = temporaryFolder.newFolder("repository");
+		indexFile = new File(repository, RepositoryIndex.FILE_NAME);
+		executor = Executors.newFixedThreadPool(2);
+
+		file("com/acme/lib/1.0/lib-1.0.jar", 10);
+		file("com/acme/lib/1.0/lib-1.0.pom", 5);
+		file("com/acme/lib/1.1-SNAPSHOT/lib-1.1-SNAPSHOT.jar", 20);
+		file("org/other/tool/2.0/tool-2.0.jar", 30);
+
+		touchFolders();
+	}
+
+
+	@After
+	public void tearDown() {
+
+		executor.shutdownNow();
+	}
+
+
+	@Test
+	public void indexTheVersionFolders() throws IOException {
+
+		final RepositoryIndex index = RepositoryIndex.load(repository, indexFile);
+
+		assertEquals(10, index.update(executor));
+
+		final List<RepositoryIndex.Folder> versionFolders = index.getVersionFolders();
+
+		assertEquals(Arrays.asList("com/acme/lib/1.0", "com/acme/lib/1.1-SNAPSHOT", "org/other/tool/2.0"),
+				sortedPaths(versionFolders));
+
+		final RepositoryIndex.Folder folder = find(versionFolders, "com/acme/lib/1.0");
+
+		assertEquals(15L, folder.getSize());
+		assertEquals(2, folder.getFileCount());
+		assertEquals(MODIFIED / 1000L, folder.getNewest() / 1000L);
+		assertFalse(folder.isSnapshot());
+		assertTrue(find(versionFolders, "com/acme/lib/1.1-SNAPSHOT").isSnapshot());
+	}
+
+
+	@Test
+	public void reuseTheUnchangedFolders() throws IOException {
+
+		final RepositoryIndex index = RepositoryIndex.load(repository, indexFile);
+		index.update(executor);
+		index.write(indexFile);
+
+		touchFolders();
+
+		final RepositoryIndex loaded = RepositoryIndex.load(repository, indexFile);
+
+		// only the version folders are measured again
+		assertEquals(3, loaded.update(executor));
+		assertEquals(sortedPaths(index.getVersionFolders()), sortedPaths(loaded.getVersionFolders()));
+		assertEquals(15L, find(loaded.getVersionFolders(), "com/acme/lib/1.0").getSize());
+	}
+
+
+	@Test
+	public void measureTheFilesRewrittenInPlace() throws IOException {
+
+		final RepositoryIndex index = RepositoryIndex.load(repository, indexFile);
+		index.update(executor);
+		index.write(indexFile);
+
+		final File jar = new File(repository, "com/acme/lib/1.0/lib-1.0.jar");
+		final long folderModified = jar.getParentFile().lastModified();
+
+		Files.write(jar.toPath(), new byte[100]);
+		assertTrue(jar.getParentFile().setLastModified(folderModified));
+
+		final RepositoryIndex loaded = RepositoryIndex.load(repository, indexFile);
+		loaded.update(executor);
+
+		final RepositoryIndex.Folder folder = find(loaded.getVersionFolders(), "com/acme/lib/1.0");
+
+		assertEquals(105L, folder.getSize());
+		assertTrue(folder.getNewest() > MODIFIED);
+	}
+
+
+	@Test
+	public void listTheChangedFolders() throws IOException {
+
+		final RepositoryIndex index = RepositoryIndex.load(repository, indexFile);
+		index.update(null);
+		index.write(indexFile);
+
+		FileUtils.deleteDirectory(new File(repository, "org/other/tool/2.0"));
+		file("com/acme/lib/1.2/lib-1.2.jar", 40);
+
+		final RepositoryIndex loaded = RepositoryIndex.load(repository, indexFile);
+		loaded.update(null);
+
+		assertEquals(Arrays.asList("com/acme/lib/1.0", "com/acme/lib/1.1-SNAPSHOT", "com/acme/lib/1.2"),
+				sortedPaths(loaded.getVersionFolders()));
+	}
+
+
+	@Test
+	public void writeWithoutTemporaryFile() throws IOException {
+
+		final RepositoryIndex index = RepositoryIndex.load(repository, indexFile);
+		index.update(executor);
+		index.write(indexFile);
+		index.write(indexFile);
+
+		final String[] names = repository.list();
+		Arrays.sort(names);
+
+		assertArrayEquals(new String[] { RepositoryIndex.FILE_NAME, "com", "org" }, names);
+	}
+
+
+	@Test
+	public void ignoreAnUnreadableIndex() throws IOException {
+
+		Files.write(indexFile.toPath(), new byte[] { 1, 2, 3 });
+
+		final RepositoryIndex index = RepositoryIndex.load(repository, indexFile);
+
+		assertEquals(10, index.update(executor));
+		assertEquals(3, index.getVersionFolders().size());
+	}
+
+
+	private void file(final String path, final int size) throws IOException {
+
+		final File file = new File(repository, path);
+
+		FileUtils.writeByteArrayToFile(file, new byte[size]);
+
+		assertTrue(file.setLastModified(MODIFIED));
+	}
+
+
+	/**
+	 * Date every folder of the repository in the past, as folders not changed since the last update.
+	 */
+	private void touchFolders() {
+
+		for (final File folder : FileUtils.listFilesAndDirs(repository, FalseFileFilter.INSTANCE, TrueFileFilter.INSTANCE)) {
+			assertTrue(folder.setLastModified(MODIFIED));
+		}
+	}
+
+
+	private static List<String> sortedPaths(final List<RepositoryIndex.Folder> folders) {
+
+		final List<String> result = new ArrayList<String>();
+
+		for (final RepositoryIndex.Folder folder : folders) {
+			result.add(folder.getPath());
+		}
+
+		Collections.sort(result);
+
+		return result;
+	}
+
+
+	private static RepositoryIndex.Folder find(final List<RepositoryIndex.Folder> folders, final String path) {
+
+		for (final RepositoryIndex.Folder folder : folders) {
+			if (folder.getPath().equals(path)) {
+				return folder;
+			}
+		}
+
+		throw new AssertionError(path + " is not indexed");
+	}
+}
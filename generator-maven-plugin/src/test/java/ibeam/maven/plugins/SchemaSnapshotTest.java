@@ -0,0 +1,102 @@
+package ibeam.maven.plugins;
+
+import ibeam.code.vo.EntityTable;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.InflaterInputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Layout of the snapshot files and the snapshots read back from them.
+ */
+public class SchemaSnapshotTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void writeTheHeaderThenTheDeflatedTables() throws Exception {
+        byte[] bytes = snapshot().toByteArray();
+
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            assertEquals(0x49425353, in.readInt());
+            assertEquals(SchemaSnapshot.VERSION, in.readShort());
+            assertEquals("order", in.readUTF());
+            assertEquals("filter", in.readUTF());
+            assertEquals(0, in.readInt());
+            assertEquals(2, in.readInt());
+            // in name order
+            assertEquals("t_item", in.readUTF());
+            assertEquals(4, in.readInt());
+            assertEquals("t_order", in.readUTF());
+            assertEquals(16, in.readInt());
+            try (ObjectInputStream objects = new ObjectInputStream(new InflaterInputStream(in))) {
+                assertEquals(-1, objects.read());
+            }
+        }
+    }
+
+    @Test
+    public void readTheSnapshotWritten() throws IOException {
+        File file = new File(temporaryFolder.getRoot(), "snapshots/schema-order.snapshot");
+        snapshot().write(file);
+
+        assertSnapshot(SchemaSnapshot.read(file));
+        assertSnapshot(SchemaSnapshot.read(snapshot().toByteArray()));
+    }
+
+    @Test
+    public void rejectAForeignFile() throws IOException {
+        File file = temporaryFolder.newFile("schema-order.snapshot");
+        Files.write(file.toPath(), "order=t_order".getBytes("UTF-8"));
+
+        try {
+            SchemaSnapshot.read(file);
+            fail("not a snapshot");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().endsWith("is not a schema snapshot"));
+        }
+    }
+
+    @Test
+    public void rejectASnapshotOfAnotherVersion() throws IOException {
+        byte[] bytes = snapshot().toByteArray();
+        bytes[4] = 0;
+        bytes[5] = 1;
+
+        try {
+            SchemaSnapshot.read(bytes);
+            fail("version 1 is not read");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("has version 1 but " + SchemaSnapshot.VERSION));
+        }
+    }
+
+    private static SchemaSnapshot snapshot() {
+        Map<String, Integer> shardCounts = new HashMap<>();
+        shardCounts.put("t_order", 16);
+        shardCounts.put("t_item", 4);
+        return new SchemaSnapshot("order", "filter", Collections.<EntityTable>emptyList(), shardCounts);
+    }
+
+    private static void assertSnapshot(SchemaSnapshot snapshot) {
+        assertEquals("order", snapshot.getDatasource());
+        assertEquals("filter", snapshot.getFilter());
+        assertEquals(snapshot().getShardCounts(), snapshot.getShardCounts());
+        assertTrue(snapshot.getTables().isEmpty());
+    }
+}
@@ -0,0 +1,180 @@
+package ibeam.maven.plugins;
+
+/*
+ * Copyright 2013 The Apache Software Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0,
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
+import java.util.Collections;
+import java.util.Date;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.TreeSet;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Build name parsing and selection of the builds dropped by {@link SnapshotRetention}.
+ *
+ * @author sgu, pef, lab...
+ */
+public class SnapshotRetentionTest {
+
+	private static final String PREFIX = "lib-1.0-";
+
+	private static final long DAY = 24L * 60L * 60L * 1000L;
+
+	/**
+	 * the builds of a test are dated from the same instant, so the same age is the same build
+	 */
+	private static final long NOW = System.currentTimeMillis();
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+
+	@Test
+	public void prefixOfSnapshotVersionFolder() {
+
+		assertEquals(PREFIX, SnapshotRetention.prefix(new File("repo/com/acme/lib/1.0-SNAPSHOT")));
+		assertNull(SnapshotRetention.prefix(new File("repo/com/acme/lib/1.0")));
+	}
+
+
+	@Test
+	public void parseBuildOfEveryFile() {
+
+		assertEquals("20240101.123456-7", SnapshotRetention.parse(PREFIX, "lib-1.0-20240101.123456-7.jar").toString());
+		assertEquals("20240101.123456-7", SnapshotRetention.parse(PREFIX, "lib-1.0-20240101.123456-7.pom").toString());
+		assertEquals("20240101.123456-7", SnapshotRetention.parse(PREFIX, "lib-1.0-20240101.123456-7.jar.sha1").toString());
+		assertEquals("20240101.123456-7", SnapshotRetention.parse(PREFIX, "lib-1.0-20240101.123456-7").toString());
+	}
+
+
+	@Test
+	public void parseBuildWithClassifier() {
+
+		assertEquals("20240101.123456-7",
+				SnapshotRetention.parse(PREFIX, "lib-1.0-20240101.123456-7-sources.jar").toString());
+		assertEquals("20240101.123456-12",
+				SnapshotRetention.parse(PREFIX, "lib-1.0-20240101.123456-12-jar-with-dependencies.jar").toString());
+		assertEquals(SnapshotRetention.parse(PREFIX, "lib-1.0-20240101.123456-7.jar"),
+				SnapshotRetention.parse(PREFIX, "lib-1.0-20240101.123456-7-javadoc.jar"));
+	}
+
+
+	@Test
+	public void parseOtherFiles() {
+
+		assertNull(SnapshotRetention.parse(PREFIX, "lib-1.0-SNAPSHOT.jar"));
+		assertNull(SnapshotRetention.parse(PREFIX, "maven-metadata-central.xml"));
+		assertNull(SnapshotRetention.parse(PREFIX, "_remote.repositories"));
+		assertNull(SnapshotRetention.parse(PREFIX, "lib-1.0-20240101.123456-7x.jar"));
+		assertNull(SnapshotRetention.parse(PREFIX, "lib-1.0-20240101-7.jar"));
+		assertNull(SnapshotRetention.parse(PREFIX, "lib-extra-1.0-20240101.123456-7.jar"));
+	}
+
+
+	@Test
+	public void readCurrentBuildOfMetadata() throws IOException {
+
+		final File metadata = temporaryFolder.newFile("maven-metadata-central.xml");
+
+		Files.write(metadata.toPath(), ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<metadata><versioning><snapshot>"
+				+ "<timestamp>20240101.123456</timestamp><buildNumber>7</buildNumber>"
+				+ "</snapshot></versioning></metadata>").getBytes(StandardCharsets.UTF_8));
+
+		assertEquals(new SnapshotRetention.Build("20240101.123456", 7), SnapshotRetention.readCurrentBuild(metadata));
+
+		Files.write(metadata.toPath(), "<metadata><versioning/></metadata>".getBytes(StandardCharsets.UTF_8));
+
+		assertNull(SnapshotRetention.readCurrentBuild(metadata));
+	}
+
+
+	@Test
+	public void keepTheNewestBuilds() {
+
+		final NavigableSet<SnapshotRetention.Build> builds = builds(100, 50, 40, 30, 20);
+
+		final Set<SnapshotRetention.Build> dropped = new SnapshotRetention(2, 0).selectDropped(builds,
+				Collections.<SnapshotRetention.Build>emptySet());
+
+		assertEquals(builds(100, 50, 40), dropped);
+	}
+
+
+	@Test
+	public void keepAtLeastOneBuild() {
+
+		final NavigableSet<SnapshotRetention.Build> builds = builds(30, 20);
+
+		final Set<SnapshotRetention.Build> dropped = new SnapshotRetention(0, 0).selectDropped(builds,
+				Collections.<SnapshotRetention.Build>emptySet());
+
+		assertEquals(builds(30), dropped);
+	}
+
+
+	@Test
+	public void keepTheBuildsWithinTheDelay() {
+
+		final NavigableSet<SnapshotRetention.Build> builds = builds(100, 50, 4, 3, 2, 1);
+
+		final Set<SnapshotRetention.Build> dropped = new SnapshotRetention(1, 10).selectDropped(builds,
+				Collections.<SnapshotRetention.Build>emptySet());
+
+		assertEquals(builds(100, 50), dropped);
+	}
+
+
+	@Test
+	public void keepTheCurrentBuild() {
+
+		final NavigableSet<SnapshotRetention.Build> builds = builds(100, 50, 40, 1);
+
+		final Set<SnapshotRetention.Build> dropped = new SnapshotRetention(1, 0).selectDropped(builds, builds(50));
+
+		assertEquals(builds(100, 40), dropped);
+	}
+
+
+	/**
+	 * @return builds of the given ages in days, the newer ones with the higher build numbers
+	 */
+	private static NavigableSet<SnapshotRetention.Build> builds(final int... ages) {
+
+		final SimpleDateFormat format = new SimpleDateFormat("yyyyMMdd.HHmmss");
+		format.setTimeZone(TimeZone.getTimeZone("UTC"));
+
+		final NavigableSet<SnapshotRetention.Build> result = new TreeSet<SnapshotRetention.Build>();
+
+		for (final int age : ages) {
+			result.add(new SnapshotRetention.Build(format.format(new Date(NOW - age * DAY)), 1000 - age));
+		}
+
+		return result;
+	}
+}
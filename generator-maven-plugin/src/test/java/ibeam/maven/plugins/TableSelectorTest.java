@@ -0,0 +1,92 @@
+package ibeam.maven.plugins;
+
+import ibeam.Converter;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tables pruned before introspection, and escaping of the table names passed as getTables / getColumns
+ * name patterns.
+ */
+public class TableSelectorTest {
+    private static final Converter<String, String> SHARDS = new Converter<String, String>() {
+        @Override
+        public String convert(String value) throws IllegalArgumentException {
+            return value.replaceAll("[-_][0-9]+", "");
+        }
+    };
+
+    private static final String[] NAMES = {"t_log", "t_log_2020", "T_LOG_2020", "t_login", "x_t_log", "t_order",
+            "t_order_0001", "T_Order"};
+
+    @Test
+    public void pruneTheWholeNamesMatchingWithTheirCase() {
+        TableSelector selector = new TableSelector("t_log.*", Collections.<String>emptySet(), SHARDS);
+
+        assertEquals(Arrays.asList("T_LOG_2020", "x_t_log", "t_order", "t_order_0001", "T_Order"),
+                selector.select(Arrays.asList(NAMES)));
+    }
+
+    @Test
+    public void pruneOnlyTheTablesEveryParserRuleIgnores() {
+        for (String ignoreTables : new String[]{"t_log.*", "t_log", "log", "(?i)t_order", "t_order_\\d+|t_log"}) {
+            TableSelector selector = new TableSelector(ignoreTables, Collections.<String>emptySet(), SHARDS);
+            for (String name : NAMES) {
+                if (!selector.isSelected(name)) {
+                    // whole name or part of it, with or without case
+                    assertTrue(ignoreTables + " " + name, Pattern.matches(ignoreTables, name));
+                    assertTrue(ignoreTables + " " + name, Pattern.compile(ignoreTables).matcher(name).find());
+                    assertTrue(ignoreTables + " " + name,
+                            Pattern.compile(ignoreTables, Pattern.CASE_INSENSITIVE).matcher(name).matches());
+                    assertTrue(ignoreTables + " " + name,
+                            Pattern.compile(ignoreTables, Pattern.CASE_INSENSITIVE).matcher(name).find());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void selectTheTargetsWithTheirShards() {
+        TableSelector selector = new TableSelector("t_log.*", Collections.singleton("t_order"), SHARDS);
+
+        assertEquals(Arrays.asList("t_order", "t_order_0001", "T_Order"), selector.select(Arrays.asList(NAMES)));
+    }
+
+    @Test
+    public void selectEveryTableWithAnInvalidIgnorePattern() {
+        TableSelector selector = new TableSelector("t_log[", Collections.<String>emptySet(), SHARDS);
+
+        assertEquals(Arrays.asList(NAMES), selector.select(Arrays.asList(NAMES)));
+    }
+
+    @Test
+    public void escapeWildcards() {
+        assertEquals("t\\_order", TableSelector.escapeLike("t_order", "\\"));
+        assertEquals("rate\\%\\_2017", TableSelector.escapeLike("rate%_2017", "\\"));
+        assertEquals("\\_\\_", TableSelector.escapeLike("__", "\\"));
+    }
+
+    @Test
+    public void keepOtherCharacters() {
+        assertEquals("orders", TableSelector.escapeLike("orders", "\\"));
+        assertEquals("", TableSelector.escapeLike("", "\\"));
+        assertEquals("t.order$1", TableSelector.escapeLike("t.order$1", "\\"));
+    }
+
+    @Test
+    public void escapeWithTheDriverEscape() {
+        assertEquals("t!_order", TableSelector.escapeLike("t_order", "!"));
+    }
+
+    @Test
+    public void keepNameWithoutEscape() {
+        assertEquals("t_order", TableSelector.escapeLike("t_order", null));
+        assertEquals("t_order", TableSelector.escapeLike("t_order", ""));
+    }
+}
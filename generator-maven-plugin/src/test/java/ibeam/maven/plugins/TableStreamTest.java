@@ -0,0 +1,166 @@
+package ibeam.maven.plugins;
+
+import ibeam.Converter;
+import ibeam.code.vo.EntityTable;
+import ibeam.jdbc.EntityParser;
+import org.junit.Test;
+
+import java.io.Closeable;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tables introspected by the producer of a {@link TableStream}, its failures and its end.
+ */
+public class TableStreamTest {
+    private static final Converter<String, String> SHARDS = new Converter<String, String>() {
+        @Override
+        public String convert(String value) throws IllegalArgumentException {
+            return value.replaceAll("_\\d+$", "");
+        }
+    };
+
+    @Test
+    public void keepTheShardsInOneBatch() {
+        List<Set<String>> batches = TableStream.batches(names("t_order_0", "t_order_1", "t_user", "t_item_0",
+                "t_item_1", "t_item_2"), SHARDS, 2);
+
+        assertEquals(Arrays.asList(names("t_order_0", "t_order_1", "t_user"), names("t_item_0", "t_item_1", "t_item_2")),
+                batches);
+    }
+
+    @Test
+    public void readTheTablesOfEveryBatch() throws Exception {
+        Parser parser = new Parser(2, null, 0);
+        TableStream stream = stream(parser, 2, null);
+
+        List<EntityTable> tables = new ArrayList<>();
+        for (EntityTable table = stream.next(); null != table; table = stream.next()) {
+            tables.add(table);
+        }
+        stream.close();
+
+        assertEquals(parser.tables, tables);
+        assertEquals(5, stream.getCount());
+        assertNull(stream.next());
+    }
+
+    @Test
+    public void throwTheExceptionOfTheProducer() throws Exception {
+        SQLException failure = new SQLException("connection refused");
+        Parser parser = new Parser(2, failure, 1);
+        CountDownLatch closed = new CountDownLatch(1);
+        TableStream stream = stream(parser, 2, closed);
+
+        // the tables of the batch introspected before the failure come first
+        for (int i = 0; i < 3; i++) {
+            EntityTable table = stream.next();
+            assertSame(parser.tables.get(i), table);
+        }
+        try {
+            stream.next();
+            fail("the parser failed");
+        } catch (SQLException e) {
+            assertSame(failure, e);
+        }
+        assertNull(stream.next());
+        assertTrue(closed.await(5, TimeUnit.SECONDS));
+        stream.close();
+    }
+
+    @Test
+    public void throwTheErrorOfTheProducer() throws Exception {
+        NoClassDefFoundError failure = new NoClassDefFoundError("com/mysql/jdbc/Driver");
+        TableStream stream = stream(new Parser(2, failure, 0), 2, null);
+
+        try {
+            stream.next();
+            fail("the driver is missing");
+        } catch (NoClassDefFoundError e) {
+            assertSame(failure, e);
+        }
+        stream.close();
+    }
+
+    @Test
+    public void stopTheProducerWaitingForTheConsumer() throws Exception {
+        Parser parser = new Parser(2, null, 0);
+        CountDownLatch closed = new CountDownLatch(1);
+        // one table fits in the queue, the producer waits with the table of the second batch
+        TableStream stream = stream(parser, 1, closed);
+
+        EntityTable table = stream.next();
+        assertSame(parser.tables.get(0), table);
+        assertTrue(parser.parsed.await(5, TimeUnit.SECONDS));
+        stream.close();
+
+        assertTrue(closed.await(5, TimeUnit.SECONDS));
+        assertNull(stream.next());
+    }
+
+    private static TableStream stream(Parser parser, int batchSize, final CountDownLatch closed) {
+        Closeable resource = null == closed ? null : new Closeable() {
+            @Override
+            public void close() {
+                closed.countDown();
+            }
+        };
+        return TableStream.parse(parser, null, names("t_order_0", "t_order_1", "t_user", "t_item", "t_address"),
+                SHARDS, batchSize, GeneratorMetrics.disabled(), "db", resource);
+    }
+
+    private static Set<String> names(String... names) {
+        return new LinkedHashSet<>(Arrays.asList(names));
+    }
+
+    /**
+     * parser returning a new table for each name, failing at the given batch;
+     * parsed is released once the given number of batches are parsed
+     */
+    private static class Parser extends EntityParser {
+        private final List<EntityTable> tables = Collections.synchronizedList(new ArrayList<EntityTable>());
+        private final CountDownLatch parsed;
+        private final Throwable failure;
+        private final int failingBatch;
+        private int batch;
+
+        private Parser(int batches, Throwable failure, int failingBatch) {
+            super("sa", "", "jdbc:none", "db");
+            this.parsed = new CountDownLatch(batches);
+            this.failure = failure;
+            this.failingBatch = failingBatch;
+        }
+
+        @Override
+        public Collection<EntityTable> parse(String ignore, Set<String> names, Converter<String, String> converter)
+                throws Exception {
+            if (null != failure && batch++ == failingBatch) {
+                if (failure instanceof Error) {
+                    throw (Error) failure;
+                }
+                throw (Exception) failure;
+            }
+            List<EntityTable> result = new ArrayList<>();
+            for (String name : names) {
+                result.add(new EntityTable());
+            }
+            tables.addAll(result);
+            parsed.countDown();
+            return result;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package ibeam.maven.plugins;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchService;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Changes of the watched templates gathered until the quiet period passes without any other change.
+ */
+public class WatchMojoTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private Path templates;
+    private WatchService watcher;
+
+    @Before
+    public void setUp() throws IOException {
+        templates = temporaryFolder.newFolder("templates").toPath().toAbsolutePath();
+        watcher = FileSystems.getDefault().newWatchService();
+        templates.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        watcher.close();
+    }
+
+    @Test
+    public void gatherTheChangesOfTheQuietPeriod() throws Exception {
+        Thread editor = edit(200, "dao.ftl", "service.ftl", "entity.ftl");
+
+        assertEquals(new HashSet<>(Arrays.asList(templates.resolve("dao.ftl"), templates.resolve("service.ftl"),
+                templates.resolve("entity.ftl"))), CodeGenerateMojo.nextChanges(watcher, 2000));
+        editor.join();
+    }
+
+    @Test
+    public void leaveTheLaterChangesToTheNextGeneration() throws Exception {
+        Thread editor = edit(3000, "dao.ftl", "service.ftl");
+
+        assertEquals(Collections.singleton(templates.resolve("dao.ftl")), CodeGenerateMojo.nextChanges(watcher, 200));
+        assertEquals(Collections.singleton(templates.resolve("service.ftl")),
+                CodeGenerateMojo.nextChanges(watcher, 200));
+        editor.join();
+    }
+
+    /**
+     * write the templates one after the other, the given milliseconds apart
+     */
+    private Thread edit(final long interval, final String... names) {
+        Thread editor = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    for (int i = 0; i < names.length; i++) {
+                        if (i > 0) {
+                            Thread.sleep(interval);
+                        }
+                        Files.write(templates.resolve(names[i]), names[i].getBytes("UTF-8"));
+                    }
+                } catch (InterruptedException | IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        });
+        editor.start();
+        return editor;
+    }
+}